@@ -0,0 +1,107 @@
+package customer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Результат пакетного добавления покупателей.<br>
+ * Хранит итог по каждой записи пакета (по её порядковому номеру во входной коллекции)
+ * в одном байте, поэтому подходит для пакетов из миллионов записей.
+ *
+ * @since 18.10.2026
+ */
+public class BulkAddResult {
+    /**
+     * Сколько ошибок БД хранить для диагностики
+     */
+    private static final int MAX_ERRORS = 16;
+    private static final Status[] STATUSES = Status.values();
+
+    /**
+     * Итог добавления одного покупателя
+     */
+    public enum Status {
+        /**
+         * Запись не обработана: обработку её части пакета прервала ошибка, не являющаяся исключением БД.
+         * Итог по умолчанию, поэтому необработанная запись не считается добавленной
+         */
+        PENDING,
+        /**
+         * Покупатель добавлен
+         */
+        ADDED,
+        /**
+         * Покупатель с таким номером телефона уже есть в БД
+         */
+        ALREADY_EXISTS,
+        /**
+         * Номер телефона уже встречался в этом же пакете раньше
+         */
+        DUPLICATE_IN_BATCH,
+        /**
+         * БД не сохранила покупателя
+         */
+        NOT_SAVED,
+        /**
+         * Ошибка БД при обработке части пакета с этим покупателем
+         */
+        FAILED
+    }
+
+    private final byte[] statuses;
+    private final List<Exception> errors = new ArrayList<>();
+
+    BulkAddResult(int size) {
+        this.statuses = new byte[size];
+    }
+
+    void set(int index, Status status) {
+        statuses[index] = (byte) status.ordinal();
+    }
+
+    void addError(Exception error) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Количество записей в пакете
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * Итог добавления записи
+     * @param index порядковый номер записи во входной коллекции
+     */
+    public Status getStatus(int index) {
+        return STATUSES[statuses[index]];
+    }
+
+    /**
+     * Количество записей с заданным итогом
+     */
+    public int count(Status status) {
+        int count = 0;
+        for (byte value : statuses) {
+            if (value == status.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Первые ошибки БД, из-за которых записи получили итог {@link Status#FAILED}
+     */
+    public List<Exception> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package customer;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
 /**
  * Управляет взаимодействием с БД.
  *
@@ -26,10 +32,47 @@ public class CustomerDao {
         return false;
     }
 
+    /**
+     * Сохранить несколько покупателей за одно обращение к БД
+     * @return для каждого покупателя (в том же порядке): true - если он был сохранён, false - иначе.
+     */
+    public boolean[] saveAll(List<Customer> customers) {
+        // TODO пакетное взаимодействие с БД
+        boolean[] saved = new boolean[customers.size()];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = save(customers.get(i));
+        }
+        return saved;
+    }
+
+    /**
+     * Какие из номеров телефонов существуют в БД (одним запросом)
+     * @return существующие номера
+     */
+    public Set<String> existsAny(Collection<String> phones) {
+        // TODO пакетное взаимодействие с БД
+        Set<String> existing = new HashSet<>();
+        for (String phone : phones) {
+            if (exists(phone)) {
+                existing.add(phone);
+            }
+        }
+        return existing;
+    }
+
     /**
      * Удалить покупателя из БД
      */
     public void delete(Customer customer) {
         // TODO взаимодействие с БД
     }
+
+    /**
+     * Номера телефонов всех покупателей.<br>
+     * Поток нужно закрыть после чтения, т.к. он может держать соединение с БД.
+     */
+    public Stream<String> streamPhones() {
+        // TODO взаимодействие с БД
+        return Stream.empty();
+    }
 }
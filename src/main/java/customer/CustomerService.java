@@ -1,16 +1,80 @@
 package customer;
 
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
 /**
  * Сервис для работы с покупателями
  * @author vpyzhyanov
  * @since 16.05.2022
  */
 public class CustomerService {
+    /**
+     * Размер части пакета по умолчанию для {@link #addCustomers(Collection)}
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1_000;
+    /**
+     * Количество одновременно обрабатываемых частей пакета по умолчанию
+     */
+    private static final int DEFAULT_PARALLELISM = 8;
 
     private final CustomerDao customerDao;
+    /**
+     * Известные номера телефонов, null - проверка всегда идёт в БД
+     */
+    private volatile PhoneBloomFilter phoneFilter;
+    /**
+     * Фильтр, который сейчас заполняется из БД, см. {@link #rebuildPhoneFilter(long, double)}
+     */
+    private volatile PhoneBloomFilter rebuildingPhoneFilter;
+    private final LongAdder skippedExistsChecks = new LongAdder();
+    private final LongAdder filteredExistsChecks = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram addLatency;
+    private final Counter addSuccess;
+    private final Counter addDuplicatePhone;
+    private final Counter addNotSaved;
+    private final Counter addError;
 
     public CustomerService(CustomerDao customerDao) {
+        this(customerDao, null);
+    }
+
+    /**
+     * @param phoneFilter фильтр номеров, уже сохранённых в БД.
+     *                    Новые номера, которых точно нет в фильтре, не проверяются в БД
+     */
+    public CustomerService(CustomerDao customerDao, PhoneBloomFilter phoneFilter) {
+        this(customerDao, phoneFilter, new MetricsRegistry());
+    }
+
+    /**
+     * @param phoneFilter фильтр номеров, уже сохранённых в БД, может быть null
+     * @param metrics     реестр, в котором регистрируются метрики сервиса (см. {@link #getMetrics()}),
+     *                    null - свой реестр сервиса (так сервис создаёт и Mockito через {@code @InjectMocks})
+     */
+    public CustomerService(CustomerDao customerDao, PhoneBloomFilter phoneFilter, MetricsRegistry metrics) {
         this.customerDao = customerDao;
+        this.phoneFilter = phoneFilter;
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+        this.addLatency = this.metrics.histogram("customer_add_latency_ns");
+        this.addSuccess = this.metrics.counter("customer_add_success_total");
+        this.addDuplicatePhone = this.metrics.counter("customer_add_duplicate_phone_total");
+        this.addNotSaved = this.metrics.counter("customer_add_not_saved_total");
+        this.addError = this.metrics.counter("customer_add_error_total");
     }
 
     /**
@@ -20,13 +84,243 @@ public class CustomerService {
      * @throws Exception в случае ошибки в БД
      */
     public boolean addCustomer(Customer customer) throws Exception {
+        long start = System.nanoTime();
         try {
-            if(customerDao.exists(customer.getPhone())){
-                return false;
+            PhoneBloomFilter filter = phoneFilter;
+            if (filter == null || mightExist(filter, customer.getPhone())) {
+                if (customerDao.exists(customer.getPhone())) {
+                    addDuplicatePhone.increment();
+                    return false;
+                }
+                if (filter != null) {
+                    falsePositives.increment();
+                }
             }
-            return customerDao.save(customer);
+            boolean saved = customerDao.save(customer);
+            if (saved) {
+                addSuccess.increment();
+                rememberPhone(customer.getPhone());
+            } else {
+                addNotSaved.increment();
+            }
+            return saved;
         } catch (Exception e) {
+            addError.increment();
             throw new Exception("Не удалось добавить покупателя", e);
+        } finally {
+            addLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Добавить покупателей пакетом.<br>
+     * То же, что {@link #addCustomers(Collection, int, int)} с размером части
+     * {@value #DEFAULT_CHUNK_SIZE} и {@value #DEFAULT_PARALLELISM} частями одновременно.
+     */
+    public BulkAddResult addCustomers(Collection<Customer> customers) throws InterruptedException {
+        return addCustomers(customers, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Добавить покупателей пакетом.<br>
+     * Повторы номера внутри пакета отсеиваются сразу (номера сравниваются по цифрам, как в {@link PhoneBloomFilter}
+     * и {@link InMemoryCustomerDao}), остальные покупатели делятся на части по
+     * {@code chunkSize}: для каждой части одним запросом проверяется существование номеров
+     * ({@link CustomerDao#existsAny(Collection)}) и одним запросом сохраняются новые покупатели
+     * ({@link CustomerDao#saveAll(List)}).
+     * Части обрабатываются параллельно, но одновременно в работе не больше {@code parallelism} частей,
+     * поэтому покупателей в обработке не больше {@code chunkSize * parallelism}.
+     * Расход памяти на весь пакет - итоги (1 байт на покупателя) и встреченные номера для отсева
+     * повторов (упакованными в {@code long}, {@link PackedPhone}, 20-40 байт на номер).
+     * <p>Ошибка БД не прерывает пакет: записи части, на которой она возникла, получают итог
+     * {@link BulkAddResult.Status#FAILED}, остальные части продолжают обрабатываться.
+     * Записи части, обработку которой прервала другая ошибка (например, {@link Error}),
+     * остаются с итогом {@link BulkAddResult.Status#PENDING}.</p>
+     * @param chunkSize   количество покупателей в одном обращении к БД
+     * @param parallelism максимальное количество одновременно обрабатываемых частей
+     * @return итог по каждому покупателю в порядке входной коллекции
+     * @throws InterruptedException если поток прервали во время ожидания обработки частей
+     */
+    public BulkAddResult addCustomers(Collection<Customer> customers, int chunkSize, int parallelism)
+            throws InterruptedException {
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Размер части и параллелизм должны быть положительными");
+        }
+        BulkAddResult result = new BulkAddResult(customers.size());
+        LongLongMap batchPhones = new LongLongMap(Math.min(customers.size(), chunkSize * parallelism));
+        Set<String> unpackedPhones = new HashSet<>();
+        Semaphore inFlight = new Semaphore(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Customer> chunk = new ArrayList<>(chunkSize);
+            int[] chunkIndexes = new int[chunkSize];
+            int index = 0;
+            for (Customer customer : customers) {
+                if (!firstInBatch(customer.getPhone(), batchPhones, unpackedPhones)) {
+                    result.set(index++, BulkAddResult.Status.DUPLICATE_IN_BATCH);
+                    continue;
+                }
+                chunkIndexes[chunk.size()] = index++;
+                chunk.add(customer);
+                if (chunk.size() == chunkSize) {
+                    submitChunk(executor, inFlight, chunk, chunkIndexes, result);
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkIndexes = new int[chunkSize];
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submitChunk(executor, inFlight, chunk, chunkIndexes, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Встретился ли номер в пакете впервые
+     * @param unpackedPhones номера, которые не удалось упаковать: их сравнивают как строки
+     */
+    private static boolean firstInBatch(String phone, LongLongMap batchPhones, Set<String> unpackedPhones) {
+        long packed = PackedPhone.pack(phone);
+        if (packed == PackedPhone.INVALID) {
+            return unpackedPhones.add(phone);
+        }
+        return batchPhones.put(packed, 1) == LongLongMap.NO_VALUE;
+    }
+
+    private void submitChunk(ExecutorService executor, Semaphore inFlight,
+                             List<Customer> chunk, int[] indexes, BulkAddResult result)
+            throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                addChunk(chunk, indexes, result);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Добавить часть пакета, номера телефонов в которой не повторяются
+     */
+    private void addChunk(List<Customer> chunk, int[] indexes, BulkAddResult result) {
+        try {
+            PhoneBloomFilter filter = phoneFilter;
+            List<String> phonesToCheck = new ArrayList<>(chunk.size());
+            for (Customer customer : chunk) {
+                if (filter == null || mightExist(filter, customer.getPhone())) {
+                    phonesToCheck.add(customer.getPhone());
+                }
+            }
+            Set<String> existing = phonesToCheck.isEmpty()
+                    ? Set.of()
+                    : customerDao.existsAny(phonesToCheck);
+            if (filter != null) {
+                falsePositives.add(phonesToCheck.size() - existing.size());
+            }
+
+            List<Customer> toSave = new ArrayList<>(chunk.size());
+            int[] toSaveIndexes = new int[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                Customer customer = chunk.get(i);
+                if (existing.contains(customer.getPhone())) {
+                    result.set(indexes[i], BulkAddResult.Status.ALREADY_EXISTS);
+                } else {
+                    toSaveIndexes[toSave.size()] = indexes[i];
+                    toSave.add(customer);
+                }
+            }
+            if (toSave.isEmpty()) {
+                return;
+            }
+            boolean[] saved = customerDao.saveAll(toSave);
+            for (int i = 0; i < toSave.size(); i++) {
+                if (saved[i]) {
+                    rememberPhone(toSave.get(i).getPhone());
+                    result.set(toSaveIndexes[i], BulkAddResult.Status.ADDED);
+                } else {
+                    result.set(toSaveIndexes[i], BulkAddResult.Status.NOT_SAVED);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                result.set(indexes[i], BulkAddResult.Status.FAILED);
+            }
+            result.addError(e);
+        }
+    }
+
+    /**
+     * Пересобрать фильтр номеров по данным БД, например, если он переполнился.<br>
+     * Номера, сохранённые во время пересборки, попадают и в старый, и в новый фильтр.
+     * @param expectedPhones    ожидаемое количество номеров
+     * @param falsePositiveRate допустимая вероятность ложного срабатывания
+     */
+    public void rebuildPhoneFilter(long expectedPhones, double falsePositiveRate) {
+        PhoneBloomFilter rebuilt = new PhoneBloomFilter(expectedPhones, falsePositiveRate);
+        rebuildingPhoneFilter = rebuilt;
+        try (Stream<String> phones = customerDao.streamPhones()) {
+            phones.forEach(rebuilt::put);
+            phoneFilter = rebuilt;
+        } finally {
+            rebuildingPhoneFilter = null;
+        }
+    }
+
+    /**
+     * Статистика работы фильтра номеров
+     */
+    public PhoneFilterStats getPhoneFilterStats() {
+        return new PhoneFilterStats(skippedExistsChecks.sum(), filteredExistsChecks.sum(), falsePositives.sum());
+    }
+
+    /**
+     * Реестр метрик сервиса:
+     * <ul>
+     *     <li>{@code customer_add_latency_ns} - задержка {@link #addCustomer(Customer)};</li>
+     *     <li>{@code customer_add_success_total} - добавленные покупатели;</li>
+     *     <li>{@code customer_add_duplicate_phone_total} - отклонённые, т.к. номер уже есть в БД;</li>
+     *     <li>{@code customer_add_not_saved_total} - не сохранённые БД;</li>
+     *     <li>{@code customer_add_error_total} - завершившиеся ошибкой БД.</li>
+     * </ul>
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Может ли номер уже быть в БД по данным фильтра
+     */
+    private boolean mightExist(PhoneBloomFilter filter, String phone) {
+        if (filter.mightContain(phone)) {
+            filteredExistsChecks.increment();
+            return true;
         }
+        skippedExistsChecks.increment();
+        return false;
+    }
+
+    /**
+     * Добавить сохранённый номер в фильтр. Пересобираемый фильтр читается первым: если пересборка
+     * к этому моменту закончилась, следующее чтение {@link #phoneFilter} уже вернёт новый фильтр,
+     * а если ещё не началась - её чтение БД найдёт этот номер
+     */
+    private void rememberPhone(String phone) {
+        PhoneBloomFilter rebuilding = rebuildingPhoneFilter;
+        PhoneBloomFilter filter = phoneFilter;
+        if (filter != null) {
+            filter.put(phone);
+        }
+        if (rebuilding != null && rebuilding != filter) {
+            rebuilding.put(phone);
+        }
+    }
+
+    /**
+     * Статистика фильтра номеров
+     * @param skippedExistsChecks  проверок в БД, пропущенных благодаря фильтру
+     * @param filteredExistsChecks проверок, которые фильтр отправил в БД
+     * @param falsePositives       из них номер в БД не нашёлся (ложное срабатывание фильтра)
+     */
+    public record PhoneFilterStats(long skippedExistsChecks, long filteredExistsChecks, long falsePositives) {
     }
 }
@@ -0,0 +1,273 @@
+package customer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Хранение покупателей в памяти в компактном виде.
+ * <p>Покупатель не хранится объектом: номер телефона упаковывается в {@code long} ({@link PackedPhone}),
+ * а индексы номер -> идентификатор и идентификатор -> номер - хеш-таблицы {@code long -> long}
+ * ({@link LongLongMap}). Покупатель занимает 43-85 байт в зависимости от заполнения таблиц (около 54 в среднем),
+ * т.е. 100 млн покупателей - около 5 ГБ; строка и объект {@link Customer} в {@link java.util.Map}
+ * занимают около 120 байт уже для одного индекса.</p>
+ * Номера сравниваются по цифрам, как в {@link PhoneBloomFilter}: "11-11-11" и "111111" - один номер.
+ * <p>Таблицы разделены на {@value #SEGMENTS} частей, каждая со своей блокировкой, поэтому
+ * сохранения разных покупателей редко ждут друг друга. Проверка номера ({@link #exists(String)})
+ * выполняется без блокировки, а повторяется под блокировкой, только если часть в это время меняли.</p>
+ *
+ * @since 18.10.2026
+ */
+public class InMemoryCustomerDao extends CustomerDao {
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    /**
+     * Последний выданный идентификатор, не меньше наибольшего явно сохранённого
+     */
+    private final AtomicLong lastId = new AtomicLong();
+
+    public InMemoryCustomerDao() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedCustomers ожидаемое количество покупателей, таблицы сразу создаются нужного размера
+     */
+    public InMemoryCustomerDao(long expectedCustomers) {
+        if (expectedCustomers < 0) {
+            throw new IllegalArgumentException("Ожидаемое количество покупателей не может быть отрицательным");
+        }
+        int perSegment = (int) Math.min(Integer.MAX_VALUE / 4, expectedCustomers / SEGMENTS + 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(i, perSegment);
+        }
+    }
+
+    /**
+     * Сохранить покупателя. Покупателю без идентификатора (0 или меньше) выдаётся новый идентификатор,
+     * больший всех выданных и явно сохранённых; если его одновременно занял покупатель с явным
+     * идентификатором, выдаётся следующий
+     * @return true - если покупатель сохранён или уже был сохранён с тем же номером,
+     * false - если номер некорректен ({@link PackedPhone#pack(String)}) или номер либо идентификатор
+     * уже заняты другим покупателем
+     */
+    @Override
+    public boolean save(Customer customer) {
+        long phone = PackedPhone.pack(customer.getPhone());
+        if (phone == PackedPhone.INVALID) {
+            return false;
+        }
+        boolean newId = customer.getId() <= 0;
+        long id = customer.getId();
+        if (newId) {
+            id = lastId.incrementAndGet();
+        } else {
+            // выдаваемые идентификаторы не должны натыкаться на явно сохранённые
+            lastId.accumulateAndGet(id, Math::max);
+        }
+        Segment phoneSegment = segmentOf(phone);
+        long stored = tryInsert(phoneSegment, phone, id);
+        while (stored == LongLongMap.NO_VALUE && newId) {
+            id = lastId.incrementAndGet();
+            stored = tryInsert(phoneSegment, phone, id);
+        }
+        if (stored != id) {
+            return false;
+        }
+        if (newId) {
+            customer.setId(id);
+        }
+        return true;
+    }
+
+    /**
+     * Сохранить номер и идентификатор, если ни один из них не занят
+     * @return идентификатор, с которым номер сохранён (этот же или другой, если номер был занят раньше),
+     * или {@link LongLongMap#NO_VALUE}, если номер свободен, а идентификатор занят
+     */
+    private long tryInsert(Segment phoneSegment, long phone, long id) {
+        Segment idSegment = segmentOf(id);
+        Segment lower = lower(phoneSegment, idSegment);
+        Segment upper = upper(phoneSegment, idSegment);
+        long lowerStamp = lower.lock.writeLock();
+        long upperStamp = upper != lower ? upper.lock.writeLock() : 0;
+        try {
+            long existingId = phoneSegment.byPhone.get(phone);
+            if (existingId != LongLongMap.NO_VALUE) {
+                return existingId;
+            }
+            if (idSegment.byId.get(id) != LongLongMap.NO_VALUE) {
+                return LongLongMap.NO_VALUE;
+            }
+            phoneSegment.byPhone.put(phone, id);
+            idSegment.byId.put(id, phone);
+            return id;
+        } finally {
+            unlockBoth(lower, lowerStamp, upper, upperStamp);
+        }
+    }
+
+    @Override
+    public boolean exists(String phone) {
+        long packed = PackedPhone.pack(phone);
+        if (packed == PackedPhone.INVALID) {
+            return false;
+        }
+        Segment segment = segmentOf(packed);
+        StampedLock lock = segment.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = segment.byPhone.get(packed) != LongLongMap.NO_VALUE;
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segment.byPhone.get(packed) != LongLongMap.NO_VALUE;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Удалить покупателя по идентификатору: номер удаляется тот, с которым покупатель был сохранён
+     */
+    @Override
+    public void delete(Customer customer) {
+        long id = customer.getId();
+        if (id <= 0) {
+            return;
+        }
+        Segment idSegment = segmentOf(id);
+        while (true) {
+            long phone = getPackedPhone(idSegment, id);
+            if (phone == LongLongMap.NO_VALUE) {
+                return;
+            }
+            Segment phoneSegment = segmentOf(phone);
+            Segment lower = lower(phoneSegment, idSegment);
+            Segment upper = upper(phoneSegment, idSegment);
+            long lowerStamp = lower.lock.writeLock();
+            long upperStamp = upper != lower ? upper.lock.writeLock() : 0;
+            try {
+                // номер под блокировкой тот же: покупателя не удалили и не сохранили заново между чтениями
+                if (idSegment.byId.get(id) == phone) {
+                    idSegment.byId.remove(id);
+                    phoneSegment.byPhone.remove(phone);
+                    return;
+                }
+            } finally {
+                unlockBoth(lower, lowerStamp, upper, upperStamp);
+            }
+        }
+    }
+
+    /**
+     * Цифры номера телефона покупателя
+     * @return номер или null, если покупатель не сохранён
+     */
+    public String getPhone(long id) {
+        long phone = getPackedPhone(segmentOf(id), id);
+        return phone == LongLongMap.NO_VALUE ? null : PackedPhone.unpack(phone);
+    }
+
+    /**
+     * Количество сохранённых покупателей
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.byPhone.size();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Номера (только цифры) всех покупателей. Номера каждой части копируются при переходе к ней,
+     * поэтому номера, сохранённые во время чтения, могут не попасть в поток
+     */
+    @Override
+    public Stream<String> streamPhones() {
+        return Arrays.stream(segments)
+                .flatMap(segment -> LongStream.of(segment.phones()).mapToObj(PackedPhone::unpack));
+    }
+
+    private static long getPackedPhone(Segment segment, long id) {
+        long stamp = segment.lock.readLock();
+        try {
+            return segment.byId.get(id);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Часть по ключу: старшие биты мультипликативного хеша, независимые от ячейки внутри таблицы
+     */
+    private Segment segmentOf(long key) {
+        return segments[(int) (key * 0x9e3779b97f4a7c15L >>> (64 - SEGMENT_BITS))];
+    }
+
+    /**
+     * Часть с меньшим номером. Две части блокируются на запись в порядке номеров: сначала
+     * {@link #lower}, затем {@link #upper}, чтобы встречные сохранения не ждали друг друга вечно
+     */
+    private static Segment lower(Segment first, Segment second) {
+        return first.index <= second.index ? first : second;
+    }
+
+    /**
+     * Часть с большим номером, см. {@link #lower}
+     */
+    private static Segment upper(Segment first, Segment second) {
+        return first.index <= second.index ? second : first;
+    }
+
+    private static void unlockBoth(Segment lower, long lowerStamp, Segment upper, long upperStamp) {
+        if (upper != lower) {
+            upper.lock.unlockWrite(upperStamp);
+        }
+        lower.lock.unlockWrite(lowerStamp);
+    }
+
+    /**
+     * Часть таблиц: номера и идентификаторы, попавшие в неё по хешу, под общей блокировкой
+     */
+    private static final class Segment {
+        private final int index;
+        private final StampedLock lock = new StampedLock();
+        /**
+         * Упакованный номер -> идентификатор
+         */
+        private final LongLongMap byPhone;
+        /**
+         * Идентификатор -> упакованный номер
+         */
+        private final LongLongMap byId;
+
+        private Segment(int index, int expectedSize) {
+            this.index = index;
+            this.byPhone = new LongLongMap(expectedSize);
+            this.byId = new LongLongMap(expectedSize);
+        }
+
+        private long[] phones() {
+            long stamp = lock.readLock();
+            try {
+                return byPhone.keys();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package customer;
+
+/**
+ * Хеш-таблица {@code long -> long} с открытой адресацией и линейным пробированием.
+ * <p>Ключи и значения лежат парами в одном массиве {@code long[]}, без объектов на запись:
+ * 16 байт на ячейку вместо ~80 байт на запись {@link java.util.HashMap} с {@link Long}.
+ * Таблица заполняется не больше чем на 3/4, удаление сдвигает следующие записи назад,
+ * поэтому пометок удалённых ячеек нет и поиск не замедляется после удалений.</p>
+ * Ключ {@code 0} обозначает пустую ячейку и не может быть сохранён.
+ * <p>Не потокобезопасна. Массив заменяется новым при росте и не меняется после замены,
+ * поэтому {@link #get(long)} можно вызывать без блокировки, если затем проверить,
+ * что таблицу не меняли (см. {@link java.util.concurrent.locks.StampedLock#validate(long)}).</p>
+ *
+ * @since 18.10.2026
+ */
+final class LongLongMap {
+    /**
+     * Значение отсутствующего ключа
+     */
+    static final long NO_VALUE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Пары ключ, значение; длина - удвоенная степень двойки
+     */
+    private long[] table;
+    private int size;
+
+    /**
+     * @param expectedSize ожидаемое количество записей
+     */
+    LongLongMap(int expectedSize) {
+        table = new long[2 * capacityFor(expectedSize)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Значение по ключу
+     * @return значение или {@link #NO_VALUE}
+     */
+    long get(long key) {
+        long[] table = this.table;
+        int mask = (table.length >>> 1) - 1;
+        for (int slot = slot(key, mask), probes = 0; probes <= mask; slot = slot + 1 & mask, probes++) {
+            long current = table[2 * slot];
+            if (current == key) {
+                return table[2 * slot + 1];
+            }
+            if (current == 0) {
+                return NO_VALUE;
+            }
+        }
+        // возможно только при чтении без блокировки во время записи
+        return NO_VALUE;
+    }
+
+    /**
+     * Сохранить значение
+     * @return прежнее значение или {@link #NO_VALUE}
+     */
+    long put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Ключ 0 зарезервирован для пустой ячейки");
+        }
+        int mask = (table.length >>> 1) - 1;
+        int slot = slot(key, mask);
+        while (table[2 * slot] != 0) {
+            if (table[2 * slot] == key) {
+                long previous = table[2 * slot + 1];
+                table[2 * slot + 1] = value;
+                return previous;
+            }
+            slot = slot + 1 & mask;
+        }
+        if (size + 1 > (mask + 1) / 4 * 3) {
+            grow();
+            return put(key, value);
+        }
+        table[2 * slot + 1] = value;
+        // ключ записывается последним: читающий без блокировки не увидит ключ без значения
+        table[2 * slot] = key;
+        size++;
+        return NO_VALUE;
+    }
+
+    /**
+     * Удалить значение
+     * @return удалённое значение или {@link #NO_VALUE}
+     */
+    long remove(long key) {
+        int mask = (table.length >>> 1) - 1;
+        int slot = slot(key, mask);
+        while (table[2 * slot] != key) {
+            if (table[2 * slot] == 0) {
+                return NO_VALUE;
+            }
+            slot = slot + 1 & mask;
+        }
+        long removed = table[2 * slot + 1];
+        // сдвиг назад: записи, для которых освободившаяся ячейка лежит на пути пробирования, занимают её
+        int free = slot;
+        for (int next = free + 1 & mask; table[2 * next] != 0; next = next + 1 & mask) {
+            int home = slot(table[2 * next], mask);
+            if ((next - home & mask) >= (next - free & mask)) {
+                table[2 * free] = table[2 * next];
+                table[2 * free + 1] = table[2 * next + 1];
+                free = next;
+            }
+        }
+        table[2 * free] = 0;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Копия всех ключей
+     */
+    long[] keys() {
+        long[] keys = new long[size];
+        int count = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0) {
+                keys[count++] = table[i];
+            }
+        }
+        return keys;
+    }
+
+    private void grow() {
+        long[] old = table;
+        long[] grown = new long[old.length * 2];
+        int mask = (grown.length >>> 1) - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            long key = old[i];
+            if (key != 0) {
+                int slot = slot(key, mask);
+                while (grown[2 * slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+                grown[2 * slot] = key;
+                grown[2 * slot + 1] = old[i + 1];
+            }
+        }
+        table = grown;
+    }
+
+    /**
+     * Ячейка ключа: финальное перемешивание MurmurHash3, т.к. соседние номера и идентификаторы
+     * иначе заняли бы соседние ячейки одной длинной цепочкой
+     */
+    private static int slot(long key, int mask) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
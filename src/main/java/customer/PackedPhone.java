@@ -0,0 +1,54 @@
+package customer;
+
+/**
+ * Номер телефона, упакованный в {@code long}.
+ * <p>Как и в {@link PhoneBloomFilter}, учитываются только цифры номера: "11-11-11" и "111111" - один номер.
+ * Цифры записываются десятичным числом после ведущей единицы, поэтому ведущие нули не теряются
+ * ("0111" и "111" - разные номера), а упакованный номер всегда положителен.
+ * Помещается до {@value #MAX_DIGITS} цифр, что больше любого номера в международном формате (15 цифр).</p>
+ *
+ * @since 18.10.2026
+ */
+public final class PackedPhone {
+    /**
+     * Максимальное количество цифр в номере
+     */
+    public static final int MAX_DIGITS = 18;
+    /**
+     * Результат упаковки строки, которая не является номером
+     */
+    public static final long INVALID = -1;
+
+    private PackedPhone() {
+    }
+
+    /**
+     * Упаковать номер
+     * @return упакованный номер или {@link #INVALID}, если в строке нет цифр или их больше {@value #MAX_DIGITS}
+     */
+    public static long pack(String phone) {
+        long packed = 1;
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return INVALID;
+                }
+                packed = packed * 10 + (c - '0');
+            }
+        }
+        return digits == 0 ? INVALID : packed;
+    }
+
+    /**
+     * Цифры упакованного номера
+     */
+    public static String unpack(long packed) {
+        if (packed <= 1) {
+            throw new IllegalArgumentException("Некорректный упакованный номер: " + packed);
+        }
+        // без ведущей единицы
+        return Long.toString(packed).substring(1);
+    }
+}
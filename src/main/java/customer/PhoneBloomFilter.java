@@ -0,0 +1,95 @@
+package customer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума номеров телефонов.<br>
+ * Отвечает на вопрос "встречался ли номер" без обращения к БД:
+ * <ul>
+ *     <li>false - номер точно не добавлялся в фильтр;</li>
+ *     <li>true - номер, вероятно, добавлялся (с заданной вероятностью ложного срабатывания).</li>
+ * </ul>
+ * Учитываются только цифры номера, поэтому "11-11-11" и "111111" считаются одним номером
+ * (в худшем случае это лишнее ложное срабатывание, но не пропуск дубликата).
+ * <p>Потокобезопасен, добавление и проверка не блокируют друг друга.</p>
+ *
+ * @since 18.10.2026
+ */
+public class PhoneBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedPhones    ожидаемое количество номеров
+     * @param falsePositiveRate допустимая вероятность ложного срабатывания при таком количестве номеров
+     */
+    public PhoneBloomFilter(long expectedPhones, double falsePositiveRate) {
+        if (expectedPhones <= 0) {
+            throw new IllegalArgumentException("Ожидаемое количество номеров должно быть положительным");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Вероятность ложного срабатывания должна быть в интервале (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedPhones * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedPhones * ln2));
+    }
+
+    /**
+     * Добавить номер в фильтр
+     */
+    public void put(String phone) {
+        long hash = hash(phone);
+        long h1 = hash;
+        long h2 = hash >>> 32 | hash << 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    /**
+     * Мог ли номер быть добавлен в фильтр
+     * @return false - номер точно не добавлялся, true - номер, вероятно, добавлялся
+     */
+    public boolean mightContain(String phone) {
+        long hash = hash(phone);
+        long h1 = hash;
+        long h2 = hash >>> 32 | hash << 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-битный хеш цифр номера (FNV-1a с финальным перемешиванием MurmurHash3)
+     */
+    private static long hash(String phone) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hash = (hash ^ c) * 0x100000001b3L;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
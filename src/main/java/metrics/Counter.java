@@ -0,0 +1,38 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчик событий.<br>
+ * Основан на {@link LongAdder}: конкурентные увеличения из разных потоков попадают в разные ячейки
+ * и не конкурируют за одну переменную, а чтение суммирует ячейки.
+ *
+ * @since 18.10.2026
+ */
+public final class Counter {
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Увеличить на 1
+     */
+    public void increment() {
+        adder.increment();
+    }
+
+    /**
+     * Увеличить на {@code value}
+     */
+    public void add(long value) {
+        adder.add(value);
+    }
+
+    /**
+     * Текущее значение
+     */
+    public long sum() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,151 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в наносекундах с логарифмическими корзинами (как в HdrHistogram).
+ * <p>Каждая степень двойки делится на {@value #SUB_BUCKETS} равных корзин, поэтому
+ * относительная погрешность значения не больше 1/{@value #SUB_BUCKETS}, а вся гистограмма
+ * от 1 нс до 2^63 нс занимает {@value #BUCKETS} счётчиков. Значения меньше {@value #SUB_BUCKETS} нс
+ * хранятся точно.</p>
+ * Запись не блокируется и не выделяет память: номер корзины вычисляется сдвигами,
+ * а счётчик корзины увеличивается атомарно. Снимок ({@link #snapshot()}) не останавливает запись,
+ * поэтому значения, записанные во время снятия, могут попасть в снимок частично.
+ *
+ * @since 18.10.2026
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Записать задержку, отрицательное значение считается нулём
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucketOf(value));
+        totalNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Записать время, прошедшее с {@code startNanos} (по {@link System#nanoTime()})
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Снимок текущего состояния
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Наибольшее значение, попадающее в корзину
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * Снимок гистограммы
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Количество записанных значений
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Сумма записанных значений, нс
+         */
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Наибольшее записанное значение, нс
+         */
+        public long maxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Среднее значение, нс
+         */
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Значение, не меньше которого {@code quantile} записанных значений
+         * (верхняя граница корзины, но не больше максимума)
+         * @param quantile от 0 до 1, например, 0.99
+         */
+        public long quantileNanos(double quantile) {
+            if (quantile < 0 || quantile > 1) {
+                throw new IllegalArgumentException("Квантиль должна быть в интервале [0, 1]");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр метрик: счётчиков и гистограмм задержек по имени.
+ * <p>Метрика создаётся при первом обращении к ней по имени. Поиск по имени нужен только при создании
+ * инструментируемого объекта: он сохраняет полученные метрики в полях и дальше обращается к ним напрямую.</p>
+ * Метрики выгружаются в текстовом формате Prometheus ({@link #export()}).
+ *
+ * @since 18.10.2026
+ */
+public class MetricsRegistry {
+    /**
+     * Квантили, выгружаемые для гистограмм
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Счётчик с именем {@code name}
+     * @throws IllegalArgumentException - если имя недопустимо или занято гистограммой
+     */
+    public Counter counter(String name) {
+        validateName(name, histograms);
+        return counters.computeIfAbsent(name, ignored -> new Counter());
+    }
+
+    /**
+     * Гистограмма задержек с именем {@code name}
+     * @throws IllegalArgumentException - если имя недопустимо или занято счётчиком
+     */
+    public LatencyHistogram histogram(String name) {
+        validateName(name, counters);
+        return histograms.computeIfAbsent(name, ignored -> new LatencyHistogram());
+    }
+
+    /**
+     * Выгрузить все метрики в текстовом формате Prometheus, в порядке имён.
+     * Гистограмма выгружается как summary: квантили, количество и сумма в наносекундах.
+     */
+    public String export() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> counter : new TreeMap<>(counters).entrySet()) {
+            text.append("# TYPE ").append(counter.getKey()).append(" counter\n")
+                    .append(counter.getKey()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            String name = histogram.getKey();
+            LatencyHistogram.Snapshot snapshot = histogram.getValue().snapshot();
+            text.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.quantileNanos(quantile)).append('\n');
+            }
+            text.append(name).append("_max ").append(snapshot.maxNanos()).append('\n')
+                    .append(name).append("_sum ").append(snapshot.totalNanos()).append('\n')
+                    .append(name).append("_count ").append(snapshot.count()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void validateName(String name, Map<String, ?> otherKind) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя метрики '%s'".formatted(name));
+        }
+        if (otherKind.containsKey(name)) {
+            throw new IllegalArgumentException("Метрика '%s' уже зарегистрирована другого типа".formatted(name));
+        }
+    }
+}
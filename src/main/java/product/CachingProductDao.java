@@ -0,0 +1,75 @@
+package product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Кеширование поиска товаров по имени перед другим {@link ProductDao}.<br>
+ * Сохранение товара (в том числе из покупки) удаляет его из кеша,
+ * поэтому следующий поиск прочитает актуальное значение из БД.
+ * Остальные запросы кеш не заполняют, чтобы обход каталога не вытеснял популярные товары.
+ *
+ * @since 18.10.2026
+ */
+public class CachingProductDao extends ProductDao {
+
+    private final ProductDao delegate;
+    private final ProductCache cache;
+
+    public CachingProductDao(ProductDao delegate, ProductCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public List<Product> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        return delegate.getPage(afterName, limit);
+    }
+
+    @Override
+    public void save(Product product) {
+        try {
+            delegate.save(product);
+        } finally {
+            cache.invalidate(product.getName());
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Product> products) {
+        try {
+            delegate.saveAll(products);
+        } finally {
+            for (Product product : products) {
+                cache.invalidate(product.getName());
+            }
+        }
+    }
+
+    @Override
+    public Product getByName(String name) {
+        return cache.get(name, delegate::getByName);
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return delegate.getDictionary();
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return delegate.findByNamePrefix(prefix, limit);
+    }
+
+    /**
+     * Кеш, через который идёт поиск товаров
+     */
+    public ProductCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,116 @@
+package product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Публикация изменений количества товаров в {@link ProductChangeFeed} при сохранении через другой {@link ProductDao}.
+ * <p>Событие публикуется после успешного сохранения и только если количество изменилось.
+ * Прежнее количество - последнее, которое видел этот DAO: при предыдущем сохранении товара
+ * или при первом чтении товара через него; товар, который не читали и не сохраняли, считается новым
+ * (прежнее количество 0). Для каждого товара события идут в порядке сохранений, и прежнее количество
+ * события равно новому количеству предыдущего.</p>
+ *
+ * @since 18.10.2026
+ */
+public class ChangeFeedProductDao extends ProductDao {
+
+    private final ProductDao delegate;
+    private final ProductChangeFeed feed;
+    /**
+     * Имя товара -> последнее увиденное количество
+     */
+    private final ConcurrentHashMap<String, LastCount> lastCounts = new ConcurrentHashMap<>();
+
+    public ChangeFeedProductDao(ProductDao delegate, ProductChangeFeed feed) {
+        this.delegate = delegate;
+        this.feed = feed;
+    }
+
+    @Override
+    public List<Product> getAll() {
+        return remember(delegate.getAll());
+    }
+
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        return remember(delegate.getPage(afterName, limit));
+    }
+
+    @Override
+    public Product getByName(String name) {
+        Product product = delegate.getByName(name);
+        if (product != null) {
+            remember(product, product.getCount());
+        }
+        return product;
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return remember(delegate.findByNamePrefix(prefix, limit));
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return delegate.getDictionary();
+    }
+
+    @Override
+    public void save(Product product) {
+        delegate.save(product);
+        publish(product);
+    }
+
+    @Override
+    public void saveAll(Collection<Product> products) {
+        delegate.saveAll(products);
+        for (Product product : products) {
+            publish(product);
+        }
+    }
+
+    private List<Product> remember(List<Product> products) {
+        if (products != null) {
+            for (Product product : products) {
+                remember(product, product.getCount());
+            }
+        }
+        return products;
+    }
+
+    private LastCount remember(Product product, int count) {
+        LastCount last = lastCounts.get(product.getName());
+        if (last == null) {
+            LastCount created = new LastCount(count);
+            last = lastCounts.putIfAbsent(product.getName(), created);
+            if (last == null) {
+                last = created;
+            }
+        }
+        return last;
+    }
+
+    private void publish(Product product) {
+        LastCount last = remember(product, 0);
+        synchronized (last) {
+            int count = product.getLiveCount();
+            if (count != last.count) {
+                feed.publish(product, last.count, count);
+                last.count = count;
+            }
+        }
+    }
+
+    /**
+     * Последнее увиденное количество товара, изменяется под блокировкой самого объекта
+     */
+    private static final class LastCount {
+        private int count;
+
+        private LastCount(int count) {
+            this.count = count;
+        }
+    }
+}
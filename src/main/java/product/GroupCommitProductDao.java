@@ -0,0 +1,213 @@
+package product;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Режим группового сохранения товаров.<br>
+ * Сохранения из конкурентных вызовов (например, из одновременных покупок) копятся в очереди
+ * и записываются в БД одним вызовом {@link ProductDao#saveAll(Collection)}.
+ * Вызывающий поток ждёт, пока его товары не будут записаны.
+ * <p>Пакет записывается, как только в нём набралось {@code maxBatchSize} товаров
+ * или с момента первого сохранения в пакете прошло {@code maxWait}.</p>
+ *
+ * @since 18.10.2026
+ */
+public class GroupCommitProductDao extends ProductDao implements AutoCloseable {
+    /**
+     * Признак закрытия, всегда последний элемент очереди
+     */
+    private static final PendingSave CLOSE = new PendingSave(List.of());
+
+    private final ProductDao delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingSave> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private boolean closed;
+
+    /**
+     * @param delegate     DAO, в который записываются пакеты
+     * @param maxBatchSize максимальное количество товаров в одном пакете
+     * @param maxWait      максимальное время ожидания других сохранений перед записью пакета
+     */
+    public GroupCommitProductDao(ProductDao delegate, int maxBatchSize, Duration maxWait) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.flusher = new Thread(this::flushLoop, "product-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public List<Product> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        return delegate.getPage(afterName, limit);
+    }
+
+    @Override
+    public Product getByName(String name) {
+        return delegate.getByName(name);
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return delegate.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return delegate.getDictionary();
+    }
+
+    @Override
+    public Product getById(int id) {
+        return delegate.getById(id);
+    }
+
+    @Override
+    public void save(Product product) {
+        saveAll(List.of(product));
+    }
+
+    /**
+     * Сохранить товары в составе ближайшего пакета и дождаться записи
+     * @throws IllegalStateException - если DAO уже закрыт
+     */
+    @Override
+    public void saveAll(Collection<Product> products) {
+        PendingSave pending = new PendingSave(products);
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Групповое сохранение товаров уже остановлено");
+            }
+            queue.add(pending);
+        }
+        try {
+            pending.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Записать накопленные сохранения и остановить поток записи.
+     * Как и {@link java.util.concurrent.ExecutorService#close()}, ждёт окончания записи даже при прерывании,
+     * а затем восстанавливает флаг прерывания
+     */
+    @Override
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Поток записи пакетов
+     */
+    Thread flusher() {
+        return flusher;
+    }
+
+    private void flushLoop() {
+        boolean running = true;
+        while (running) {
+            List<PendingSave> group = new ArrayList<>();
+            Set<Product> batch = new LinkedHashSet<>();
+            try {
+                PendingSave next = queue.take();
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (next != CLOSE) {
+                    group.add(next);
+                    batch.addAll(next.products);
+                    if (batch.size() >= maxBatchSize) {
+                        break;
+                    }
+                    next = queue.poll(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                }
+                running = next != CLOSE;
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            flush(group, batch);
+        }
+        failPending();
+    }
+
+    /**
+     * Остановить приём сохранений и отклонить ещё не записанные.
+     * После {@link #close()} очередь уже пуста, а при прерывании потока записи иначе
+     * ожидающие и новые сохранения ждали бы записи вечно
+     */
+    private void failPending() {
+        List<PendingSave> rest = new ArrayList<>();
+        synchronized (queue) {
+            closed = true;
+            queue.drainTo(rest);
+        }
+        IllegalStateException stopped = new IllegalStateException("Групповое сохранение товаров остановлено");
+        rest.forEach(pending -> pending.done.completeExceptionally(stopped));
+    }
+
+    private void flush(List<PendingSave> group, Set<Product> batch) {
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.saveAll(batch);
+            group.forEach(pending -> pending.done.complete(null));
+        } catch (RuntimeException e) {
+            group.forEach(pending -> pending.done.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Ожидающее записи сохранение
+     */
+    private static final class PendingSave {
+        private final Collection<Product> products;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingSave(Collection<Product> products) {
+            this.products = products;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Хранение товаров в памяти.
+ * <p>Поддерживает два индекса по имени и один по номеру:</p>
+ * <ul>
+ *     <li>хеш-индекс для поиска по полному совпадению за O(1);</li>
+ *     <li>упорядоченный индекс (skip list) для поиска по началу имени за O(log n + limit);</li>
+ *     <li>массив по номеру товара ({@link Product#getId()}) для поиска без обращения к имени.</li>
+ * </ul>
+ * Индексы потокобезопасны и не блокируют чтение.
+ * Запись одного имени в оба индекса выполняется под блокировкой ячейки хеш-индекса,
+ * поэтому конкурентные сохранения товара с одним именем не расходятся между индексами.
+ * <p>Массив по номеру занимает ячейку на каждый номер словаря до наибольшего номера сохранённого товара,
+ * поэтому DAO небольшого каталога лучше создавать со своим словарём, а не с общим.</p>
+ *
+ * @since 18.10.2026
+ */
+public class InMemoryProductDao extends ProductDao {
+    /**
+     * Имя -> товар, поиск по полному совпадению
+     */
+    private final ConcurrentHashMap<String, Product> byName = new ConcurrentHashMap<>();
+    /**
+     * Имя -> товар, упорядочен по имени
+     */
+    private final ConcurrentSkipListMap<String, Product> sortedByName = new ConcurrentSkipListMap<>();
+    /**
+     * Номер товара -> товар. Записывается под блокировкой DAO, при росте заменяется копией
+     */
+    private volatile AtomicReferenceArray<Product> byId = new AtomicReferenceArray<>(1024);
+    private final ProductDictionary dictionary;
+
+    /**
+     * DAO товаров, пронумерованных в общем словаре {@link ProductDictionary#global()}
+     */
+    public InMemoryProductDao() {
+        this(ProductDictionary.global());
+    }
+
+    /**
+     * @param dictionary словарь, в котором нумеруются сохраняемые товары
+     */
+    public InMemoryProductDao(ProductDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public List<Product> getAll() {
+        return new ArrayList<>(sortedByName.values());
+    }
+
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Map<String, Product> tail = afterName == null
+                ? sortedByName
+                : sortedByName.tailMap(afterName, false);
+        List<Product> page = new ArrayList<>(Math.min(limit, 64));
+        for (Product product : tail.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(product);
+        }
+        return page;
+    }
+
+    /**
+     * @throws IllegalArgumentException - если товар пронумерован в другом словаре
+     */
+    @Override
+    public void save(Product product) {
+        if (product.getDictionary() != dictionary) {
+            throw new IllegalArgumentException(
+                    "Товар '%s' пронумерован в другом словаре".formatted(product.getName()));
+        }
+        if (byName.get(product.getName()) == product) {
+            // тот же объект уже в обоих индексах, а количество хранится в нём самом
+            return;
+        }
+        byName.compute(product.getName(), (name, previous) -> {
+            sortedByName.put(name, product);
+            putById(product);
+            return product;
+        });
+    }
+
+    @Override
+    public Product getById(int id) {
+        AtomicReferenceArray<Product> products = byId;
+        return id >= 0 && id < products.length() ? products.get(id) : null;
+    }
+
+    private synchronized void putById(Product product) {
+        int id = product.getId();
+        AtomicReferenceArray<Product> products = byId;
+        if (id >= products.length()) {
+            AtomicReferenceArray<Product> grown =
+                    new AtomicReferenceArray<>(Math.max(id + 1, products.length() * 2));
+            for (int i = 0; i < products.length(); i++) {
+                grown.set(i, products.get(i));
+            }
+            byId = grown;
+            products = grown;
+        }
+        products.set(id, product);
+    }
+
+    @Override
+    public Product getByName(String name) {
+        return byName.get(name);
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<Product> result = new ArrayList<>(Math.min(limit, 16));
+        ConcurrentNavigableMap<String, Product> tail = sortedByName.tailMap(prefix, true);
+        for (Map.Entry<String, Product> entry : tail.entrySet()) {
+            if (result.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,467 @@
+package product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранение товаров в файлах, отображённых в память.
+ * <p>Хранилище состоит из трёх файлов в каталоге {@code directory}:</p>
+ * <ul>
+ *     <li>{@value #RECORDS_FILE} - заголовок и записи фиксированной длины
+ *     (смещение и длина имени, доступное и отложенное количество, хеш имени);</li>
+ *     <li>{@value #INDEX_FILE} - хеш-таблица с открытой адресацией: номер записи + 1, 0 - пустая ячейка;</li>
+ *     <li>{@value #NAMES_FILE} - имена товаров в UTF-8 подряд.</li>
+ * </ul>
+ * Ёмкость задаётся при создании хранилища и не меняется, поэтому открытие существующего хранилища
+ * не перестраивает данные, а только отображает файлы в память и возвращает в наличие товар, отложенный
+ * до закрытия или падения процесса: корзины с этими резервами не пережили перезапуск.
+ * <p>Товары, полученные из этого DAO, хранят количество прямо в отображённом файле: покупка и резерв
+ * меняют доступное и отложенное количество на месте одной атомарной операцией, а {@link #save(Product)}
+ * такого товара ничего не делает.
+ * Изменения попадают в кеш страниц ОС сразу и переживают падение процесса; для сохранности
+ * при отказе машины их нужно сбросить на диск через {@link #force()} - вручную
+ * или периодически, с интервалом {@code forceInterval}.</p>
+ * Чтение не блокируется; добавление новых товаров выполняется под одной блокировкой.
+ * Поиск по префиксу и постраничное чтение просматривают все записи, т.к. упорядоченного индекса нет.
+ *
+ * @since 18.10.2026
+ */
+public final class MappedProductDao extends ProductDao implements AutoCloseable {
+    static final String RECORDS_FILE = "products.dat";
+    static final String INDEX_FILE = "products.idx";
+    static final String NAMES_FILE = "products.names";
+    /**
+     * Максимальная ёмкость: файл записей - 1,5 ГБ, индекс - 512 МБ
+     */
+    public static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int MAGIC = 0x50524F44;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int NAMES_CAPACITY_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int NAMES_USED_OFFSET = 20;
+
+    private static final int RECORD_SIZE = 24;
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 4;
+    /**
+     * Доступное и отложенное количество одним {@code long} ({@link Product#pack(int, int)}),
+     * смещение кратно 8 для атомарных операций
+     */
+    private static final int STOCK = 8;
+    private static final int HASH = 16;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final MappedByteBuffer records;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer names;
+    private final int capacity;
+    private final int namesCapacity;
+    private final int indexMask;
+    private final ReentrantLock insertLock = new ReentrantLock();
+    private final ScheduledExecutorService forcer;
+    private final LongAdder forceFailures = new LongAdder();
+    private final ProductDictionary dictionary;
+
+    /**
+     * Открыть хранилище, товары которого нумеруются в общем словаре {@link ProductDictionary#global()},
+     * см. {@link #MappedProductDao(Path, int, int, Duration, ProductDictionary)}
+     */
+    public MappedProductDao(Path directory, int capacity, int namesCapacity, Duration forceInterval)
+            throws IOException {
+        this(directory, capacity, namesCapacity, forceInterval, ProductDictionary.global());
+    }
+
+    /**
+     * Открыть хранилище в каталоге или создать новое.
+     * Параметры ёмкости используются только при создании, существующее хранилище открывается со своими.
+     * @param directory     каталог файлов хранилища
+     * @param capacity      максимальное количество товаров
+     * @param namesCapacity максимальный суммарный размер имён в байтах UTF-8
+     * @param forceInterval интервал сброса изменений на диск, null - только при {@link #force()} и {@link #close()}
+     * @param dictionary    словарь, в котором нумеруются товары хранилища
+     */
+    public MappedProductDao(Path directory, int capacity, int namesCapacity, Duration forceInterval,
+                            ProductDictionary dictionary) throws IOException {
+        this.dictionary = dictionary;
+        Files.createDirectories(directory);
+        Path recordsPath = directory.resolve(RECORDS_FILE);
+        boolean exists = Files.exists(recordsPath);
+        if (exists) {
+            ByteBuffer header = readHeader(recordsPath);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Файл " + recordsPath + " не является хранилищем товаров");
+            }
+            capacity = header.getInt(CAPACITY_OFFSET);
+            namesCapacity = header.getInt(NAMES_CAPACITY_OFFSET);
+            if (!Files.exists(directory.resolve(INDEX_FILE)) || !Files.exists(directory.resolve(NAMES_FILE))) {
+                throw new IOException("Хранилище товаров в " + directory + " повреждено: нет индекса или имён");
+            }
+        }
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Ёмкость хранилища должна быть от 1 до " + MAX_CAPACITY);
+        }
+        if (namesCapacity <= 0) {
+            throw new IllegalArgumentException("Размер области имён должен быть положительным");
+        }
+        int indexSize = Integer.highestOneBit(Math.max(1, capacity - 1)) << 2;
+        this.capacity = capacity;
+        this.namesCapacity = namesCapacity;
+        this.indexMask = indexSize - 1;
+        this.records = map(recordsPath, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        this.index = map(directory.resolve(INDEX_FILE), (long) indexSize * Integer.BYTES);
+        this.names = map(directory.resolve(NAMES_FILE), namesCapacity);
+        if (!exists) {
+            records.putInt(VERSION_OFFSET, VERSION);
+            records.putInt(CAPACITY_OFFSET, capacity);
+            records.putInt(NAMES_CAPACITY_OFFSET, namesCapacity);
+            records.putInt(MAGIC_OFFSET, MAGIC);
+            records.force();
+        } else {
+            releaseReservations();
+        }
+        if (forceInterval == null || forceInterval.isZero() || forceInterval.isNegative()) {
+            this.forcer = null;
+        } else {
+            this.forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "product-mapped-force");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = forceInterval.toNanos();
+            forcer.scheduleWithFixedDelay(this::forceQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Все товары в порядке добавления
+     */
+    @Override
+    public List<Product> getAll() {
+        int size = size();
+        List<Product> products = new ArrayList<>(size);
+        for (int record = 0; record < size; record++) {
+            products.add(new MappedProduct(nameAt(record), recordPosition(record)));
+        }
+        return products;
+    }
+
+    /**
+     * Просматривает все записи, O(n log limit)
+     */
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        return firstByName(limit, afterName, null);
+    }
+
+    /**
+     * Товар из этого хранилища уже хранит количество в файле и не записывается повторно.
+     * Для другого объекта записывается его количество на складе ({@link Product#getOnHandCount()}),
+     * товар, отложенный из этого хранилища, остаётся отложенным; новый товар добавляется.
+     * @throws IllegalStateException - если в хранилище нет места для нового товара
+     */
+    @Override
+    public void save(Product product) {
+        if (product instanceof MappedProduct mapped && mapped.owner() == this) {
+            return;
+        }
+        byte[] nameBytes = product.getName().getBytes(StandardCharsets.UTF_8);
+        int hash = hash(nameBytes);
+        int onHand = product.getOnHandCount();
+        int found = probe(nameBytes, hash);
+        if (found < 0) {
+            found = insert(nameBytes, hash, onHand);
+            if (found < 0) {
+                return;
+            }
+        }
+        int position = recordPosition(found) + STOCK;
+        long current;
+        do {
+            current = (long) LONG.getVolatile(records, position);
+        } while (!LONG.compareAndSet(records, position, current,
+                Product.pack(onHand - Product.reservedOf(current), Product.reservedOf(current))));
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Product getByName(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int record = probe(nameBytes, hash(nameBytes));
+        return record < 0 ? null : new MappedProduct(name, recordPosition(record));
+    }
+
+    /**
+     * Просматривает все записи, O(n log limit)
+     */
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return firstByName(limit, null, prefix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Количество товаров в хранилище
+     */
+    public int size() {
+        return (int) INT.getAcquire(records, SIZE_OFFSET);
+    }
+
+    /**
+     * Сбросить изменения на диск
+     * @throws UncheckedIOException - если не удалось записать файлы
+     */
+    public void force() {
+        names.force();
+        records.force();
+        index.force();
+    }
+
+    /**
+     * Сколько раз не удалось периодически сбросить изменения на диск
+     */
+    public long getForceFailures() {
+        return forceFailures.sum();
+    }
+
+    /**
+     * Остановить периодический сброс и сбросить изменения на диск.
+     * Отображение освобождается сборщиком мусора, DAO нельзя использовать после закрытия.
+     */
+    @Override
+    public void close() {
+        if (forcer != null) {
+            forcer.shutdownNow();
+        }
+        force();
+    }
+
+    /**
+     * Вернуть в наличие товар, отложенный предыдущим процессом
+     */
+    private void releaseReservations() {
+        int size = size();
+        for (int record = 0; record < size; record++) {
+            int position = recordPosition(record) + STOCK;
+            long stock = records.getLong(position);
+            if (Product.reservedOf(stock) != 0) {
+                records.putLong(position, Product.pack(Product.countOf(stock) + Product.reservedOf(stock), 0));
+            }
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (UncheckedIOException e) {
+            forceFailures.increment();
+        }
+    }
+
+    /**
+     * Найти запись по имени
+     * @return номер записи или {@code ~ячейка} - пустая ячейка индекса, в которую можно добавить имя
+     */
+    private int probe(byte[] nameBytes, int hash) {
+        for (int slot = hash & indexMask; ; slot = (slot + 1) & indexMask) {
+            int entry = (int) INT.getAcquire(index, slot * Integer.BYTES);
+            if (entry == 0) {
+                return ~slot;
+            }
+            int record = entry - 1;
+            if (records.getInt(recordPosition(record) + HASH) == hash && nameEquals(record, nameBytes)) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Добавить товар. Запись заполняется до публикации в индексе и увеличения размера,
+     * поэтому читатели без блокировки видят только заполненные записи.
+     * @return номер записи, если товар с таким именем добавил другой поток, иначе отрицательное число
+     */
+    private int insert(byte[] nameBytes, int hash, int count) {
+        insertLock.lock();
+        try {
+            int found = probe(nameBytes, hash);
+            if (found >= 0) {
+                return found;
+            }
+            int size = size();
+            if (size >= capacity) {
+                throw new IllegalStateException("В хранилище товаров нет места, ёмкость " + capacity);
+            }
+            int namesUsed = records.getInt(NAMES_USED_OFFSET);
+            if (namesCapacity - namesUsed < nameBytes.length) {
+                throw new IllegalStateException("В хранилище товаров нет места для имён, ёмкость "
+                        + namesCapacity + " байт");
+            }
+            names.put(namesUsed, nameBytes);
+            int position = recordPosition(size);
+            records.putInt(position + NAME_OFFSET, namesUsed);
+            records.putInt(position + NAME_LENGTH, nameBytes.length);
+            records.putLong(position + STOCK, Product.pack(count, 0));
+            records.putInt(position + HASH, hash);
+            records.putInt(NAMES_USED_OFFSET, namesUsed + nameBytes.length);
+            INT.setRelease(index, ~found * Integer.BYTES, size + 1);
+            INT.setRelease(records, SIZE_OFFSET, size + 1);
+            return -1;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Первые {@code limit} товаров по возрастанию имени среди имён больше {@code afterName}
+     * и начинающихся с {@code prefix} (null - без условия)
+     */
+    private List<Product> firstByName(int limit, String afterName, byte[] prefix) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<Product> byName = Comparator.comparing(Product::getName);
+        PriorityQueue<Product> largestFirst = new PriorityQueue<>(byName.reversed());
+        int size = size();
+        for (int record = 0; record < size; record++) {
+            if (prefix != null && !nameStartsWith(record, prefix)) {
+                continue;
+            }
+            String name = nameAt(record);
+            if (afterName != null && name.compareTo(afterName) <= 0) {
+                continue;
+            }
+            if (largestFirst.size() < limit) {
+                largestFirst.add(new MappedProduct(name, recordPosition(record)));
+            } else if (name.compareTo(largestFirst.peek().getName()) < 0) {
+                largestFirst.poll();
+                largestFirst.add(new MappedProduct(name, recordPosition(record)));
+            }
+        }
+        List<Product> result = new ArrayList<>(largestFirst);
+        result.sort(byName);
+        return result;
+    }
+
+    private String nameAt(int record) {
+        int position = recordPosition(record);
+        byte[] bytes = new byte[records.getInt(position + NAME_LENGTH)];
+        names.get(records.getInt(position + NAME_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean nameEquals(int record, byte[] nameBytes) {
+        int position = recordPosition(record);
+        return records.getInt(position + NAME_LENGTH) == nameBytes.length
+                && bytesEqual(records.getInt(position + NAME_OFFSET), nameBytes);
+    }
+
+    private boolean nameStartsWith(int record, byte[] prefix) {
+        int position = recordPosition(record);
+        return records.getInt(position + NAME_LENGTH) >= prefix.length
+                && bytesEqual(records.getInt(position + NAME_OFFSET), prefix);
+    }
+
+    private boolean bytesEqual(int namesOffset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (names.get(namesOffset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int recordPosition(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    /**
+     * Хеш хранится в файле, поэтому не должен зависеть от JVM
+     */
+    private static int hash(byte[] nameBytes) {
+        int hash = 0x811c9dc5;
+        for (byte b : nameBytes) {
+            hash = (hash ^ b) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static ByteBuffer readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Файл " + path + " не является хранилищем товаров");
+                }
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Отобразить файл в память, файл расширяется до нужного размера
+     */
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    /**
+     * Товар, количество которого хранится в записи отображённого файла.
+     * Все объекты одного товара видят одно и то же количество.
+     */
+    private final class MappedProduct extends Product {
+        private final int position;
+
+        private MappedProduct(String name, int position) {
+            super(name, 0, dictionary);
+            this.position = position;
+        }
+
+        @Override
+        protected long loadStock() {
+            return (long) LONG.getVolatile(records, position + STOCK);
+        }
+
+        @Override
+        protected boolean compareAndSetStock(long expected, long updated) {
+            return LONG.compareAndSet(records, position + STOCK, expected, updated);
+        }
+
+        private MappedProductDao owner() {
+            return MappedProductDao.this;
+        }
+    }
+}
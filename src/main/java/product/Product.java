@@ -1,6 +1,6 @@
 package product;
 
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Товар
@@ -14,21 +14,79 @@ public class Product {
      */
     private final String name;
     /**
-     * Доступное количество
+     * Словарь, в котором нумеруется имя
      */
-    private int count;
+    private final ProductDictionary dictionary;
+    /**
+     * Номер имени в {@link #dictionary}: товары с одним именем имеют один номер,
+     * поэтому сравнение и хеш товара не обращаются к строке имени
+     */
+    private final int id;
+    /**
+     * Доступное количество (младшие 32 бита) и количество, отложенное в корзины и ещё не проданное
+     * (старшие 32 бита). Отложенный товар уже вычтен из доступного количества.<br>
+     * Оба количества изменяются вместе одной CAS-операцией, поэтому товар можно безопасно покупать
+     * из нескольких потоков, а количество на складе ({@link #getOnHandCount()}) всегда согласовано.
+     */
+    private final AtomicLong stock;
 
+    /**
+     * Товар, имя которого нумеруется в общем словаре {@link ProductDictionary#global()}
+     */
     public Product(String name, int count) {
+        this(name, count, ProductDictionary.global());
+    }
+
+    /**
+     * @param dictionary словарь каталога, в котором нумеруется имя товара
+     */
+    public Product(String name, int count, ProductDictionary dictionary) {
         this.name = name;
-        this.count = count;
+        this.dictionary = dictionary;
+        this.id = dictionary.idOf(name);
+        this.stock = new AtomicLong(pack(count, 0));
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * Плотный номер товара в его словаре, см. {@link ProductDictionary}
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Словарь, в котором нумеруется имя товара
+     */
+    public ProductDictionary getDictionary() {
+        return dictionary;
+    }
+
     public int getCount() {
-        return count;
+        return countOf(loadStock());
+    }
+
+    /**
+     * Доступное количество в данный момент.<br>
+     * Отличается от {@link #getCount()} только у представлений товара, показывающих количество
+     * на определённый момент (товар версии каталога, {@link VersionedProductDao}).
+     * Решения о наличии (проверка корзины, покупка) принимаются по этому количеству.
+     */
+    public int getLiveCount() {
+        return getCount();
+    }
+
+    /**
+     * Количество на складе: доступное и отложенное.<br>
+     * Отложенный товар ещё не продан, а резервы хранятся только в памяти и после перезапуска
+     * не восстанавливаются, поэтому в БД и в журнал покупок сохраняется это количество.
+     */
+    public int getOnHandCount() {
+        long stock = loadStock();
+        return countOf(stock) + reservedOf(stock);
     }
 
     /**
@@ -36,7 +94,7 @@ public class Product {
      * @param count значение, на которое нужно увеличить количество товаров
      */
     public void addCount(int count) {
-        this.count += count;
+        update(count, 0);
     }
 
     /**
@@ -47,20 +105,122 @@ public class Product {
         addCount(-count);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
+    /**
+     * Атомарно вычесть количество товаров, если их достаточно.<br>
+     * Проверка и вычитание выполняются одной CAS-операцией,
+     * поэтому доступное количество никогда не становится отрицательным.
+     * @param count значение, на которое нужно уменьшить количество товаров
+     * @return true - если товары были вычтены, false - если товаров недостаточно
+     */
+    public boolean trySubtractCount(int count) {
+        long current;
+        do {
+            current = loadStock();
+            if (countOf(current) < count) {
+                return false;
+            }
+        } while (!compareAndSetStock(current, pack(countOf(current) - count, reservedOf(current))));
+        return true;
+    }
 
-        Product product = (Product) o;
+    /**
+     * Количество отложенных товаров
+     */
+    public int getReserved() {
+        return reservedOf(loadStock());
+    }
 
-        return Objects.equals(name, product.name);
+    /**
+     * Отложить товары: атомарно вычесть их из доступного количества, если их достаточно
+     * @param count количество откладываемых товаров
+     * @return true - если товары отложены, false - если товаров недостаточно
+     */
+    public boolean tryReserve(int count) {
+        long current;
+        do {
+            current = loadStock();
+            if (countOf(current) < count) {
+                return false;
+            }
+        } while (!compareAndSetStock(current, pack(countOf(current) - count, reservedOf(current) + count)));
+        return true;
+    }
+
+    /**
+     * Продать отложенные товары: доступное количество не меняется, т.к. они уже вычтены
+     * @param count количество продаваемых отложенных товаров
+     */
+    public void sellReserved(int count) {
+        update(0, -count);
+    }
+
+    /**
+     * Отменить продажу отложенных товаров, например, если покупка не состоялась:
+     * товары снова отложены, доступное количество не меняется
+     * @param count количество отложенных товаров, продажа которых отменяется
+     */
+    public void unsellReserved(int count) {
+        update(0, count);
+    }
+
+    /**
+     * Вернуть отложенные товары в доступное количество
+     * @param count количество возвращаемых отложенных товаров
+     */
+    public void releaseReserved(int count) {
+        update(count, -count);
+    }
+
+    /**
+     * Доступное и отложенное количество, упакованные в одно число, см. {@link #pack(int, int)}.
+     * Представление товара, хранящее количество в другом месте, переопределяет этот метод
+     * вместе с {@link #compareAndSetStock(long, long)}
+     */
+    protected long loadStock() {
+        return stock.get();
+    }
+
+    /**
+     * Атомарно заменить упакованное количество, если оно равно {@code expected}
+     */
+    protected boolean compareAndSetStock(long expected, long updated) {
+        return stock.compareAndSet(expected, updated);
+    }
+
+    /**
+     * Упаковать доступное и отложенное количество в одно число
+     */
+    protected static long pack(int count, int reserved) {
+        return (long) reserved << 32 | count & 0xFFFFFFFFL;
+    }
+
+    protected static int countOf(long stock) {
+        return (int) stock;
+    }
+
+    protected static int reservedOf(long stock) {
+        return (int) (stock >>> 32);
+    }
+
+    private void update(int countDelta, int reservedDelta) {
+        long current;
+        do {
+            current = loadStock();
+        } while (!compareAndSetStock(current,
+                pack(countOf(current) + countDelta, reservedOf(current) + reservedDelta)));
+    }
+
+    /**
+     * Товары равны, если у них одно имя в одном словаре, даже если это разные представления одного товара
+     * (например, из разных версий каталога)
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Product product && id == product.id && dictionary == product.dictionary;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(name);
+        return id;
     }
 }
@@ -0,0 +1,55 @@
+package product;
+
+import java.util.function.Function;
+
+/**
+ * Кеш товаров по имени перед {@link ProductDao}
+ *
+ * @since 18.10.2026
+ */
+public interface ProductCache {
+
+    /**
+     * Получить товар из кеша, а при промахе загрузить его через {@code loader} и положить в кеш.<br>
+     * Если пока товар загружался, его инвалидировали, загруженное значение в кеш не попадает.
+     * @param loader загрузка товара из БД, null-результат не кешируется
+     */
+    Product get(String name, Function<String, Product> loader);
+
+    /**
+     * Удалить товар из кеша
+     */
+    void invalidate(String name);
+
+    /**
+     * Очистить кеш
+     */
+    void invalidateAll();
+
+    /**
+     * Текущее количество товаров в кеше
+     */
+    int size();
+
+    /**
+     * Статистика попаданий в кеш
+     */
+    CacheStats stats();
+
+    /**
+     * Статистика кеша
+     * @param hits      количество попаданий
+     * @param misses    количество промахов
+     * @param evictions количество вытеснений (по размеру и по TTL)
+     */
+    record CacheStats(long hits, long misses, long evictions) {
+
+        /**
+         * Доля попаданий от всех обращений
+         */
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package product;
+
+/**
+ * Изменение количества товара в ленте {@link ProductChangeFeed}.
+ * <p>Объект - ячейка кольцевого буфера и переиспользуется для следующих событий,
+ * поэтому обработчик не должен хранить ссылку на него после возврата из
+ * {@link ProductChangeHandler#onChange(ProductChange, boolean)}; нужные значения следует скопировать.</p>
+ *
+ * @since 18.10.2026
+ */
+public final class ProductChange {
+    private long sequence;
+    private Product product;
+    private int oldCount;
+    private int newCount;
+
+    ProductChange() {
+    }
+
+    /**
+     * Номер события в ленте, номера идут подряд начиная с 0
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Количество до изменения
+     */
+    public int getOldCount() {
+        return oldCount;
+    }
+
+    /**
+     * Количество после изменения
+     */
+    public int getNewCount() {
+        return newCount;
+    }
+
+    void set(long sequence, Product product, int oldCount, int newCount) {
+        this.sequence = sequence;
+        this.product = product;
+        this.oldCount = oldCount;
+        this.newCount = newCount;
+    }
+
+    @Override
+    public String toString() {
+        return "#%d %s: %d -> %d".formatted(sequence, product.getName(), oldCount, newCount);
+    }
+}
@@ -0,0 +1,343 @@
+package product;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента изменений количества товаров на кольцевом буфере.
+ * <p>Ячейки буфера ({@link ProductChange}) создаются заранее и переиспользуются, поэтому публикация
+ * не выделяет память: она занимает номер одной CAS-операцией, записывает поля ячейки
+ * и отмечает номер опубликованным.</p>
+ * Каждый подписчик читает ленту в своём потоке со своей позиции и получает все события по порядку.
+ * Всё, что опубликовано к моменту чтения, доставляется одной пачкой подряд, последнее событие пачки
+ * отмечено {@code endOfBatch}. Когда событий нет, подписчик ждёт по {@link WaitStrategy стратегии ожидания}.
+ * <p>Ячейка перезаписывается, только когда её прочитали все подписчики. Если самый медленный подписчик
+ * отстал на весь буфер, публикация по {@link OverflowPolicy} либо ждёт его, либо отбрасывает событие.</p>
+ *
+ * @since 18.10.2026
+ */
+public class ProductChangeFeed implements AutoCloseable {
+    /**
+     * Сколько проверок делает подписчик перед тем, как уступить процессор или уснуть
+     */
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ProductChange[] entries;
+    /**
+     * Номер события, опубликованного в ячейке
+     */
+    private final AtomicLongArray published;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * Последний занятый номер
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Наименьшая позиция подписчиков при последней проверке, чтобы не обходить их на каждой публикации
+     */
+    private volatile long cachedGating = -1;
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    private final LongAdder dropped = new LongAdder();
+    private final ReentrantLock blockingLock = new ReentrantLock();
+    private final Condition publishedCondition = blockingLock.newCondition();
+    private final AtomicInteger blockedSubscribers = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity       размер буфера, округляется вверх до степени двойки
+     * @param waitStrategy   как подписчик ждёт новых событий
+     * @param overflowPolicy что делать публикации, если самый медленный подписчик отстал на весь буфер
+     */
+    public ProductChangeFeed(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Размер буфера должен быть от 1 до 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.entries = new ProductChange[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = new ProductChange();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Подписаться на изменения, опубликованные после подписки
+     * @param name    имя подписчика, из него составляется имя потока
+     * @param handler обработчик, вызывается в отдельном потоке подписчика
+     * @throws IllegalStateException - если лента уже закрыта
+     */
+    public synchronized Subscription subscribe(String name, ProductChangeHandler handler) {
+        if (closed) {
+            throw new IllegalStateException("Лента изменений товаров уже закрыта");
+        }
+        Subscription subscription = new Subscription(name, handler, cursor.get());
+        Subscription[] current = subscriptions;
+        Subscription[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = subscription;
+        subscriptions = extended;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * Опубликовать изменение количества товара. Без подписчиков событие никуда не записывается
+     * @return false - если событие отброшено: подписчик отстал при {@link OverflowPolicy#DROP} или лента закрыта
+     */
+    public boolean publish(Product product, int oldCount, int newCount) {
+        if (subscriptions.length == 0) {
+            return true;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return false;
+        }
+        int index = (int) sequence & mask;
+        entries[index].set(sequence, product, oldCount, newCount);
+        published.set(index, sequence);
+        if (blockedSubscribers.get() > 0) {
+            blockingLock.lock();
+            try {
+                publishedCondition.signalAll();
+            } finally {
+                blockingLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Последний занятый номер события, -1 - событий ещё не было
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Количество отброшенных событий
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Остановить подписчиков, дав им дочитать опубликованные события.
+     * Как и {@link java.util.concurrent.ExecutorService#close()}, ждёт подписчиков даже при прерывании,
+     * а затем восстанавливает флаг прерывания
+     */
+    @Override
+    public void close() {
+        Subscription[] current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = subscriptions;
+        }
+        blockingLock.lock();
+        try {
+            publishedCondition.signalAll();
+        } finally {
+            blockingLock.unlock();
+        }
+        boolean interrupted = false;
+        for (Subscription subscription : current) {
+            while (subscription.thread.isAlive()) {
+                try {
+                    subscription.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Занять следующий номер, не обгоняя самого медленного подписчика больше чем на размер буфера
+     * @return номер или -1, если событие нужно отбросить
+     */
+    private long claim() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > cachedGating) {
+                long gating = minSequence(current);
+                cachedGating = gating;
+                if (wrapPoint > gating) {
+                    if (overflowPolicy == OverflowPolicy.DROP || closed) {
+                        return -1;
+                    }
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long minSequence(long minimum) {
+        for (Subscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Как подписчик ждёт новых событий
+     */
+    public enum WaitStrategy {
+        /**
+         * Постоянно проверять: наименьшая задержка, но подписчик занимает ядро целиком
+         */
+        BUSY_SPIN,
+        /**
+         * Проверять, уступая процессор другим потокам
+         */
+        YIELDING,
+        /**
+         * Проверять, засыпая на 100 мкс: почти не занимает процессор, задержка до 100 мкс
+         */
+        SLEEPING,
+        /**
+         * Ждать сигнала от публикации: не занимает процессор, но публикация, заставшая
+         * ждущего подписчика, платит за блокировку и пробуждение
+         */
+        BLOCKING
+    }
+
+    /**
+     * Что делать публикации, если самый медленный подписчик отстал на весь буфер
+     */
+    public enum OverflowPolicy {
+        /**
+         * Ждать подписчика: события не теряются, но покупки замедляются до скорости подписчика
+         */
+        BLOCK,
+        /**
+         * Отбросить событие и посчитать его в {@link #getDroppedCount()}: покупки не ждут подписчиков
+         */
+        DROP
+    }
+
+    /**
+     * Подписка на ленту
+     */
+    public final class Subscription {
+        private final ProductChangeHandler handler;
+        /**
+         * Номер последнего обработанного события
+         */
+        private final AtomicLong sequence;
+        private final LongAdder errors = new LongAdder();
+        private final Thread thread;
+
+        private Subscription(String name, ProductChangeHandler handler, long sequence) {
+            this.handler = handler;
+            this.sequence = new AtomicLong(sequence);
+            this.thread = new Thread(this::run, "product-change-feed-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Номер последнего обработанного события
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        /**
+         * Сколько раз обработчик завершился исключением; событие при этом считается обработанным
+         */
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (true) {
+                if (!isPublished(next)) {
+                    if (closed && next > cursor.get()) {
+                        return;
+                    }
+                    idle = waitFor(next, idle);
+                    continue;
+                }
+                idle = 0;
+                long last = next;
+                while (isPublished(last + 1)) {
+                    last++;
+                }
+                for (long s = next; s <= last; s++) {
+                    try {
+                        handler.onChange(entries[(int) s & mask], s == last);
+                    } catch (RuntimeException e) {
+                        errors.increment();
+                    }
+                }
+                sequence.set(last);
+                next = last + 1;
+            }
+        }
+
+        /**
+         * Подождать публикации события {@code next} по стратегии ленты
+         * @param idle сколько раз подряд событие ещё не было опубликовано
+         */
+        private int waitFor(long next, int idle) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+                return idle + 1;
+            }
+            switch (waitStrategy) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> Thread.yield();
+                case SLEEPING -> LockSupport.parkNanos(SLEEP_NANOS);
+                case BLOCKING -> {
+                    blockingLock.lock();
+                    blockedSubscribers.incrementAndGet();
+                    try {
+                        if (!isPublished(next) && !closed) {
+                            publishedCondition.awaitNanos(BLOCKING_TIMEOUT_NANOS);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        blockedSubscribers.decrementAndGet();
+                        blockingLock.unlock();
+                    }
+                }
+            }
+            return idle;
+        }
+    }
+}
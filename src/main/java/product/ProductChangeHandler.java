@@ -0,0 +1,18 @@
+package product;
+
+/**
+ * Подписчик ленты изменений товаров {@link ProductChangeFeed}
+ *
+ * @since 18.10.2026
+ */
+@FunctionalInterface
+public interface ProductChangeHandler {
+
+    /**
+     * Обработать изменение. Вызывается в потоке подписчика по порядку номеров событий.
+     * @param change     изменение, действительно только до возврата из метода
+     * @param endOfBatch true - если это последнее из доступных сейчас событий:
+     *                   удобный момент, чтобы записать накопленное одним пакетом
+     */
+    void onChange(ProductChange change, boolean endOfBatch);
+}
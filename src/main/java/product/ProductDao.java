@@ -1,6 +1,14 @@
 package product;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Взаимодействие с БД для товаров
@@ -18,12 +26,47 @@ public class ProductDao {
     }
 
     /**
-     * Сохранить товар
+     * Страница товаров в порядке возрастания имени (keyset-пагинация).<br>
+     * В отличие от OFFSET, стоимость страницы не зависит от её номера.
+     * @param afterName имя последнего товара предыдущей страницы, null - с начала каталога
+     * @param limit максимальное количество товаров на странице
+     */
+    public List<Product> getPage(String afterName, int limit) {
+        // TODO взаимодействие с БД
+        return List.of();
+    }
+
+    /**
+     * Все товары в порядке возрастания имени.<br>
+     * Товары читаются лениво, страницами по {@code pageSize} через {@link #getPage(String, int)},
+     * поэтому в памяти одновременно находится не больше одной страницы,
+     * а если прекратить чтение потока, оставшиеся страницы не запрашиваются.
+     */
+    public Stream<Product> streamAll(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        return StreamSupport.stream(new PageSpliterator(this, pageSize), false);
+    }
+
+    /**
+     * Сохранить товар. В БД сохраняется количество на складе {@link Product#getOnHandCount()}:
+     * отложенный товар ещё не продан, а резервы после перезапуска не восстанавливаются
      */
     public void save(Product product) {
         // TODO взаимодействие с БД
     }
 
+    /**
+     * Сохранить несколько товаров за одно обращение к БД
+     */
+    public void saveAll(Collection<Product> products) {
+        // TODO пакетное взаимодействие с БД
+        for (Product product : products) {
+            save(product);
+        }
+    }
+
     /**
      * Найти товар по полному совпадению имени
      */
@@ -31,4 +74,68 @@ public class ProductDao {
         // TODO взаимодействие с БД
         return null;
     }
+
+    /**
+     * Словарь, в котором нумеруются товары этого DAO
+     */
+    public ProductDictionary getDictionary() {
+        return ProductDictionary.global();
+    }
+
+    /**
+     * Найти товар по номеру {@link Product#getId()} в словаре {@link #getDictionary()}
+     * @return товар или null, если товара с таким номером нет
+     */
+    public Product getById(int id) {
+        ProductDictionary dictionary = getDictionary();
+        if (id < 0 || id >= dictionary.size()) {
+            return null;
+        }
+        return getByName(dictionary.nameOf(id));
+    }
+
+    /**
+     * Найти товары, имя которых начинается с {@code prefix}, в порядке возрастания имени
+     * @param limit максимальное количество товаров в результате
+     */
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        // TODO взаимодействие с БД
+        return List.of();
+    }
+
+    /**
+     * Обход каталога по страницам, следующая страница запрашивается после прочтения текущей
+     */
+    private static final class PageSpliterator extends Spliterators.AbstractSpliterator<Product> {
+        private final ProductDao productDao;
+        private final int pageSize;
+        private Iterator<Product> page = Collections.emptyIterator();
+        private String lastName;
+        private boolean lastPage;
+
+        private PageSpliterator(ProductDao productDao, int pageSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+            this.productDao = productDao;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            if (!page.hasNext()) {
+                if (lastPage) {
+                    return false;
+                }
+                List<Product> next = productDao.getPage(lastName, pageSize);
+                lastPage = next.size() < pageSize;
+                page = next.iterator();
+                if (!page.hasNext()) {
+                    return false;
+                }
+            }
+            Product product = page.next();
+            lastName = product.getName();
+            action.accept(product);
+            return true;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package product;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь имён товаров: каждому имени - плотный номер {@code 0, 1, 2, ...} и обратно.
+ * <p>Номер присваивается имени один раз при первом обращении и больше не меняется,
+ * поэтому внутри приложения товар можно сравнивать и искать по номеру, а имя нужно только
+ * на границе API - при поиске по имени. Номера плотные, и их можно использовать как индексы массивов.</p>
+ * Чтение не блокируется; присвоение нового номера выполняется под блокировкой словаря.
+ * <p>Словарь только растёт: имя, однажды получившее номер, хранится, пока жив словарь, даже если товара
+ * уже нет ни в одном DAO. Имя стоит около 100 байт сверх самой строки (запись хеш-таблицы, {@link Integer},
+ * ячейка массива имён). {@link #global() Общий словарь} живёт всё время работы приложения и нумерует
+ * товары, созданные без словаря ({@link Product#Product(String, int)}). Каталогу, имена которого
+ * меняются или который создаётся на время (импорт, тесты), нужен свой словарь
+ * ({@link Product#Product(String, int, ProductDictionary)}, {@link InMemoryProductDao#InMemoryProductDao(ProductDictionary)}):
+ * тогда номера его товаров плотные с нуля, массивы по номеру не больше самого каталога,
+ * а имена освобождаются вместе с каталогом. Товары из разных словарей не равны, даже при одном имени.</p>
+ *
+ * @since 18.10.2026
+ */
+public final class ProductDictionary {
+    private static final ProductDictionary GLOBAL = new ProductDictionary();
+
+    /**
+     * Имя -> номер
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * Номер -> имя. Ссылка заменяется при росте, элементы записываются до публикации номера в {@link #ids}
+     */
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    public ProductDictionary() {
+    }
+
+    /**
+     * Общий словарь, по которому нумеруются товары, созданные без словаря
+     */
+    public static ProductDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Номер имени; если у имени ещё нет номера - присвоить следующий
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Номер имени без присвоения нового
+     * @return номер или -1, если у имени нет номера
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Имя по номеру
+     * @throws IllegalArgumentException - если номер не присвоен
+     */
+    public String nameOf(int id) {
+        String name = id >= 0 && id < names.length ? names[id] : null;
+        if (name == null && id >= 0) {
+            // номер мог быть присвоен в другом потоке и получен не через словарь
+            synchronized (this) {
+                name = id < size ? names[id] : null;
+            }
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Номер товара %d не присвоен".formatted(id));
+        }
+        return name;
+    }
+
+    /**
+     * Количество присвоенных номеров, все номера меньше него
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,241 @@
+package product;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный по размеру кеш товаров с вытеснением segmented LRU.
+ * <p>Каждая часть кеша делится на два сегмента:</p>
+ * <ul>
+ *     <li>испытательный - сюда попадают новые товары, отсюда вытесняются в первую очередь;</li>
+ *     <li>защищённый - сюда переносятся товары при повторном обращении
+ *         (до {@value #PROTECTED_PERCENT}% ёмкости), вытесненные из него возвращаются в испытательный.</li>
+ * </ul>
+ * Поэтому однократный обход множества редких товаров не вымывает из кеша популярные.
+ * <p>Для конкурентного доступа кеш разбит на независимые части по хешу имени,
+ * каждая со своей блокировкой. Вытесненные и просроченные товары удаляются из кеша сразу
+ * и больше им не удерживаются.</p>
+ *
+ * @since 18.10.2026
+ */
+public class SegmentedLruProductCache implements ProductCache {
+    /**
+     * Доля защищённого сегмента от ёмкости части кеша, в процентах
+     */
+    static final int PROTECTED_PERCENT = 80;
+    private static final int MAX_PARTS = 64;
+    private static final int MIN_PART_CAPACITY = 64;
+
+    private final Part[] parts;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize максимальное количество товаров в кеше
+     * @param ttl время жизни товара в кеше с момента загрузки, {@link Duration#ZERO} - без ограничения
+     */
+    public SegmentedLruProductCache(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    SegmentedLruProductCache(int maximumSize, Duration ttl, LongSupplier nanoTime) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным");
+        }
+        int partCount = Integer.highestOneBit(
+                Math.max(1, Math.min(MAX_PARTS, maximumSize / MIN_PART_CAPACITY)));
+        this.parts = new Part[partCount];
+        for (int i = 0; i < partCount; i++) {
+            parts[i] = new Part(maximumSize / partCount);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public Product get(String name, Function<String, Product> loader) {
+        Part part = partFor(name);
+        long invalidations;
+        part.lock.lock();
+        try {
+            Product cached = part.get(name, nanoTime.getAsLong());
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            invalidations = part.invalidations;
+        } finally {
+            part.lock.unlock();
+        }
+        misses.increment();
+
+        Product loaded = loader.apply(name);
+        if (loaded != null) {
+            part.lock.lock();
+            try {
+                if (part.invalidations == invalidations) {
+                    part.put(name, loaded, nanoTime.getAsLong());
+                }
+            } finally {
+                part.lock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void invalidate(String name) {
+        Part part = partFor(name);
+        part.lock.lock();
+        try {
+            part.invalidations++;
+            part.probation.remove(name);
+            part.protectedEntries.remove(name);
+        } finally {
+            part.lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (Part part : parts) {
+            part.lock.lock();
+            try {
+                part.invalidations++;
+                part.probation.clear();
+                part.protectedEntries.clear();
+            } finally {
+                part.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Part part : parts) {
+            part.lock.lock();
+            try {
+                size += part.probation.size() + part.protectedEntries.size();
+            } finally {
+                part.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Part partFor(String name) {
+        int hash = name.hashCode();
+        return parts[(hash ^ (hash >>> 16)) & (parts.length - 1)];
+    }
+
+    /**
+     * Товар в кеше
+     */
+    private static final class CachedProduct {
+        private final Product product;
+        private final long loadedAt;
+
+        private CachedProduct(Product product, long loadedAt) {
+            this.product = product;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Независимая часть кеша. Порядок вставки в {@link LinkedHashMap} - порядок давности обращения,
+     * первый элемент - самый давно использованный.
+     */
+    private final class Part {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, CachedProduct> probation = new LinkedHashMap<>();
+        private final LinkedHashMap<String, CachedProduct> protectedEntries = new LinkedHashMap<>();
+        private final int capacity;
+        private final int protectedCapacity;
+        /**
+         * Счётчик инвалидаций, по нему загрузка узнаёт, что её результат мог устареть
+         */
+        private long invalidations;
+
+        private Part(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.protectedCapacity = this.capacity * PROTECTED_PERCENT / 100;
+        }
+
+        private Product get(String name, long now) {
+            CachedProduct entry = protectedEntries.get(name);
+            if (entry != null) {
+                if (isExpired(entry, now)) {
+                    protectedEntries.remove(name);
+                    evictions.increment();
+                    return null;
+                }
+                protectedEntries.remove(name);
+                protectedEntries.put(name, entry);
+                return entry.product;
+            }
+            entry = probation.remove(name);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry, now)) {
+                evictions.increment();
+                return null;
+            }
+            promote(name, entry);
+            return entry.product;
+        }
+
+        private void put(String name, Product product, long now) {
+            if (protectedEntries.containsKey(name)) {
+                protectedEntries.put(name, new CachedProduct(product, now));
+                return;
+            }
+            probation.remove(name);
+            probation.put(name, new CachedProduct(product, now));
+            while (probation.size() + protectedEntries.size() > capacity) {
+                LinkedHashMap<String, CachedProduct> victims = probation.isEmpty() ? protectedEntries : probation;
+                Iterator<String> eldest = victims.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        /**
+         * Перенести товар в защищённый сегмент, вытеснив из него давно используемый товар
+         * обратно в испытательный
+         */
+        private void promote(String name, CachedProduct entry) {
+            if (protectedCapacity == 0) {
+                probation.put(name, entry);
+                return;
+            }
+            protectedEntries.put(name, entry);
+            if (protectedEntries.size() > protectedCapacity) {
+                Iterator<Map.Entry<String, CachedProduct>> eldest = protectedEntries.entrySet().iterator();
+                Map.Entry<String, CachedProduct> demoted = eldest.next();
+                eldest.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+
+        private boolean isExpired(CachedProduct entry, long now) {
+            return ttlNanos > 0 && now - entry.loadedAt >= ttlNanos;
+        }
+    }
+}
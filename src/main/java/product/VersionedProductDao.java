@@ -0,0 +1,460 @@
+package product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранение товаров в памяти в виде неизменяемых версий каталога.
+ * <p>Версия каталога состоит из двух неизменяемых структур: префиксного дерева по хешу имени
+ * (hash array mapped trie) для поиска по имени за O(1) и сбалансированного (AVL) дерева по имени
+ * для обхода по порядку. Читатель получает текущую версию одним чтением volatile-поля и дальше работает
+ * с ней без блокировок: пока он читает, версия не меняется, сколько бы сохранений ни произошло.</p>
+ * Сохранение публикует новую версию: в обеих структурах копируются только узлы на пути
+ * от корня к изменённым товарам, остальные узлы общие с предыдущей версией.
+ * {@link #saveAll(Collection)} публикует одну версию на весь пакет, т.е. одну на покупку.
+ * Сохранения выполняются под одной блокировкой; читателей она не блокирует.
+ * <p>Товары версии показывают количество на момент её публикации ({@link Product#getCount()}),
+ * а актуальное количество ({@link Product#getLiveCount()}) и его изменение (покупка, резерв) берут
+ * у товара, хранящего актуальное количество - объекта, сохранённого в DAO.
+ * Поэтому покупка через товар любой версии не продаст больше, чем есть, проверка наличия не опирается
+ * на устаревшее количество, а результат покупки появится в каталоге после сохранения.</p>
+ *
+ * @since 18.10.2026
+ */
+public class VersionedProductDao extends ProductDao {
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot current = new Snapshot(0, HashNode.EMPTY, null, 0);
+    private final ProductDictionary dictionary;
+
+    /**
+     * DAO товаров, пронумерованных в общем словаре {@link ProductDictionary#global()}
+     */
+    public VersionedProductDao() {
+        this(ProductDictionary.global());
+    }
+
+    /**
+     * @param dictionary словарь, в котором нумеруются сохраняемые товары
+     */
+    public VersionedProductDao(ProductDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public ProductDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Текущая версия каталога
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Все товары текущей версии в порядке возрастания имени (неизменяемый список)
+     */
+    @Override
+    public List<Product> getAll() {
+        return current.getAll();
+    }
+
+    @Override
+    public List<Product> getPage(String afterName, int limit) {
+        return current.getPage(afterName, limit);
+    }
+
+    @Override
+    public Product getByName(String name) {
+        return current.getByName(name);
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return current.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public void save(Product product) {
+        saveAll(List.of(product));
+    }
+
+    /**
+     * Сохранить товары и опубликовать одну новую версию.
+     * Если количество и состав товаров не изменились, версия не публикуется.
+     * @throws IllegalArgumentException - если товар пронумерован в другом словаре, версия тогда не публикуется
+     */
+    @Override
+    public void saveAll(Collection<Product> products) {
+        for (Product product : products) {
+            if (product.getDictionary() != dictionary) {
+                throw new IllegalArgumentException(
+                        "Товар '%s' пронумерован в другом словаре".formatted(product.getName()));
+            }
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            HashNode index = snapshot.index;
+            Node root = snapshot.root;
+            int size = snapshot.size;
+            for (Product product : products) {
+                Product stock = product instanceof VersionedProduct versioned
+                        ? versioned.stock
+                        : product;
+                int count = stock.getCount();
+                int hash = hash(stock.getName());
+                VersionedProduct existing = index.find(stock.getName(), hash);
+                if (existing != null && existing.stock == stock && existing.getCount() == count) {
+                    continue;
+                }
+                if (existing == null) {
+                    size++;
+                }
+                VersionedProduct versioned = new VersionedProduct(stock, count);
+                index = index.put(versioned, hash, 0);
+                root = put(root, versioned);
+            }
+            if (root != snapshot.root) {
+                current = new Snapshot(snapshot.version + 1, index, root, size);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static int hash(String name) {
+        int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Новое дерево с товаром, узлы вне пути к товару переиспользуются
+     */
+    private static Node put(Node node, VersionedProduct product) {
+        if (node == null) {
+            return new Node(product, null, null);
+        }
+        int cmp = product.getName().compareTo(node.name());
+        if (cmp == 0) {
+            return new Node(product, node.left, node.right);
+        }
+        return cmp < 0
+                ? balance(node.product, put(node.left, product), node.right)
+                : balance(node.product, node.left, put(node.right, product));
+    }
+
+    private static Node balance(VersionedProduct product, Node left, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.product, left.left, left.right);
+            }
+            return rotateRight(product, left, right);
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.product, right.left, right.right);
+            }
+            return rotateLeft(product, left, right);
+        }
+        return new Node(product, left, right);
+    }
+
+    private static Node rotateRight(VersionedProduct product, Node left, Node right) {
+        return new Node(left.product, left.left, new Node(product, left.right, right));
+    }
+
+    private static Node rotateLeft(VersionedProduct product, Node left, Node right) {
+        return new Node(right.product, new Node(product, left, right.left), right.right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Обойти товары дерева по возрастанию имени, начиная с {@code from}
+     * @param from      первое имя, null - с начала
+     * @param inclusive включать ли товар с именем {@code from}
+     * @param prefix    обход останавливается на первом имени без этого начала, null - без условия
+     * @return false - если обход нужно прекратить
+     */
+    private static boolean collect(Node node, String from, boolean inclusive, String prefix, int limit,
+                                   List<Product> result) {
+        if (node == null) {
+            return true;
+        }
+        int cmp = from == null ? 1 : node.name().compareTo(from);
+        if (cmp > 0 || cmp == 0 && inclusive) {
+            if (!collect(node.left, from, inclusive, prefix, limit, result)) {
+                return false;
+            }
+            if (prefix != null && !node.name().startsWith(prefix)) {
+                return false;
+            }
+            result.add(node.product);
+            if (result.size() >= limit) {
+                return false;
+            }
+        }
+        return collect(node.right, from, inclusive, prefix, limit, result);
+    }
+
+    /**
+     * Неизменяемая версия каталога
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final HashNode index;
+        private final Node root;
+        private final int size;
+        /**
+         * Все товары версии, строится при первом обращении
+         */
+        private volatile List<Product> all;
+
+        private Snapshot(long version, HashNode index, Node root, int size) {
+            this.version = version;
+            this.index = index;
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * Номер версии, увеличивается с каждой публикацией
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Количество товаров
+         */
+        public int size() {
+            return size;
+        }
+
+        public Product getByName(String name) {
+            return index.find(name, hash(name));
+        }
+
+        /**
+         * Все товары в порядке возрастания имени (неизменяемый список, один на версию)
+         */
+        public List<Product> getAll() {
+            List<Product> products = all;
+            if (products == null) {
+                products = new ArrayList<>(size);
+                collect(root, null, false, null, Integer.MAX_VALUE, products);
+                products = Collections.unmodifiableList(products);
+                all = products;
+            }
+            return products;
+        }
+
+        public List<Product> getPage(String afterName, int limit) {
+            if (limit <= 0) {
+                return List.of();
+            }
+            List<Product> page = new ArrayList<>(Math.min(limit, 64));
+            collect(root, afterName, false, null, limit, page);
+            return page;
+        }
+
+        public List<Product> findByNamePrefix(String prefix, int limit) {
+            if (limit <= 0) {
+                return List.of();
+            }
+            List<Product> result = new ArrayList<>(Math.min(limit, 16));
+            collect(root, prefix, true, prefix, limit, result);
+            return result;
+        }
+    }
+
+    /**
+     * Узел неизменяемого префиксного дерева по хешу имени.<br>
+     * Каждый уровень разбирает 5 бит хеша; в ячейке лежит товар, дочерний узел
+     * или массив товаров с полностью совпадающим хешем. Хранятся только занятые ячейки,
+     * номер ячейки - количество единиц в {@code bitmap} перед её битом.
+     */
+    private static final class HashNode {
+        private static final HashNode EMPTY = new HashNode(0, new Object[0]);
+        private static final int BITS = 5;
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private HashNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private VersionedProduct find(String name, int hash) {
+            HashNode node = this;
+            for (int shift = 0; ; shift += BITS) {
+                int bit = 1 << ((hash >>> shift) & 31);
+                if ((node.bitmap & bit) == 0) {
+                    return null;
+                }
+                Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+                if (slot instanceof HashNode child) {
+                    node = child;
+                } else if (slot instanceof VersionedProduct product) {
+                    return product.getName().equals(name) ? product : null;
+                } else {
+                    for (VersionedProduct product : (VersionedProduct[]) slot) {
+                        if (product.getName().equals(name)) {
+                            return product;
+                        }
+                    }
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Новый узел с товаром, текущий узел не меняется
+         */
+        private HashNode put(VersionedProduct product, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] inserted = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, inserted, 0, position);
+                inserted[position] = product;
+                System.arraycopy(slots, position, inserted, position + 1, slots.length - position);
+                return new HashNode(bitmap | bit, inserted);
+            }
+            Object slot = slots[position];
+            Object replacement;
+            if (slot instanceof HashNode child) {
+                replacement = child.put(product, hash, shift + BITS);
+            } else if (slot instanceof VersionedProduct existing) {
+                replacement = existing.getName().equals(product.getName())
+                        ? product
+                        : merge(existing, hash(existing.getName()), product, hash, shift + BITS);
+            } else {
+                replacement = putCollision((VersionedProduct[]) slot, product);
+            }
+            Object[] replaced = slots.clone();
+            replaced[position] = replacement;
+            return new HashNode(bitmap, replaced);
+        }
+
+        private static Object merge(VersionedProduct first, int firstHash,
+                                    VersionedProduct second, int secondHash, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new VersionedProduct[]{first, second};
+            }
+            int firstIndex = (firstHash >>> shift) & 31;
+            int secondIndex = (secondHash >>> shift) & 31;
+            if (firstIndex == secondIndex) {
+                return new HashNode(1 << firstIndex,
+                        new Object[]{merge(first, firstHash, second, secondHash, shift + BITS)});
+            }
+            return new HashNode((1 << firstIndex) | (1 << secondIndex), firstIndex < secondIndex
+                    ? new Object[]{first, second}
+                    : new Object[]{second, first});
+        }
+
+        private static VersionedProduct[] putCollision(VersionedProduct[] products, VersionedProduct product) {
+            for (int i = 0; i < products.length; i++) {
+                if (products[i].getName().equals(product.getName())) {
+                    VersionedProduct[] replaced = products.clone();
+                    replaced[i] = product;
+                    return replaced;
+                }
+            }
+            VersionedProduct[] appended = Arrays.copyOf(products, products.length + 1);
+            appended[products.length] = product;
+            return appended;
+        }
+    }
+
+    /**
+     * Узел неизменяемого дерева
+     */
+    private static final class Node {
+        private final VersionedProduct product;
+        private final Node left;
+        private final Node right;
+        private final int height;
+
+        private Node(VersionedProduct product, Node left, Node right) {
+            this.product = product;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+
+        private String name() {
+            return product.getName();
+        }
+    }
+
+    /**
+     * Товар версии каталога: количество на момент публикации версии,
+     * актуальное количество и его изменения - у товара, хранящего актуальное количество
+     */
+    private static final class VersionedProduct extends Product {
+        private final Product stock;
+
+        private VersionedProduct(Product stock, int count) {
+            super(stock.getName(), count, stock.getDictionary());
+            this.stock = stock;
+        }
+
+        @Override
+        public int getLiveCount() {
+            return stock.getCount();
+        }
+
+        @Override
+        public void addCount(int count) {
+            stock.addCount(count);
+        }
+
+        @Override
+        public boolean trySubtractCount(int count) {
+            return stock.trySubtractCount(count);
+        }
+
+        @Override
+        public int getOnHandCount() {
+            return stock.getOnHandCount();
+        }
+
+        @Override
+        public int getReserved() {
+            return stock.getReserved();
+        }
+
+        @Override
+        public boolean tryReserve(int count) {
+            return stock.tryReserve(count);
+        }
+
+        @Override
+        public void sellReserved(int count) {
+            stock.sellReserved(count);
+        }
+
+        @Override
+        public void unsellReserved(int count) {
+            stock.unsellReserved(count);
+        }
+
+        @Override
+        public void releaseReserved(int count) {
+            stock.releaseReserved(count);
+        }
+    }
+}
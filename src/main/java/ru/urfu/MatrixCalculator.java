@@ -0,0 +1,225 @@
+package ru.urfu;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Заполнение матрицы по формуле из {@link MatrixInitializer} и сумма её элементов
+ * для матриц любого размера: последовательно, параллельно, построчно и в файл.
+ * <p>Элемент зависит от верхнего соседа и левого соседа в той же строке.
+ * Задание в {@link MatrixInitializer} остаётся без изменений - его выполняют в отладчике,
+ * а этот класс используется для замеров ({@code MatrixCalculatorBenchmark}).</p>
+ *
+ * @since 18.10.2026
+ */
+public class MatrixCalculator {
+    /**
+     * Максимальный размер одного отображения файла в память при {@link #calculateToFile(Path)}
+     */
+    private static final long MAPPED_WINDOW_BYTES = 64L * 1024 * 1024;
+    /**
+     * Максимальное количество блоков при {@link #calculateParallel(int)}: суммы блоков хранятся в одном массиве
+     */
+    private static final long MAX_TILES = Integer.MAX_VALUE - 8;
+    private final int size;
+
+    /**
+     * @param size размер стороны матрицы
+     */
+    public MatrixCalculator(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Размер матрицы должен быть положительным");
+        }
+        this.size = size;
+    }
+
+    /**
+     * Заполнить матрицу и посчитать сумму её элементов
+     * @return сумма элементов матрицы
+     */
+    public long calculate() {
+        long sum = 0;
+        long[][] matrix = new long[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                long value = getValue(matrix, i, j);
+                matrix[i][j] = value;
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Заполнить матрицу параллельно и посчитать сумму её элементов.
+     * <p>Матрица делится на квадратные блоки {@code tileSize x tileSize}. Элемент зависит только
+     * от верхнего и левого соседей, поэтому блок можно считать, когда посчитаны блоки сверху и слева,
+     * а все блоки одной антидиагонали независимы. Антидиагонали обрабатываются по очереди,
+     * блоки внутри антидиагонали - параллельно в {@link ForkJoinPool#commonPool()}.</p>
+     * Каждый блок считает свою сумму, суммы складываются в конце. Сложение {@code long}
+     * с переполнением ассоциативно и коммутативно, поэтому результат совпадает с {@link #calculate()} до бита.
+     * @param tileSize размер стороны блока, больше размера матрицы - один блок
+     * @return сумма элементов матрицы
+     * @throws IllegalArgumentException - если размер блока не положителен или блоков больше {@value #MAX_TILES}
+     */
+    public long calculateParallel(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        int tiles = (int) ((size + (long) tileSize - 1) / tileSize);
+        long tileCount = (long) tiles * tiles;
+        if (tileCount > MAX_TILES) {
+            throw new IllegalArgumentException("Слишком много блоков: " + tileCount + ", увеличьте размер блока");
+        }
+        long[][] matrix = new long[size][size];
+        long[] tileSums = new long[(int) tileCount];
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                for (int diagonal = 0; diagonal < 2 * tiles - 1; diagonal++) {
+                    List<Tile> wave = new ArrayList<>();
+                    for (int tileRow = Math.max(0, diagonal - tiles + 1);
+                         tileRow <= Math.min(diagonal, tiles - 1); tileRow++) {
+                        wave.add(new Tile(matrix, tileSums, tileRow, diagonal - tileRow, tileSize, tiles));
+                    }
+                    invokeAll(wave);
+                }
+            }
+        });
+        long sum = 0;
+        for (long tileSum : tileSums) {
+            sum += tileSum;
+        }
+        return sum;
+    }
+
+    /**
+     * Посчитать сумму элементов матрицы, не храня её целиком.<br>
+     * Элемент зависит только от верхнего и левого соседей, поэтому достаточно одной строки:
+     * перед вычислением элемента {@code j} в ней лежит верхний сосед, а левее - уже новая строка.
+     * Память - O(size), результат совпадает с {@link #calculate()}.
+     * @return сумма элементов матрицы
+     */
+    public long calculateStreaming() {
+        long[] row = new long[size];
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += nextRow(row, i);
+        }
+        return sum;
+    }
+
+    /**
+     * Заполнить матрицу в файле и посчитать сумму её элементов.<br>
+     * Матрица записывается по строкам, элементы - {@code long} в порядке байтов little-endian,
+     * т.е. элемент [i][j] лежит по смещению {@code (i * size + j) * 8}.
+     * Файл отображается в память частями, поэтому матрица может быть больше кучи,
+     * а в куче хранится одна строка.
+     * @param file файл матрицы, существующий файл перезаписывается
+     * @return сумма элементов матрицы
+     */
+    public long calculateToFile(Path file) throws IOException {
+        long rowBytes = (long) size * Long.BYTES;
+        int rowsPerWindow = (int) Math.max(1, Math.min(size, MAPPED_WINDOW_BYTES / rowBytes));
+        long[] row = new long[size];
+        long sum = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int firstRow = 0; firstRow < size; firstRow += rowsPerWindow) {
+                int rows = Math.min(rowsPerWindow, size - firstRow);
+                LongBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, firstRow * rowBytes, rows * rowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asLongBuffer();
+                for (int i = firstRow; i < firstRow + rows; i++) {
+                    sum += nextRow(row, i);
+                    window.put(row);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Заменить строку {@code i - 1} в {@code row} строкой {@code i}
+     * @return сумма элементов строки
+     */
+    private static long nextRow(long[] row, int i) {
+        long rowSum = 0;
+        for (int j = 0; j < row.length; j++) {
+            long up = i > 0
+                    ? row[j]
+                    : 0L;
+            long left = j > 0
+                    ? row[j - 1]
+                    : 1L;
+            long value = getValue(up, left, i, j);
+            row[j] = value;
+            rowSum += value;
+        }
+        return rowSum;
+    }
+
+    private static long getValue(long[][] matrix, int i, int j) {
+        long up = i > 0
+                ? matrix[i - 1][j]
+                : 0L;
+        long left = j > 0
+                ? matrix[i][j - 1]
+                : 1L;
+        return getValue(up, left, i, j);
+    }
+
+    private static long getValue(long up, long left, int i, int j) {
+        return ((left - up + i) * (j / 10 + 1)) / 8;
+    }
+
+    /**
+     * Заполнение одного блока матрицы, блоки сверху и слева уже заполнены
+     */
+    private static final class Tile extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[][] matrix;
+        private final long[] tileSums;
+        private final int tileRow;
+        private final int tileColumn;
+        private final int tileSize;
+        private final int tiles;
+
+        private Tile(long[][] matrix, long[] tileSums, int tileRow, int tileColumn, int tileSize, int tiles) {
+            this.matrix = matrix;
+            this.tileSums = tileSums;
+            this.tileRow = tileRow;
+            this.tileColumn = tileColumn;
+            this.tileSize = tileSize;
+            this.tiles = tiles;
+        }
+
+        @Override
+        protected void compute() {
+            int size = matrix.length;
+            // в long: у последнего блока конец может выйти за Integer.MAX_VALUE
+            int rowEnd = (int) Math.min(size, (tileRow + 1L) * tileSize);
+            int columnEnd = (int) Math.min(size, (tileColumn + 1L) * tileSize);
+            long tileSum = 0;
+            for (int i = tileRow * tileSize; i < rowEnd; i++) {
+                for (int j = tileColumn * tileSize; j < columnEnd; j++) {
+                    long value = getValue(matrix, i, j);
+                    matrix[i][j] = value;
+                    tileSum += value;
+                }
+            }
+            tileSums[(int) ((long) tileRow * tiles + tileColumn)] = tileSum;
+        }
+    }
+}
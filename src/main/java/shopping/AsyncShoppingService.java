@@ -0,0 +1,32 @@
+package shopping;
+
+import product.Product;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный сервис покупок
+ *
+ * @since 18.10.2026
+ */
+public interface AsyncShoppingService {
+
+    /**
+     * Получить все товары
+     */
+    CompletableFuture<List<Product>> getAllProductsAsync();
+
+    /**
+     * Найти товар по имени (полное совпадение)
+     */
+    CompletableFuture<Product> getProductByNameAsync(String name);
+
+    /**
+     * Совершить покупку, см. {@link ShoppingService#buy(Cart)}.<br>
+     * Корзину нельзя изменять, пока покупка не завершена.
+     * @return true - если покупка удалась, false - если что-то пошло не так.
+     * При ошибке покупки завершается с {@link BuyException}
+     */
+    CompletableFuture<Boolean> buyAsync(Cart cart);
+}
@@ -0,0 +1,109 @@
+package shopping;
+
+import product.Product;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация {@link AsyncShoppingService} на виртуальных потоках.
+ * <p>Каждая операция выполняется в своём виртуальном потоке, поэтому десятки тысяч одновременных
+ * покупок не занимают платформенные потоки, пока ждут БД.</p>
+ * <p>Покупка выполняется под блокировками товаров корзины. Блокировки разбиты на полосы
+ * по хешу товара: корзины без общих товаров (и общих полос) покупаются параллельно.
+ * Полосы захватываются строго по возрастанию номера, поэтому пересекающиеся корзины
+ * не могут заблокировать друг друга. Используются {@link ReentrantLock}, а не synchronized,
+ * чтобы ожидание блокировки не занимало платформенный поток.</p>
+ *
+ * @since 18.10.2026
+ */
+public class AsyncShoppingServiceImpl implements AsyncShoppingService, AutoCloseable {
+
+    private final ShoppingService shoppingService;
+    private final ReentrantLock[] stripes;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param shoppingService синхронный сервис, выполняющий операции
+     * @param lockStripes     количество полос блокировок, округляется вверх до степени двойки
+     */
+    public AsyncShoppingServiceImpl(ShoppingService shoppingService, int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("Количество полос блокировок должно быть положительным");
+        }
+        this.shoppingService = shoppingService;
+        int stripeCount = 1;
+        while (stripeCount < lockStripes) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> getAllProductsAsync() {
+        return CompletableFuture.supplyAsync(shoppingService::getAllProducts, executor);
+    }
+
+    @Override
+    public CompletableFuture<Product> getProductByNameAsync(String name) {
+        return CompletableFuture.supplyAsync(() -> shoppingService.getProductByName(name), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> buyAsync(Cart cart) {
+        return CompletableFuture.supplyAsync(() -> buyLocked(cart), executor);
+    }
+
+    /**
+     * Дождаться завершения начатых операций и остановить исполнитель
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private boolean buyLocked(Cart cart) {
+        int[] stripeIndexes = stripeIndexes(cart);
+        int locked = 0;
+        try {
+            for (int index : stripeIndexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return shoppingService.buy(cart);
+        } catch (BuyException e) {
+            throw new CompletionException(e);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Номера полос блокировок товаров корзины, без повторов, по возрастанию
+     */
+    private int[] stripeIndexes(Cart cart) {
+        int[] indexes = new int[cart.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            int hash = cart.productAt(i).hashCode();
+            indexes[i] = (hash ^ (hash >>> 16)) & (stripes.length - 1);
+        }
+        Arrays.sort(indexes);
+        int unique = 0;
+        for (int j = 0; j < indexes.length; j++) {
+            if (j == 0 || indexes[j] != indexes[j - 1]) {
+                indexes[unique++] = indexes[j];
+            }
+        }
+        return Arrays.copyOf(indexes, unique);
+    }
+}
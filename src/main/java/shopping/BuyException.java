@@ -1,12 +1,59 @@
 package shopping;
 
+import product.Product;
+
 /**
  * Ошибка покупки
  * @author vpyzhyanov
  * @since 16.05.2023
  */
 public class BuyException extends Exception {
+    /**
+     * Товар, которого не хватило, null - если ошибка не связана с наличием
+     */
+    private final transient Product product;
+    private final int requested;
+    private final int available;
+
     public BuyException(String message) {
         super(message);
+        this.product = null;
+        this.requested = 0;
+        this.available = 0;
+    }
+
+    /**
+     * Нехватка товара.<br>
+     * Отказ в покупке - обычная ситуация при распродаже, поэтому исключение не заполняет стек вызовов,
+     * а сообщение формируется только при обращении к нему.
+     * @param requested количество товара в корзине
+     * @param available количество товара в наличии на момент отказа
+     */
+    public BuyException(Product product, int requested, int available) {
+        super(null, null, false, false);
+        this.product = product;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    @Override
+    public String getMessage() {
+        return product == null
+                ? super.getMessage()
+                : "В наличии нет необходимого количества товара '%s'".formatted(product.getName());
+    }
+
+    /**
+     * Товар, которого не хватило, null - если ошибка не связана с наличием
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Сколько товара не хватило
+     */
+    public int getShortfall() {
+        return requested - available;
     }
 }
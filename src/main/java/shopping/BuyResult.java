@@ -0,0 +1,122 @@
+package shopping;
+
+import product.Product;
+
+/**
+ * Итог покупки без исключения, см. {@link ShoppingService#tryBuy(Cart)}.
+ * <p>Итоги без подробностей ({@link #BOUGHT}, {@link #EMPTY_CART}, {@link #OVERLOADED}) создаются один раз,
+ * а итог нехватки товара - небольшой объект без сообщения и стека вызовов,
+ * поэтому отказ в покупке стоит столько же, сколько удачная покупка.</p>
+ *
+ * @since 18.10.2026
+ */
+public final class BuyResult {
+    /**
+     * Покупка выполнена
+     */
+    public static final BuyResult BOUGHT = new BuyResult(Status.BOUGHT, null, 0, 0);
+    /**
+     * Корзина пуста, покупать нечего
+     */
+    public static final BuyResult EMPTY_CART = new BuyResult(Status.EMPTY_CART, null, 0, 0);
+    /**
+     * Покупка не принята: слишком много одновременных покупок распродаваемого товара, см. {@link FlashSale}
+     */
+    public static final BuyResult OVERLOADED = new BuyResult(Status.OVERLOADED, null, 0, 0);
+
+    private final Status status;
+    private final Product product;
+    private final int requested;
+    private final int available;
+
+    private BuyResult(Status status, Product product, int requested, int available) {
+        this.status = status;
+        this.product = product;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    /**
+     * Товара не хватило
+     * @param requested количество товара в корзине
+     * @param available количество товара в наличии на момент отказа
+     */
+    static BuyResult insufficientStock(Product product, int requested, int available) {
+        return new BuyResult(Status.INSUFFICIENT_STOCK, product, requested, available);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * true - если покупка выполнена
+     */
+    public boolean isBought() {
+        return status == Status.BOUGHT;
+    }
+
+    /**
+     * Товар, которого не хватило, null - для других итогов
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Количество товара в корзине
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    /**
+     * Количество товара в наличии на момент отказа
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Сколько товара не хватило
+     */
+    public int getShortfall() {
+        return requested - available;
+    }
+
+    /**
+     * Исключение для вызывающих, которые ждут {@link BuyException}
+     */
+    BuyException toException() {
+        return new BuyException(product, requested, available);
+    }
+
+    @Override
+    public String toString() {
+        return status == Status.INSUFFICIENT_STOCK
+                ? status + " " + product.getName() + ": " + requested + " > " + available
+                : status.toString();
+    }
+
+    /**
+     * Вид итога
+     */
+    public enum Status {
+        /**
+         * Покупка выполнена
+         */
+        BOUGHT,
+        /**
+         * Корзина пуста
+         */
+        EMPTY_CART,
+        /**
+         * Какого-то товара нет в необходимом количестве
+         */
+        INSUFFICIENT_STOCK,
+        /**
+         * Покупка отклонена без попытки: очередь покупок распродаваемого товара заполнена, её можно повторить
+         */
+        OVERLOADED
+    }
+}
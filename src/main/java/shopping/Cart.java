@@ -3,7 +3,9 @@ package shopping;
 import customer.Customer;
 import product.Product;
 
-import java.util.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Корзина
@@ -17,9 +19,22 @@ public class Cart {
      */
     private final Customer customer;
     /**
-     * Товар -> выбранное количество
+     * Товар -> выбранное количество, в порядке добавления
      */
-    private final Map<Product, Integer> products = new LinkedHashMap<>();
+    private final ProductCountMap products = new ProductCountMap();
+    /**
+     * Резервы товаров, null - товары при добавлении не откладываются
+     */
+    private StockReservations reservations;
+    /**
+     * Товар -> резерв его строки
+     */
+    private Map<Product, StockReservations.Reservation> held;
+    /**
+     * Запись хранилища, в котором хранится корзина, null - корзина не хранится между запросами.
+     * Изменения выполняются под её блокировкой, чтобы не пересекаться с вытеснением корзины в файл
+     */
+    private CartStore.Entry storeEntry;
 
     // пакетный доступ сделан специально, т.к. корзиной должен управлять только этот пакет
     Cart(Customer customer) {
@@ -30,44 +45,241 @@ public class Cart {
      * Все товары в корзине
      */
     public Map<Product, Integer> getProducts() {
-        return Collections.unmodifiableMap(products);
+        return products.asMap();
+    }
+
+    /**
+     * Количество строк (разных товаров) в корзине.<br>
+     * Вместе с {@link #productAt(int)} и {@link #countAt(int)} позволяет обойти корзину
+     * без выделения памяти, в отличие от {@link #getProducts()}.
+     */
+    int size() {
+        return products.size();
+    }
+
+    /**
+     * Товар строки корзины с номером {@code index} (в порядке добавления)
+     */
+    Product productAt(int index) {
+        return products.productAt(index);
+    }
+
+    /**
+     * Выбранное количество товара в строке корзины с номером {@code index}
+     */
+    int countAt(int index) {
+        return products.countAt(index);
+    }
+
+    /**
+     * Товары корзины в порядке добавления (неизменяемое представление)
+     */
+    List<Product> productList() {
+        return products.products();
     }
 
     /**
      * Добавить товар в корзину
      */
     public void add(Product product, int count) throws IllegalArgumentException {
-        validateCount(product, count);
-        products.put(product, count);
+        lockForChange();
+        try {
+            products.checkDictionary(product);
+            validateCount(product, count);
+            reserve(product, count);
+            products.put(product, count);
+        } finally {
+            unlockAfterChange();
+        }
     }
 
     /**
      * Изменить количество товара в корзине
      */
     public void edit(Product product, int count) throws IllegalArgumentException {
-        if (products.containsKey(product)) {
-            validateCount(product, count);
-            products.put(product, count);
+        lockForChange();
+        try {
+            if (products.indexOf(product) >= 0) {
+                validateCount(product, count);
+                reserve(product, count);
+                products.put(product, count);
+            }
+        } finally {
+            unlockAfterChange();
         }
     }
 
     /**
-     * Проверить допустимо ли добавить такое количество товара в корзину
+     * Проверить допустимо ли добавить такое количество товара в корзину.
+     * Товар, уже отложенный этой строкой, вычтен из наличия, но доступен ей
      * @throws IllegalArgumentException - если недопустимо
      */
-    private static void validateCount(Product product, int count)
+    private void validateCount(Product product, int count)
             throws IllegalArgumentException {
-        if (product.getCount() - count <= 0) {
-            throw new IllegalArgumentException(
-                    "Невозможно добавить товар '%s' в корзину, т.к. нет необходимого количества товаров"
-                            .formatted(product.getName()));
+        if (product.getLiveCount() + heldCount(product) - count <= 0) {
+            throw notEnough(product);
+        }
+    }
+
+    /**
+     * Количество товара, отложенное строкой корзины
+     */
+    private int heldCount(Product product) {
+        if (reservations == null) {
+            return 0;
+        }
+        StockReservations.Reservation reservation = held.get(product);
+        return reservation != null && reservation.isActive() ? reservation.getCount() : 0;
+    }
+
+    private static IllegalArgumentException notEnough(Product product) {
+        return new IllegalArgumentException(
+                "Невозможно добавить товар '%s' в корзину, т.к. нет необходимого количества товаров"
+                        .formatted(product.getName()));
+    }
+
+    /**
+     * Отложить товар строки вместо прежнего резерва, если корзина откладывает товары
+     * @throws IllegalArgumentException - если товара недостаточно, прежний резерв тогда сохраняется
+     */
+    private void reserve(Product product, int count) throws IllegalArgumentException {
+        if (reservations == null) {
+            return;
+        }
+        StockReservations.Reservation previous = held.get(product);
+        StockReservations.Reservation reservation = previous != null
+                ? reservations.change(previous, count)
+                : reservations.reserve(product, count);
+        if (reservation == null) {
+            throw notEnough(product);
+        }
+        held.put(product, reservation);
+    }
+
+    private void releaseReservation(Product product) {
+        if (reservations == null) {
+            return;
+        }
+        StockReservations.Reservation previous = held.remove(product);
+        if (previous != null) {
+            reservations.release(previous);
+        }
+    }
+
+    /**
+     * Откладывать товары при добавлении в корзину.
+     * Строки, добавленные раньше, не откладываются, их наличие проверит покупка
+     */
+    void useReservations(StockReservations reservations) {
+        if (this.reservations == null && reservations != null) {
+            this.reservations = reservations;
+            this.held = new HashMap<>();
         }
     }
 
+    /**
+     * Резервы строк корзины, null - корзина не откладывает товары
+     */
+    StockReservations reservations() {
+        return reservations;
+    }
+
+    /**
+     * Товар -> резерв его строки, null - корзина не откладывает товары
+     */
+    Map<Product, StockReservations.Reservation> heldReservations() {
+        return held;
+    }
+
+    /**
+     * Передать корзине резервы объекта этой же корзины, который больше не используется,
+     * например, при чтении вытесненной корзины из файла: иначе товар останется отложенным без корзины,
+     * а покупка вычтет его из наличия ещё раз
+     */
+    void restoreReservations(StockReservations reservations, Map<Product, StockReservations.Reservation> held) {
+        if (reservations != null) {
+            this.reservations = reservations;
+            this.held = held;
+        }
+    }
+
+    /**
+     * Продать отложенный товар строки с номером {@code index}
+     * @return false - если товар строки не отложен или срок резерва истёк, его нужно вычитать из наличия
+     */
+    boolean sellReserved(int index) {
+        if (reservations == null) {
+            return false;
+        }
+        StockReservations.Reservation reservation = held.get(products.productAt(index));
+        return reservation != null && reservations.sell(reservation);
+    }
+
+    /**
+     * Отменить продажу резерва строки с номером {@code index}, если покупка не состоялась
+     * @return false - если товар строки не был продан из резерва, его нужно вернуть в наличие
+     */
+    boolean unsellReserved(int index) {
+        if (reservations == null) {
+            return false;
+        }
+        StockReservations.Reservation reservation = held.get(products.productAt(index));
+        return reservation != null && reservations.unsell(reservation);
+    }
+
+    /**
+     * Забыть резервы после покупки: они проданы
+     */
+    void clearReservations() {
+        if (held != null) {
+            held.clear();
+        }
+    }
+
+    /**
+     * Восстановить строку корзины без проверки наличия, например, при чтении сохранённой корзины:
+     * наличие могло измениться, но выбор покупателя терять нельзя, его проверит покупка
+     */
+    void restore(Product product, int count) {
+        products.put(product, count);
+    }
+
+    /**
+     * Покупатель, которому принадлежит корзина
+     */
+    Customer getCustomer() {
+        return customer;
+    }
+
     /**
      * Удалить товар из корзины
      */
     public void remove(Product product) {
-        products.remove(product);
+        lockForChange();
+        try {
+            releaseReservation(product);
+            products.remove(product);
+        } finally {
+            unlockAfterChange();
+        }
+    }
+
+    /**
+     * Корзина хранится в {@link CartStore}
+     */
+    void storeIn(CartStore.Entry entry) {
+        this.storeEntry = entry;
+    }
+
+    private void lockForChange() {
+        if (storeEntry != null) {
+            storeEntry.lockForChange(this);
+        }
+    }
+
+    private void unlockAfterChange() {
+        if (storeEntry != null) {
+            storeEntry.unlockAfterChange();
+        }
     }
 }
@@ -0,0 +1,106 @@
+package shopping;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл для вытесненных из памяти корзин.<br>
+ * Записи только дописываются в конец; освобождённые записи учитываются как мусор,
+ * который убирает перезапись живых записей в новый файл (см. {@link CartStore}).
+ * <p>Формат записи: {@code int} длина тела, затем тело.</p>
+ *
+ * @since 18.10.2026
+ */
+final class CartSpillFile implements Closeable {
+
+    private Path path;
+    private final FileChannel channel;
+    private long end;
+    private long garbageBytes;
+
+    /**
+     * Создать пустой файл, существующий файл перезаписывается
+     */
+    CartSpillFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Дописать запись
+     * @return смещение записи в файле
+     */
+    synchronized long append(byte[] body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + body.length);
+        buffer.putInt(body.length).put(body).flip();
+        long offset = end;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, end + buffer.position());
+        }
+        end += buffer.limit();
+        return offset;
+    }
+
+    /**
+     * Прочитать тело записи по смещению
+     */
+    synchronized byte[] read(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset);
+        ByteBuffer body = ByteBuffer.allocate(length.flip().getInt());
+        readFully(body, offset + Integer.BYTES);
+        return body.array();
+    }
+
+    /**
+     * Отметить запись как мусор
+     * @param bodyLength длина тела записи
+     */
+    synchronized void free(int bodyLength) {
+        garbageBytes += Integer.BYTES + bodyLength;
+    }
+
+    synchronized long garbageBytes() {
+        return garbageBytes;
+    }
+
+    synchronized long liveBytes() {
+        return end - garbageBytes;
+    }
+
+    /**
+     * Переместить файл, открытый файл при этом продолжает работать
+     */
+    synchronized void moveTo(Path target) throws IOException {
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        path = target;
+    }
+
+    /**
+     * Закрыть и удалить файл
+     */
+    synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла корзин " + path);
+            }
+        }
+    }
+}
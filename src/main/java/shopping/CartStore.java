@@ -0,0 +1,518 @@
+package shopping;
+
+import customer.Customer;
+import product.Product;
+import product.ProductDao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранилище корзин покупателей между запросами, по идентификатору покупателя.
+ * <p>Корзина, к которой не обращались {@code idleTtl}, удаляется. Сроки отслеживает одно
+ * {@link TimingWheel колесо таймеров}, а не таймер на каждую корзину. Обращение к корзине
+ * таймер не переставляет: сработавший таймер проверяет время последнего обращения
+ * и при необходимости планирует себя заново.</p>
+ * <p>В памяти держится не больше {@code maxResidentCarts} корзин. Давно не использованные
+ * корзины сверх этого числа, срок которых ещё не истёк, записываются в компактном виде в файл
+ * (идентификатор покупателя и пары имя товара - количество) и читаются обратно при следующем обращении.
+ * Резервы вытесненной корзины ({@link StockReservations}) остаются в памяти и возвращаются прочитанной
+ * корзине, поэтому отложенный товар по-прежнему продаётся из резерва.
+ * Файл периодически уплотняется, когда мусора в нём становится больше, чем живых записей.</p>
+ * <p>Корзина, полученная из хранилища, изменяется под блокировкой своего сегмента, поэтому вытеснение
+ * не пересекается с изменением. Пока объект вытесненной корзины кто-то использует, он остаётся тем же:
+ * следующее обращение вернёт его, а не прочитанную из файла копию, а его изменение возвращает корзину в память.
+ * Так изменения корзины, вытесненной посреди запроса, не теряются.</p>
+ * Файл корзин не переживает перезапуск и удаляется при {@link #close()}.
+ *
+ * @since 18.10.2026
+ */
+public final class CartStore implements AutoCloseable {
+    private static final int SEGMENTS = 16;
+    /**
+     * Уплотнять файл корзин, только когда мусора в нём больше этого объёма
+     */
+    private static final long MIN_GARBAGE_TO_COMPACT = 16L * 1024 * 1024;
+
+    private final ProductDao productDao;
+    private final long idleTtlNanos;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimingWheel<Entry> timingWheel;
+    private final Path spillPath;
+    private final ScheduledExecutorService ticker;
+    private final LongAdder spillFailures = new LongAdder();
+    /**
+     * Заменяется при уплотнении под блокировками всех сегментов
+     */
+    private volatile CartSpillFile spillFile;
+
+    /**
+     * @param productDao       поиск товаров при чтении корзины из файла
+     * @param idleTtl          время без обращений, после которого корзина удаляется
+     * @param maxResidentCarts максимальное количество корзин в памяти
+     * @param spillPath        файл для вытесненных из памяти корзин
+     */
+    public CartStore(ProductDao productDao, Duration idleTtl, int maxResidentCarts, Path spillPath)
+            throws IOException {
+        if (idleTtl.isNegative() || idleTtl.isZero()) {
+            throw new IllegalArgumentException("Время жизни корзины должно быть положительным");
+        }
+        if (maxResidentCarts < SEGMENTS) {
+            throw new IllegalArgumentException("В памяти должно помещаться не меньше " + SEGMENTS + " корзин");
+        }
+        this.productDao = productDao;
+        this.idleTtlNanos = idleTtl.toNanos();
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxResidentCarts / SEGMENTS);
+        }
+        long tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), idleTtlNanos / 64);
+        this.timingWheel = new TimingWheel<>(tickNanos, System.nanoTime());
+        this.spillPath = spillPath;
+        this.spillFile = new CartSpillFile(spillPath);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-store-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::expireIdleCarts, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Получить корзину покупателя, пустая корзина создаётся при первом обращении.
+     * Товары вытесненной корзины ищутся в БД без блокировки сегмента, чтобы медленное чтение
+     * не задерживало других покупателей сегмента
+     * @throws UncheckedIOException - если не удалось прочитать корзину из файла
+     */
+    public Cart getCart(Customer customer) {
+        long customerId = customer.getId();
+        Segment segment = segmentFor(customerId);
+        while (true) {
+            Entry spilled;
+            int spills;
+            byte[] record;
+            segment.lock.lock();
+            try {
+                long now = System.nanoTime();
+                Entry entry = segment.resident.get(customerId);
+                if (entry != null) {
+                    entry.lastAccessNanos = now;
+                    return entry.cart;
+                }
+                entry = segment.spilled.get(customerId);
+                if (entry == null) {
+                    entry = new Entry(segment, customerId);
+                    entry.cart = new Cart(customer);
+                    entry.cart.storeIn(entry);
+                    scheduleExpiration(entry, now + idleTtlNanos);
+                    entry.lastAccessNanos = now;
+                    segment.resident.put(customerId, entry);
+                    spillEldest(segment);
+                    return entry.cart;
+                }
+                Cart inUse = entry.spilledCart.get();
+                if (inUse != null) {
+                    segment.reattach(entry, inUse, now);
+                    return inUse;
+                }
+                spilled = entry;
+                spills = entry.spills;
+                record = readRecord(customer, entry);
+            } finally {
+                segment.lock.unlock();
+            }
+            Cart cart = readCart(customer, spilled, record);
+            segment.lock.lock();
+            try {
+                if (segment.spilled.get(customerId) == spilled && spilled.spills == spills) {
+                    cart.restoreReservations(spilled.spilledReservations, spilled.spilledHeld);
+                    segment.reattach(spilled, cart, System.nanoTime());
+                    return cart;
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+            // пока товары искались, корзину вернул в память другой запрос или она удалена
+        }
+    }
+
+    /**
+     * Удалить корзину покупателя, например, после покупки
+     */
+    public void remove(Customer customer) {
+        Segment segment = segmentFor(customer.getId());
+        segment.lock.lock();
+        try {
+            segment.remove(customer.getId());
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Удалить корзину после покупки, если хранилище всё ещё хранит именно её,
+     * а не новую корзину того же покупателя (например, созданную после истечения срока)
+     */
+    void remove(Cart cart) {
+        long customerId = cart.getCustomer().getId();
+        Segment segment = segmentFor(customerId);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.resident.get(customerId);
+            if (entry == null) {
+                entry = segment.spilled.get(customerId);
+            }
+            if (entry != null && entry.holds(cart)) {
+                segment.remove(customerId);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Количество корзин в памяти
+     */
+    public int residentCount() {
+        return count(true);
+    }
+
+    /**
+     * Количество корзин в файле
+     */
+    public int spilledCount() {
+        return count(false);
+    }
+
+    /**
+     * Находится ли корзина покупателя в памяти
+     */
+    boolean isResident(long customerId) {
+        Segment segment = segmentFor(customerId);
+        segment.lock.lock();
+        try {
+            return segment.resident.containsKey(customerId);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Сколько раз не удалось записать корзину в файл (такие корзины остаются в памяти)
+     */
+    public long getSpillFailures() {
+        return spillFailures.sum();
+    }
+
+    /**
+     * Остановить отслеживание сроков и удалить файл корзин
+     */
+    @Override
+    public void close() throws IOException {
+        ticker.shutdownNow();
+        spillFile.delete();
+    }
+
+    /**
+     * Удалить корзины, к которым не обращались дольше {@code idleTtl}, выполняется на каждом такте
+     */
+    void expireIdleCarts() {
+        long now = System.nanoTime();
+        List<Entry> fired = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            timingWheel.advance(now, fired::add);
+        } finally {
+            wheelLock.unlock();
+        }
+        for (Entry entry : fired) {
+            Segment segment = segmentFor(entry.customerId);
+            segment.lock.lock();
+            try {
+                if (entry.removed) {
+                    continue;
+                }
+                long idleDeadline = entry.lastAccessNanos + idleTtlNanos;
+                if (now - idleDeadline >= 0) {
+                    segment.remove(entry.customerId);
+                } else {
+                    scheduleExpiration(entry, idleDeadline);
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        compactIfNeeded();
+    }
+
+    private void scheduleExpiration(Entry entry, long deadlineNanos) {
+        wheelLock.lock();
+        try {
+            timingWheel.schedule(entry, deadlineNanos);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Вытеснить в файл давно не использованные корзины сегмента сверх его ёмкости
+     */
+    private void spillEldest(Segment segment) {
+        Iterator<Entry> eldest = segment.resident.values().iterator();
+        while (segment.resident.size() > segment.capacity) {
+            Entry entry = eldest.next();
+            try {
+                byte[] record = writeCart(entry);
+                entry.spillOffset = spillFile.append(record);
+                entry.spillLength = record.length;
+            } catch (IOException e) {
+                spillFailures.increment();
+                return;
+            }
+            eldest.remove();
+            entry.spills++;
+            entry.spilledCart = new WeakReference<>(entry.cart);
+            entry.spilledReservations = entry.cart.reservations();
+            entry.spilledHeld = entry.cart.heldReservations();
+            entry.cart = null;
+            segment.spilled.put(entry.customerId, entry);
+        }
+    }
+
+    /**
+     * Переписать живые записи в новый файл, если мусора в файле больше, чем живых записей
+     */
+    private void compactIfNeeded() {
+        CartSpillFile current = spillFile;
+        long garbage = current.garbageBytes();
+        if (garbage < MIN_GARBAGE_TO_COMPACT || garbage < current.liveBytes()) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.lock.lock();
+        }
+        CartSpillFile compacted = null;
+        try {
+            compacted = new CartSpillFile(spillPath.resolveSibling(spillPath.getFileName() + ".compact"));
+            List<Entry> entries = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            for (Segment segment : segments) {
+                for (Entry entry : segment.spilled.values()) {
+                    entries.add(entry);
+                    offsets.add(compacted.append(current.read(entry.spillOffset)));
+                }
+            }
+            compacted.moveTo(spillPath);
+            current.close();
+            spillFile = compacted;
+            for (int i = 0; i < entries.size(); i++) {
+                entries.get(i).spillOffset = offsets.get(i);
+            }
+        } catch (IOException e) {
+            spillFailures.increment();
+            deleteQuietly(compacted);
+        } finally {
+            for (int i = segments.length - 1; i >= 0; i--) {
+                segments[i].lock.unlock();
+            }
+        }
+    }
+
+    private static void deleteQuietly(CartSpillFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.delete();
+        } catch (IOException ignored) {
+            // уплотнение повторится на следующем такте
+        }
+    }
+
+    /**
+     * Формат: идентификатор покупателя, количество строк, затем для каждой строки имя товара и количество
+     */
+    private static byte[] writeCart(Entry entry) throws IOException {
+        Cart cart = entry.cart;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + cart.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.customerId);
+            out.writeInt(cart.size());
+            for (int i = 0; i < cart.size(); i++) {
+                out.writeUTF(cart.productAt(i).getName());
+                out.writeInt(cart.countAt(i));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Прочитать запись корзины из файла, выполняется под блокировкой сегмента:
+     * уплотнение файла переносит записи
+     */
+    private byte[] readRecord(Customer customer, Entry entry) {
+        try {
+            return spillFile.read(entry.spillOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать корзину покупателя " + customer.getId(), e);
+        }
+    }
+
+    /**
+     * Восстановить корзину из записи файла. Товары, которых больше нет в БД, пропускаются
+     */
+    private Cart readCart(Customer customer, Entry entry, byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            in.readLong();
+            int lines = in.readInt();
+            Cart cart = new Cart(customer);
+            cart.storeIn(entry);
+            for (int i = 0; i < lines; i++) {
+                String name = in.readUTF();
+                int count = in.readInt();
+                Product product = productDao.getByName(name);
+                if (product != null) {
+                    cart.restore(product, count);
+                }
+            }
+            return cart;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать корзину покупателя " + customer.getId(), e);
+        }
+    }
+
+    private int count(boolean resident) {
+        int count = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                count += resident ? segment.resident.size() : segment.spilled.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    private Segment segmentFor(long customerId) {
+        int hash = Long.hashCode(customerId);
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Корзина покупателя: в памяти ({@code cart != null}) или в файле
+     */
+    final class Entry {
+        private final Segment segment;
+        private final long customerId;
+        private long lastAccessNanos;
+        private Cart cart;
+        /**
+         * Объект вытесненной корзины, пока его кто-то использует
+         */
+        private WeakReference<Cart> spilledCart;
+        /**
+         * Сколько раз корзина вытеснялась: запись, прочитанная до повторного вытеснения, устарела
+         */
+        private int spills;
+        /**
+         * Резервы вытесненной корзины, передаются корзине, прочитанной из файла
+         */
+        private StockReservations spilledReservations;
+        private Map<Product, StockReservations.Reservation> spilledHeld;
+        private long spillOffset;
+        private int spillLength;
+        /**
+         * Корзина удалена, её таймер нужно просто пропустить
+         */
+        private boolean removed;
+
+        private Entry(Segment segment, long customerId) {
+            this.segment = segment;
+            this.customerId = customerId;
+        }
+
+        /**
+         * Начать изменение корзины: взять блокировку сегмента и, если корзина вытеснена,
+         * вернуть этот объект в память вместо копии в файле
+         */
+        void lockForChange(Cart changing) {
+            segment.lock.lock();
+            long now = System.nanoTime();
+            if (cart == changing) {
+                lastAccessNanos = now;
+                // обращение переставляет корзину в конец порядка вытеснения
+                segment.resident.get(customerId);
+            } else if (!removed && spilledCart != null && spilledCart.get() == changing) {
+                segment.reattach(this, changing, now);
+            }
+        }
+
+        void unlockAfterChange() {
+            segment.lock.unlock();
+        }
+
+        private boolean holds(Cart candidate) {
+            return cart != null ? cart == candidate : spilledCart.get() == candidate;
+        }
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * Корзины в памяти, в порядке давности обращения (первая - самая давняя)
+         */
+        private final LinkedHashMap<Long, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Long, Entry> spilled = new HashMap<>();
+        private final int capacity;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Вернуть вытесненную корзину в память
+         */
+        private void reattach(Entry entry, Cart cart, long now) {
+            spilled.remove(entry.customerId);
+            spillFile.free(entry.spillLength);
+            entry.spilledCart = null;
+            entry.spilledReservations = null;
+            entry.spilledHeld = null;
+            entry.cart = cart;
+            entry.lastAccessNanos = now;
+            resident.put(entry.customerId, entry);
+            spillEldest(this);
+        }
+
+        private void remove(long customerId) {
+            Entry entry = resident.remove(customerId);
+            if (entry == null) {
+                entry = spilled.remove(customerId);
+                if (entry == null) {
+                    return;
+                }
+                spillFile.free(entry.spillLength);
+            }
+            entry.removed = true;
+        }
+    }
+}
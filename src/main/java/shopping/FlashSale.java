@@ -0,0 +1,282 @@
+package shopping;
+
+import product.Product;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Режим распродажи для отдельных товаров: вычитание количества с объединением запросов (flat combining).
+ * <p>Когда тысячи покупателей одновременно покупают один товар, их CAS-операции над его количеством
+ * мешают друг другу, и большая часть попыток уходит на повторы. В режиме распродажи покупатель
+ * не трогает количество сам, а кладёт запрос в очередь товара. Один из ожидающих становится
+ * объединителем: забирает всю очередь, за один проход решает, каким запросам хватит товара,
+ * вычитает их сумму одной операцией и отвечает каждому. Остальные в это время ждут ответа.</p>
+ * Пока очередь товара пуста, покупатель вычитает количество сам: без конкуренции ожидание только мешает.
+ * Запрос, которому заведомо не хватит товара, отклоняется до очереди. Если в очереди товара уже
+ * {@code admissionLimit} запросов, новый запрос сразу получает {@link BuyResult#OVERLOADED} -
+ * так очередь и время ожидания ответа остаются ограниченными.
+ * <p>Покупки обычных товаров и покупки распродаваемого товара вне этого режима по-прежнему
+ * вычитают количество CAS-операцией; объединитель это учитывает, поэтому товар не продаётся сверх наличия.</p>
+ * Режим включается только явно: сервисом с этим объектом ({@link ShoppingServiceImpl}) и для каждого товара
+ * ({@link #addProduct(Product)}). Выигрыш возможен только на многоядерной машине, где CAS-операции
+ * действительно конкурируют; замеров на такой машине нет. На одном ядре повторов CAS нет, а каждый
+ * запрос в очереди платит за усыпление и пробуждение потока: {@code FlashSaleBenchmark} показывает
+ * около 2,4 операций в микросекунду против 47 без режима распродажи. Включать режим стоит только
+ * после замера на целевой машине.
+ *
+ * @since 18.10.2026
+ */
+public class FlashSale {
+    private static final int PENDING = 0;
+    private static final int GRANTED = 1;
+    private static final int REJECTED = 2;
+    /**
+     * Сколько раз подряд объединитель забирает очередь, прежде чем передать роль другому
+     */
+    private static final int MAX_COMBINE_ROUNDS = 8;
+    private static final int SPIN_TRIES = 64;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int admissionLimit;
+    private final ConcurrentHashMap<Product, HotProduct> hotProducts = new ConcurrentHashMap<>();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder combinedRequests = new LongAdder();
+
+    /**
+     * @param admissionLimit максимальное количество ожидающих запросов на один товар
+     */
+    public FlashSale(int admissionLimit) {
+        if (admissionLimit <= 0) {
+            throw new IllegalArgumentException("Ограничение очереди распродажи должно быть положительным");
+        }
+        this.admissionLimit = admissionLimit;
+    }
+
+    /**
+     * Включить режим распродажи для товара
+     */
+    public void addProduct(Product product) {
+        hotProducts.computeIfAbsent(product, HotProduct::new);
+    }
+
+    /**
+     * Выключить режим распродажи для товара. Уже поставленные в очередь запросы будут обработаны
+     */
+    public void removeProduct(Product product) {
+        hotProducts.remove(product);
+    }
+
+    /**
+     * Сколько запросов отклонено из-за заполненной очереди
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * Сколько раз объединитель забрал очередь
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Сколько запросов обработано объединителем
+     */
+    public long getCombinedCount() {
+        return combinedRequests.sum();
+    }
+
+    /**
+     * Вычесть количество товара: для распродаваемого товара - через очередь, иначе - CAS-операцией
+     * @return {@link BuyResult#BOUGHT}, итог нехватки товара или {@link BuyResult#OVERLOADED}
+     */
+    BuyResult trySubtract(Product product, int count) {
+        HotProduct hot = hotProducts.get(product);
+        if (hot == null) {
+            return product.trySubtractCount(count)
+                    ? BuyResult.BOUGHT
+                    : BuyResult.insufficientStock(product, count, product.getLiveCount());
+        }
+        int available = product.getLiveCount();
+        if (available < count) {
+            return BuyResult.insufficientStock(product, count, available);
+        }
+        int ahead = hot.queued.getAndIncrement();
+        if (ahead == 0 && !hot.combining.get()) {
+            // никто не ждёт: конкуренции нет, очередь только добавила бы задержку
+            try {
+                return product.trySubtractCount(count)
+                        ? BuyResult.BOUGHT
+                        : BuyResult.insufficientStock(product, count, product.getLiveCount());
+            } finally {
+                hot.queued.decrementAndGet();
+            }
+        }
+        if (ahead >= admissionLimit) {
+            hot.queued.decrementAndGet();
+            shed.increment();
+            return BuyResult.OVERLOADED;
+        }
+        Request request = new Request(count);
+        hot.push(request);
+        await(hot, request);
+        return request.state == GRANTED
+                ? BuyResult.BOUGHT
+                : BuyResult.insufficientStock(product, count, request.available);
+    }
+
+    /**
+     * Дождаться ответа на запрос, становясь объединителем, когда эта роль свободна
+     */
+    private void await(HotProduct hot, Request request) {
+        int idle = 0;
+        while (request.state == PENDING) {
+            if (!hot.combining.get() && hot.combining.compareAndSet(false, true)) {
+                try {
+                    hot.combine();
+                } finally {
+                    hot.combining.set(false);
+                }
+                hot.wakeNext();
+                idle = 0;
+            } else if (idle++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                // ограниченное ожидание - страховка от гонки с объединителем, который освободил роль
+                // до того, как этот запрос попал в очередь: роль тогда займёт этот поток
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Запрос на вычитание, ожидающий ответа
+     */
+    private static final class Request {
+        private final int count;
+        private final Thread waiter = Thread.currentThread();
+        private Request next;
+        /**
+         * Количество в наличии при отказе
+         */
+        private int available;
+        private volatile int state = PENDING;
+
+        private Request(int count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * Распродаваемый товар и очередь запросов к нему
+     */
+    private final class HotProduct {
+        private final Product product;
+        /**
+         * Вершина стека поставленных запросов
+         */
+        private final AtomicReference<Request> pending = new AtomicReference<>();
+        private final AtomicBoolean combining = new AtomicBoolean();
+        /**
+         * Запросов в очереди и в обработке, включая покупателя, вычитающего количество без очереди
+         */
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private HotProduct(Product product) {
+            this.product = product;
+        }
+
+        private void push(Request request) {
+            Request head;
+            do {
+                head = pending.get();
+                request.next = head;
+            } while (!pending.compareAndSet(head, request));
+        }
+
+        /**
+         * Разбудить владельца последнего поставленного запроса, чтобы он стал объединителем
+         */
+        private void wakeNext() {
+            Request head = pending.get();
+            if (head != null) {
+                LockSupport.unpark(head.waiter);
+            }
+        }
+
+        /**
+         * Забрать очередь и ответить на её запросы, пока она не опустеет или не кончатся раунды
+         */
+        private void combine() {
+            for (int round = 0; round < MAX_COMBINE_ROUNDS; round++) {
+                Request batch = reverse(pending.getAndSet(null));
+                if (batch == null) {
+                    return;
+                }
+                int size = apply(batch);
+                batches.increment();
+                combinedRequests.add(size);
+                queued.addAndGet(-size);
+                for (Request request = batch; request != null; ) {
+                    // следующий читается до ответа: после ответа запрос может быть уже не нужен владельцу
+                    Request next = request.next;
+                    Thread waiter = request.waiter;
+                    request.state = request.available < 0 ? GRANTED : REJECTED;
+                    if (waiter != Thread.currentThread()) {
+                        LockSupport.unpark(waiter);
+                    }
+                    request = next;
+                }
+            }
+        }
+
+        /**
+         * За один проход решить, каким запросам хватит товара (в порядке поступления), и вычесть их сумму.
+         * Решение записывается в {@link Request#available}: -1 - товар выдан, иначе - наличие при отказе
+         * @return количество запросов
+         */
+        private int apply(Request batch) {
+            while (true) {
+                int available = product.getLiveCount();
+                int remaining = available;
+                int size = 0;
+                for (Request request = batch; request != null; request = request.next) {
+                    size++;
+                    if (request.count <= remaining) {
+                        remaining -= request.count;
+                        request.available = -1;
+                    } else {
+                        request.available = remaining;
+                    }
+                }
+                int granted = available - remaining;
+                // наличие могли уменьшить покупки вне очереди: тогда решение принимается заново
+                if (granted == 0 || product.trySubtractCount(granted)) {
+                    return size;
+                }
+            }
+        }
+
+        /**
+         * Стек поставленных запросов в порядке поступления
+         */
+        private static Request reverse(Request head) {
+            Request reversed = null;
+            while (head != null) {
+                Request next = head.next;
+                head.next = reversed;
+                reversed = head;
+                head = next;
+            }
+            return reversed;
+        }
+    }
+}
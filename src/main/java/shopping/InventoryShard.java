@@ -0,0 +1,141 @@
+package shopping;
+
+import product.Product;
+import product.ProductDao;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Часть склада: товары, имя которых попало в эту часть, и их БД.
+ * <p>Все изменения количества выполняются исполнителем части: это либо поток вызывающего
+ * (часть в том же процессе), либо исполнитель, изображающий отдельный узел, - тогда каждый вызов
+ * соответствует одному запросу к узлу, а части работают параллельно.</p>
+ * Покупка в нескольких частях выполняется в две фазы ({@link ShardedShoppingService}):
+ * {@link #prepare} откладывает товары, {@link #commit} продаёт отложенное и сохраняет,
+ * {@link #abort} возвращает отложенное в наличие, а {@link #refund} отменяет уже выполненный
+ * {@link #commit}, если в другой части он не удался. Покупка в одной части обходится одним
+ * вызовом {@link #buy}.
+ *
+ * @since 18.10.2026
+ */
+public class InventoryShard {
+
+    private final ProductDao productDao;
+    private final Executor executor;
+
+    /**
+     * Часть в том же процессе, операции выполняются в потоке вызывающего
+     */
+    public InventoryShard(ProductDao productDao) {
+        this(productDao, Runnable::run);
+    }
+
+    /**
+     * @param executor исполнитель запросов к части, например, однопоточный - как у отдельного узла
+     */
+    public InventoryShard(ProductDao productDao, Executor executor) {
+        this.productDao = productDao;
+        this.executor = executor;
+    }
+
+    /**
+     * БД товаров части
+     */
+    public ProductDao getProductDao() {
+        return productDao;
+    }
+
+    /**
+     * Купить товары за один запрос: вычесть все либо ни одного и сохранить
+     * @param products товары части
+     * @param counts   покупаемое количество каждого товара
+     * @return {@link BuyResult#BOUGHT} или итог с товаром, которого не хватило
+     */
+    public CompletableFuture<BuyResult> buy(List<Product> products, int[] counts) {
+        return CompletableFuture.supplyAsync(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                if (!product.trySubtractCount(counts[i])) {
+                    for (int j = 0; j < i; j++) {
+                        products.get(j).addCount(counts[j]);
+                    }
+                    return BuyResult.insufficientStock(product, counts[i], product.getLiveCount());
+                }
+            }
+            try {
+                productDao.saveAll(products);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < products.size(); i++) {
+                    products.get(i).addCount(counts[i]);
+                }
+                throw e;
+            }
+            return BuyResult.BOUGHT;
+        }, executor);
+    }
+
+    /**
+     * Первая фаза покупки: отложить все товары либо ни одного.
+     * Отложенные товары вычтены из наличия и не продаются другим покупателям до {@link #commit} или {@link #abort}
+     * @return {@link BuyResult#BOUGHT} - если товары отложены, иначе итог с товаром, которого не хватило
+     */
+    public CompletableFuture<BuyResult> prepare(List<Product> products, int[] counts) {
+        return CompletableFuture.supplyAsync(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                if (!product.tryReserve(counts[i])) {
+                    for (int j = 0; j < i; j++) {
+                        products.get(j).releaseReserved(counts[j]);
+                    }
+                    return BuyResult.insufficientStock(product, counts[i], product.getLiveCount());
+                }
+            }
+            return BuyResult.BOUGHT;
+        }, executor);
+    }
+
+    /**
+     * Вторая фаза покупки: продать отложенные в {@link #prepare} товары и сохранить их.
+     * Если сохранить не удалось, проданные товары возвращаются в наличие, как при {@link #abort}
+     */
+    public CompletableFuture<Void> commit(List<Product> products, int[] counts) {
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).sellReserved(counts[i]);
+            }
+            try {
+                productDao.saveAll(products);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < products.size(); i++) {
+                    products.get(i).addCount(counts[i]);
+                }
+                throw e;
+            }
+        }, executor);
+    }
+
+    /**
+     * Отменить выполненный {@link #commit}: вернуть проданные товары в наличие и сохранить их
+     */
+    public CompletableFuture<Void> refund(List<Product> products, int[] counts) {
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).addCount(counts[i]);
+            }
+            productDao.saveAll(products);
+        }, executor);
+    }
+
+    /**
+     * Отменить покупку: вернуть отложенные в {@link #prepare} товары в наличие
+     */
+    public CompletableFuture<Void> abort(List<Product> products, int[] counts) {
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).releaseReserved(counts[i]);
+            }
+        }, executor);
+    }
+}
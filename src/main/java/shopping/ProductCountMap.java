@@ -0,0 +1,264 @@
+package shopping;
+
+import product.Product;
+import product.ProductDictionary;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Товар -> количество без упаковки количества в {@link Integer} и без узлов на каждую запись.
+ * <p>Строки хранятся в плотных массивах в порядке добавления, а поиск идёт по хеш-таблице
+ * с открытой адресацией, в ячейках которой лежат номера строк. Поэтому обход строк
+ * по номеру ({@link #productAt(int)}, {@link #countAt(int)}) не выделяет память.
+ * Таблица ищет по номеру товара ({@link Product#getId()}) из отдельного массива,
+ * поэтому поиск сравнивает числа и не обращается ни к объектам товаров, ни к их именам.
+ * Номера сравнимы только в одном словаре, поэтому все товары строк - из одного словаря.</p>
+ * Удаление сдвигает строки и перестраивает таблицу за O(n): корзины небольшие,
+ * а удаление - редкая операция по сравнению с обходом при покупке.
+ * <p>Не потокобезопасен, как и {@link java.util.LinkedHashMap}, который он заменяет в {@link Cart}.</p>
+ *
+ * @since 18.10.2026
+ */
+final class ProductCountMap {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Product[] products = new Product[INITIAL_CAPACITY];
+    /**
+     * Номер товара строки
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    /**
+     * Номер строки + 1, 0 - пустая ячейка. Размер - степень двойки, не меньше удвоенной ёмкости строк
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int size;
+    /**
+     * Словарь товаров строк, null - строк ещё не было
+     */
+    private ProductDictionary dictionary;
+
+    private Map<Product, Integer> mapView;
+    private List<Product> productsView;
+
+    /**
+     * Количество строк
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Товар строки с номером {@code index} (в порядке добавления)
+     */
+    Product productAt(int index) {
+        return products[index];
+    }
+
+    /**
+     * Количество товара в строке с номером {@code index}
+     */
+    int countAt(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Номер строки товара, -1 - если товара нет
+     */
+    int indexOf(Object product) {
+        if (!(product instanceof Product candidate) || candidate.getDictionary() != dictionary) {
+            return -1;
+        }
+        int id = candidate.getId();
+        int mask = table.length - 1;
+        for (int slot = spread(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (ids[entry - 1] == id) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Проверить, что товар можно добавить к товарам строк
+     * @throws IllegalArgumentException - если товар из другого словаря, чем товары строк
+     */
+    void checkDictionary(Product product) {
+        if (size > 0 && product.getDictionary() != dictionary) {
+            throw new IllegalArgumentException(
+                    "Товар '%s' из другого каталога, чем товары корзины".formatted(product.getName()));
+        }
+    }
+
+    /**
+     * Задать количество товара, новый товар добавляется в конец
+     * @throws IllegalArgumentException - если товар из другого словаря, чем товары строк
+     */
+    void put(Product product, int count) {
+        checkDictionary(product);
+        if (size == 0) {
+            dictionary = product.getDictionary();
+        }
+        int index = indexOf(product);
+        if (index >= 0) {
+            counts[index] = count;
+            return;
+        }
+        if (size == products.length) {
+            grow();
+        }
+        products[size] = product;
+        ids[size] = product.getId();
+        counts[size] = count;
+        insertIntoTable(size);
+        size++;
+    }
+
+    /**
+     * Удалить товар
+     */
+    void remove(Object product) {
+        int index = indexOf(product);
+        if (index < 0) {
+            return;
+        }
+        int tail = size - index - 1;
+        System.arraycopy(products, index + 1, products, index, tail);
+        System.arraycopy(ids, index + 1, ids, index, tail);
+        System.arraycopy(counts, index + 1, counts, index, tail);
+        products[--size] = null;
+        rebuildTable();
+    }
+
+    /**
+     * Неизменяемое представление в виде {@link Map}, отражающее текущее состояние.
+     * Создаётся один раз.
+     */
+    Map<Product, Integer> asMap() {
+        if (mapView == null) {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+
+    /**
+     * Неизменяемый список товаров в порядке добавления, отражающий текущее состояние.
+     * Создаётся один раз.
+     */
+    List<Product> products() {
+        if (productsView == null) {
+            productsView = new ProductsView();
+        }
+        return productsView;
+    }
+
+    private void grow() {
+        int capacity = products.length * 2;
+        products = Arrays.copyOf(products, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        table = new int[capacity * 2];
+        rebuildTable();
+    }
+
+    private void rebuildTable() {
+        Arrays.fill(table, 0);
+        for (int i = 0; i < size; i++) {
+            insertIntoTable(i);
+        }
+    }
+
+    private void insertIntoTable(int index) {
+        int mask = table.length - 1;
+        int slot = spread(ids[index]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class ProductsView extends AbstractList<Product> implements RandomAccess {
+        @Override
+        public Product get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return products[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class MapView extends AbstractMap<Product, Integer> {
+        private Set<Entry<Product, Integer>> entrySet;
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int index = indexOf(key);
+            return index >= 0 ? counts[index] : null;
+        }
+
+        @Override
+        public Set<Entry<Product, Integer>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Product, Integer>> iterator() {
+                        return new Iterator<>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < size;
+                            }
+
+                            @Override
+                            public Entry<Product, Integer> next() {
+                                if (next >= size) {
+                                    throw new NoSuchElementException();
+                                }
+                                int index = next++;
+                                return new SimpleImmutableEntry<>(products[index], counts[index]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+}
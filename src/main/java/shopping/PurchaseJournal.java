@@ -0,0 +1,499 @@
+package shopping;
+
+import product.Product;
+import product.ProductDao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал покупок (write-ahead log).
+ * <p>Каждая покупка записывается одной записью со всеми строками корзины (товар и вычтенное количество)
+ * до того, как считается выполненной. Записи конкурентных покупок пишутся в файл одной операцией
+ * и сбрасываются на диск одним {@code fsync}: пока идёт сброс, следующие записи копятся в очереди.</p>
+ * Пока журнал включён, покупка не сохраняет товары в БД. Изменённые товары записываются в БД
+ * ({@link ProductDao#saveAll(java.util.Collection)}) контрольной точкой ({@link #checkpoint(ProductDao)}),
+ * после которой журнал очищается. Контрольные точки в DAO, переданный в {@link #recover(ProductDao)},
+ * выполняются сами: когда покупки после прошлой точки заняли {@code checkpointBytes}
+ * (её выполняет покупка, которая превысила размер) и раз в {@code checkpointInterval}, если были покупки.
+ * Так БД и всё, что следит за сохранениями в DAO (кеш, версии каталога, лента изменений), отстают
+ * от покупок не больше чем на интервал контрольных точек, а журнал не растёт без ограничений.
+ * Перед сохранением в БД в журнал пишется снимок - количество на складе ({@link Product#getOnHandCount()})
+ * каждого изменённого товара, поэтому повторное восстановление после сбоя посреди контрольной точки
+ * не вычитает покупки дважды. Отложенный товар входит в снимок: его продажа позже записывается покупкой,
+ * и при восстановлении вычитается один раз.
+ * <p>Формат записи: {@code int} длина тела, {@code int} CRC32 тела, тело - тип записи, количество строк,
+ * затем для каждой строки имя товара и количество. Запись с неверной контрольной суммой
+ * или оборванная в конце файла считается недописанной и отбрасывается при восстановлении.</p>
+ *
+ * @since 18.10.2026
+ */
+public class PurchaseJournal implements AutoCloseable {
+    /**
+     * Покупка: количество вычитается
+     */
+    private static final byte PURCHASE = 1;
+    /**
+     * Снимок контрольной точки: количество задаётся
+     */
+    private static final byte SNAPSHOT = 2;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    /**
+     * Признак закрытия, всегда последний элемент очереди
+     */
+    private static final PendingRecord CLOSE = new PendingRecord(new byte[0]);
+    private static final long DEFAULT_CHECKPOINT_BYTES = 16L * 1024 * 1024;
+    private static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofSeconds(1);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    /**
+     * Покупки берут блокировку чтения, контрольная точка - записи,
+     * поэтому снимок не может включать покупку, запись которой ещё не в журнале
+     */
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    /**
+     * Товары, изменённые после последней контрольной точки
+     */
+    private final Set<Product> dirty = ConcurrentHashMap.newKeySet();
+    private final LongAdder syncCount = new LongAdder();
+    private final LongAdder checkpointFailures = new LongAdder();
+    private final long checkpointBytes;
+    private final Duration checkpointInterval;
+    /**
+     * Размер записей покупок после последней контрольной точки
+     */
+    private final AtomicLong uncheckpointedBytes = new AtomicLong();
+    /**
+     * DAO для контрольных точек, задаётся при {@link #recover(ProductDao)}
+     */
+    private volatile ProductDao productDao;
+    private ScheduledExecutorService checkpointer;
+    private boolean closed;
+
+    /**
+     * Открыть журнал с контрольными точками каждые 16 МБ покупок и раз в секунду,
+     * существующий файл не изменяется до {@link #recover(ProductDao)}
+     */
+    public PurchaseJournal(Path path) throws IOException {
+        this(path, DEFAULT_CHECKPOINT_BYTES, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param checkpointBytes    размер записей покупок, после которого выполняется контрольная точка
+     * @param checkpointInterval интервал контрольных точек, null - только по размеру и вручную
+     */
+    public PurchaseJournal(Path path, long checkpointBytes, Duration checkpointInterval) throws IOException {
+        if (checkpointBytes <= 0) {
+            throw new IllegalArgumentException("Размер журнала до контрольной точки должен быть положительным");
+        }
+        if (checkpointInterval != null && (checkpointInterval.isNegative() || checkpointInterval.isZero())) {
+            throw new IllegalArgumentException("Интервал контрольных точек должен быть положительным");
+        }
+        this.checkpointBytes = checkpointBytes;
+        this.checkpointInterval = checkpointInterval;
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+        this.flusher = new Thread(this::flushLoop, "purchase-journal");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Восстановить состояние товаров после перезапуска: применить к товарам из БД все записи журнала,
+     * отбросить недописанный хвост и выполнить контрольную точку.
+     * Вызывается до первой покупки, дальнейшие контрольные точки выполняются в этот DAO.
+     * @return количество применённых покупок
+     * @throws UncheckedIOException - если не удалось прочитать или записать журнал
+     */
+    public int recover(ProductDao productDao) {
+        checkpointLock.writeLock().lock();
+        try {
+            Map<String, Product> touched = new LinkedHashMap<>();
+            int purchases = 0;
+            long position = 0;
+            long size = channel.size();
+            while (true) {
+                byte[] body = readRecord(position, size);
+                if (body == null) {
+                    break;
+                }
+                if (apply(body, productDao, touched)) {
+                    purchases++;
+                }
+                position += RECORD_HEADER_SIZE + body.length;
+            }
+            channel.truncate(position);
+            channel.position(position);
+            dirty.addAll(touched.values());
+            checkpoint(productDao);
+            this.productDao = productDao;
+            scheduleCheckpoints();
+            return purchases;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить покупки из журнала " + path, e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Записать изменённые товары в БД и очистить журнал
+     * @throws UncheckedIOException - если не удалось записать журнал
+     */
+    public void checkpoint(ProductDao productDao) {
+        checkpointLock.writeLock().lock();
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            List<Product> products = new ArrayList<>(dirty);
+            List<Integer> counts = new ArrayList<>(products.size());
+            for (Product product : products) {
+                counts.add(product.getOnHandCount());
+            }
+            write(encode(SNAPSHOT, products.size(), products::get, counts::get));
+            productDao.saveAll(products);
+            dirty.clear();
+            uncheckpointedBytes.set(0);
+            channel.truncate(0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось очистить журнал покупок " + path, e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполнить контрольную точку, если покупки после прошлой заняли {@code checkpointBytes}.
+     * Вызывается после покупки, когда её блокировка ({@link #purchaseLock()}) уже снята
+     */
+    void checkpointIfFull() {
+        if (productDao != null && uncheckpointedBytes.get() >= checkpointBytes) {
+            tryCheckpoint();
+        }
+    }
+
+    /**
+     * Сколько раз не удалась автоматическая контрольная точка. Покупки при этом остаются в журнале,
+     * и следующая контрольная точка сохраняет их в БД
+     */
+    public long getCheckpointFailures() {
+        return checkpointFailures.sum();
+    }
+
+    /**
+     * Сколько раз журнал сбрасывался на диск
+     */
+    public long getSyncCount() {
+        return syncCount.sum();
+    }
+
+    /**
+     * Остановить запись журнала. Контрольная точка не выполняется:
+     * покупки сохранятся в БД при следующем {@link #recover(ProductDao)}.
+     * Как и {@link ExecutorService#close()}, ждёт окончания записи даже при прерывании,
+     * а затем восстанавливает флаг прерывания
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService scheduled;
+        synchronized (queue) {
+            scheduled = checkpointer;
+        }
+        boolean interrupted = false;
+        if (scheduled != null) {
+            // без прерывания контрольной точки: прерванная операция с файлом закрыла бы канал
+            scheduled.shutdown();
+            while (!scheduled.isTerminated()) {
+                try {
+                    scheduled.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        boolean stopFlusher;
+        synchronized (queue) {
+            stopFlusher = !closed;
+            closed = true;
+            if (stopFlusher) {
+                queue.add(CLOSE);
+            }
+        }
+        // поток записи, остановленный прерыванием, уже отклонил записи и завершился
+        while (stopFlusher && flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void scheduleCheckpoints() {
+        if (checkpointInterval == null) {
+            return;
+        }
+        synchronized (queue) {
+            if (closed || checkpointer != null) {
+                return;
+            }
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "purchase-journal-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = checkpointInterval.toNanos();
+            checkpointer.scheduleWithFixedDelay(this::checkpointIfDirty, intervalNanos, intervalNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void checkpointIfDirty() {
+        if (uncheckpointedBytes.get() > 0) {
+            tryCheckpoint();
+        }
+    }
+
+    /**
+     * Автоматическая контрольная точка: покупка уже записана в журнал, поэтому сбой БД не должен
+     * доходить до покупателя
+     */
+    private void tryCheckpoint() {
+        try {
+            checkpoint(productDao);
+        } catch (RuntimeException e) {
+            checkpointFailures.increment();
+        }
+    }
+
+    /**
+     * Блокировка, под которой покупка вычитает товары и пишет запись в журнал
+     */
+    Lock purchaseLock() {
+        return checkpointLock.readLock();
+    }
+
+    /**
+     * Записать покупку корзины и дождаться сброса записи на диск
+     * @throws UncheckedIOException - если не удалось записать журнал
+     * @throws IllegalStateException - если журнал уже закрыт
+     */
+    void append(Cart cart) {
+        byte[] record = encode(PURCHASE, cart.size(), cart::productAt, cart::countAt);
+        for (int i = 0; i < cart.size(); i++) {
+            dirty.add(cart.productAt(i));
+        }
+        write(record);
+        uncheckpointedBytes.addAndGet(record.length);
+    }
+
+    private void write(byte[] record) {
+        PendingRecord pending = new PendingRecord(record);
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Журнал покупок уже закрыт");
+            }
+            queue.add(pending);
+        }
+        try {
+            pending.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException("Не удалось записать журнал покупок " + path, cause);
+            }
+            throw e;
+        }
+    }
+
+    private void flushLoop() {
+        boolean running = true;
+        while (running) {
+            List<PendingRecord> group = new ArrayList<>();
+            try {
+                group.add(queue.take());
+                queue.drainTo(group);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!group.isEmpty() && group.get(group.size() - 1) == CLOSE) {
+                group.remove(group.size() - 1);
+                running = false;
+            }
+            flush(group);
+        }
+        failPending();
+    }
+
+    /**
+     * Остановить приём записей и отклонить ещё не записанные.
+     * После {@link #close()} очередь уже пуста, а при прерывании потока записи иначе
+     * ожидающие и новые покупки ждали бы записи вечно
+     */
+    private void failPending() {
+        List<PendingRecord> rest = new ArrayList<>();
+        synchronized (queue) {
+            closed = true;
+            queue.drainTo(rest);
+        }
+        IllegalStateException stopped = new IllegalStateException("Журнал покупок остановлен");
+        rest.forEach(pending -> pending.done.completeExceptionally(stopped));
+    }
+
+    private void flush(List<PendingRecord> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(group.get(i).record);
+        }
+        try {
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(false);
+            syncCount.increment();
+            group.forEach(pending -> pending.done.complete(null));
+        } catch (IOException e) {
+            group.forEach(pending -> pending.done.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Применить запись к товарам
+     * @param touched товары, изменённые при восстановлении, по имени
+     * @return true - если это запись покупки
+     */
+    private static boolean apply(byte[] body, ProductDao productDao, Map<String, Product> touched)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte type = in.readByte();
+            int lines = in.readInt();
+            for (int i = 0; i < lines; i++) {
+                String name = in.readUTF();
+                int count = in.readInt();
+                Product product = touched.get(name);
+                if (product == null) {
+                    product = productDao.getByName(name);
+                    if (product == null) {
+                        // товар удалён из БД, восстанавливать нечего
+                        continue;
+                    }
+                    touched.put(name, product);
+                }
+                if (type == SNAPSHOT) {
+                    product.addCount(count - product.getOnHandCount());
+                } else {
+                    product.subtractCount(count);
+                }
+            }
+            return type == PURCHASE;
+        }
+    }
+
+    /**
+     * Прочитать тело записи по смещению
+     * @return null - если записи нет, она оборвана или контрольная сумма не совпадает
+     */
+    private byte[] readRecord(long position, long size) throws IOException {
+        if (size - position < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, position);
+        int length = header.getInt(0);
+        if (length <= 0 || length > size - position - RECORD_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(body, position + RECORD_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        return (int) crc.getValue() == header.getInt(Integer.BYTES) ? body.array() : null;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец журнала покупок " + path);
+            }
+        }
+    }
+
+    private static byte[] encode(byte type, int lines, IntFunction<Product> products,
+                                 IntUnaryOperator counts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(RECORD_HEADER_SIZE + 8 + lines * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            out.writeInt(lines);
+            for (int i = 0; i < lines; i++) {
+                out.writeUTF(products.apply(i).getName());
+                out.writeInt(counts.applyAsInt(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+        ByteBuffer.wrap(record)
+                .putInt(record.length - RECORD_HEADER_SIZE)
+                .putInt((int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Ожидающая сброса на диск запись
+     */
+    private static final class PendingRecord {
+        private final byte[] record;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingRecord(byte[] record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package shopping;
+
+import customer.Customer;
+import product.Product;
+import product.ProductDao;
+import product.ProductDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * {@link ShoppingService} над складом, разбитым на части по хешу имени товара.
+ * <p>Товар всегда находится в части {@link #shardOf(String)}, поэтому поиск по имени обращается
+ * к одной части, а чтение каталога по порядку сливает упорядоченные страницы всех частей.</p>
+ * Покупка корзины, все товары которой в одной части, выполняется одним запросом к ней.
+ * Покупка в нескольких частях выполняется в две фазы: все части параллельно откладывают
+ * свои товары, и только если отложить удалось везде, части параллельно продают отложенное;
+ * иначе отложенное возвращается в наличие. Если во второй фазе часть не смогла сохранить товары,
+ * покупка отменяется и в частях, где она уже сохранена ({@link InventoryShard#refund}), а вызывающий
+ * получает ошибку части. Покупка целиком либо выполняется, либо нет,
+ * и не держит блокировок: пока она идёт, её товары вычтены из наличия.
+ * <p>Две фазы - это два запроса к каждой части вместо одного. Если части упираются в количество
+ * запросов (например, узлы с задержкой на запрос), корзина из нескольких частей на двух частях
+ * покупается медленнее, чем на одной (см. {@code ShardedCheckoutBenchmark}), и выигрыш
+ * появляется только при большем числе частей.</p>
+ * <p>Корзины этого сервиса не откладывают товары при добавлении, резерв делает первая фаза покупки.</p>
+ *
+ * @since 18.10.2026
+ */
+public class ShardedShoppingService implements ShoppingService {
+    /**
+     * Количество товаров, читаемых за раз при потоковом чтении каталога
+     */
+    private static final int STREAM_PAGE_SIZE = 1_000;
+
+    private final InventoryShard[] shards;
+    private final CartStore cartStore;
+    /**
+     * Общий словарь частей склада
+     */
+    private final ProductDictionary dictionary;
+    private final ProductDao catalog = new MergedCatalog();
+
+    public ShardedShoppingService(List<InventoryShard> shards) {
+        this(shards, null);
+    }
+
+    /**
+     * @param shards    части склада; товар должен храниться в части с номером {@link #shardOf(String)},
+     *                  товары всех частей - нумероваться в одном словаре
+     * @param cartStore хранилище корзин, может быть null
+     */
+    public ShardedShoppingService(List<InventoryShard> shards, CartStore cartStore) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Нужна хотя бы одна часть склада");
+        }
+        ProductDictionary dictionary = shards.get(0).getProductDao().getDictionary();
+        for (InventoryShard shard : shards) {
+            if (shard.getProductDao().getDictionary() != dictionary) {
+                throw new IllegalArgumentException("Товары всех частей склада должны нумероваться в одном словаре");
+            }
+        }
+        this.shards = shards.toArray(new InventoryShard[0]);
+        this.cartStore = cartStore;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Номер части склада, в которой хранится товар с этим именем
+     */
+    public int shardOf(String name) {
+        int hash = name.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Каталог всех частей склада
+     */
+    ProductDao catalog() {
+        return catalog;
+    }
+
+    /**
+     * Часть склада, в которой хранится товар с этим именем
+     */
+    public InventoryShard shardFor(String name) {
+        return shards[shardOf(name)];
+    }
+
+    @Override
+    public Cart getCart(Customer customer) {
+        return cartStore != null
+                ? cartStore.getCart(customer)
+                : new Cart(customer);
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return catalog.getAll();
+    }
+
+    @Override
+    public List<Product> getProductsPage(String afterName, int limit) {
+        return catalog.getPage(afterName, limit);
+    }
+
+    @Override
+    public Stream<Product> streamAllProducts() {
+        return catalog.streamAll(STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public Product getProductByName(String name) {
+        return shardFor(name).getProductDao().getByName(name);
+    }
+
+    @Override
+    public List<Product> findProductsByNamePrefix(String prefix, int limit) {
+        return catalog.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public boolean buy(Cart cart) throws BuyException {
+        BuyResult result = tryBuy(cart);
+        if (result.getStatus() == BuyResult.Status.INSUFFICIENT_STOCK) {
+            throw result.toException();
+        }
+        return result.isBought();
+    }
+
+    /**
+     * После удачной покупки корзина покупателя удаляется из хранилища корзин
+     * @throws RuntimeException - при ошибке части склада; если ошибка случилась в первой фазе,
+     *                          отложенные товары возвращены в наличие
+     */
+    @Override
+    public BuyResult tryBuy(Cart cart) {
+        BuyResult result = buyLines(cart);
+        if (result.isBought() && cartStore != null) {
+            cartStore.remove(cart);
+        }
+        return result;
+    }
+
+    private BuyResult buyLines(Cart cart) {
+        int size = cart.size();
+        if (size == 0) {
+            return BuyResult.EMPTY_CART;
+        }
+        int[] shardIndexes = new int[size];
+        boolean singleShard = true;
+        for (int i = 0; i < size; i++) {
+            shardIndexes[i] = shardOf(cart.productAt(i).getName());
+            singleShard &= shardIndexes[i] == shardIndexes[0];
+        }
+        if (singleShard) {
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                counts[i] = cart.countAt(i);
+            }
+            return join(shards[shardIndexes[0]].buy(cart.productList(), counts));
+        }
+        return buyTwoPhase(split(cart, shardIndexes));
+    }
+
+    /**
+     * Разбить строки корзины по частям склада
+     */
+    private List<Part> split(Cart cart, int[] shardIndexes) {
+        Part[] byShard = new Part[shards.length];
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < shardIndexes.length; i++) {
+            Part part = byShard[shardIndexes[i]];
+            if (part == null) {
+                part = new Part(shards[shardIndexes[i]], shardIndexes.length);
+                byShard[shardIndexes[i]] = part;
+                parts.add(part);
+            }
+            part.add(cart.productAt(i), cart.countAt(i));
+        }
+        return parts;
+    }
+
+    private static BuyResult buyTwoPhase(List<Part> parts) {
+        List<CompletableFuture<BuyResult>> prepared = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            prepared.add(part.shard.prepare(part.products, part.counts()));
+        }
+        BuyResult failure = null;
+        RuntimeException error = null;
+        List<Part> reserved = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            BuyResult result;
+            try {
+                result = join(prepared.get(i));
+            } catch (RuntimeException e) {
+                error = error == null ? e : error;
+                continue;
+            }
+            if (result.isBought()) {
+                reserved.add(parts.get(i));
+            } else if (failure == null) {
+                failure = result;
+            }
+        }
+        if (failure != null || error != null) {
+            List<CompletableFuture<Void>> aborted = new ArrayList<>(reserved.size());
+            for (Part part : reserved) {
+                aborted.add(part.shard.abort(part.products, part.counts()));
+            }
+            aborted.forEach(ShardedShoppingService::join);
+            if (error != null) {
+                throw error;
+            }
+            return failure;
+        }
+        commit(parts);
+        return BuyResult.BOUGHT;
+    }
+
+    /**
+     * Вторая фаза: продать отложенное во всех частях. Часть, которая не смогла сохранить товары,
+     * сама возвращает их в наличие, а в остальных частях покупка отменяется
+     * @throws RuntimeException - ошибка первой не сохранившей товары части, ошибки отмены добавлены к ней
+     */
+    private static void commit(List<Part> parts) {
+        List<CompletableFuture<Void>> committed = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            committed.add(part.shard.commit(part.products, part.counts()));
+        }
+        RuntimeException error = null;
+        List<Part> saved = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            try {
+                join(committed.get(i));
+                saved.add(parts.get(i));
+            } catch (RuntimeException e) {
+                error = error == null ? e : error;
+            }
+        }
+        if (error == null) {
+            return;
+        }
+        List<CompletableFuture<Void>> refunded = new ArrayList<>(saved.size());
+        for (Part part : saved) {
+            refunded.add(part.shard.refund(part.products, part.counts()));
+        }
+        for (CompletableFuture<Void> refund : refunded) {
+            try {
+                join(refund);
+            } catch (RuntimeException e) {
+                error.addSuppressed(e);
+            }
+        }
+        throw error;
+    }
+
+    /**
+     * Дождаться результата запроса к части склада, ошибку части пробросить как есть
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Строки корзины, попавшие в одну часть склада
+     */
+    private static final class Part {
+        private final InventoryShard shard;
+        private final List<Product> products;
+        private int[] counts;
+
+        private Part(InventoryShard shard, int capacity) {
+            this.shard = shard;
+            this.products = new ArrayList<>(capacity);
+            this.counts = new int[capacity];
+        }
+
+        private void add(Product product, int count) {
+            counts[products.size()] = count;
+            products.add(product);
+        }
+
+        private int[] counts() {
+            if (counts.length != products.size()) {
+                counts = Arrays.copyOf(counts, products.size());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Каталог всех частей склада: упорядоченные выборки частей сливаются в одну
+     */
+    private final class MergedCatalog extends ProductDao {
+        private static final Comparator<Product> BY_NAME = Comparator.comparing(Product::getName);
+
+        @Override
+        public List<Product> getAll() {
+            List<Product> all = new ArrayList<>();
+            for (InventoryShard shard : shards) {
+                all.addAll(shard.getProductDao().getAll());
+            }
+            all.sort(BY_NAME);
+            return all;
+        }
+
+        @Override
+        public List<Product> getPage(String afterName, int limit) {
+            List<Product> page = new ArrayList<>();
+            for (InventoryShard shard : shards) {
+                page.addAll(shard.getProductDao().getPage(afterName, limit));
+            }
+            return firstSorted(page, limit);
+        }
+
+        @Override
+        public List<Product> findByNamePrefix(String prefix, int limit) {
+            List<Product> found = new ArrayList<>();
+            for (InventoryShard shard : shards) {
+                found.addAll(shard.getProductDao().findByNamePrefix(prefix, limit));
+            }
+            return firstSorted(found, limit);
+        }
+
+        @Override
+        public Product getByName(String name) {
+            return getProductByName(name);
+        }
+
+        @Override
+        public ProductDictionary getDictionary() {
+            return dictionary;
+        }
+
+        private static List<Product> firstSorted(List<Product> products, int limit) {
+            if (limit <= 0) {
+                return List.of();
+            }
+            products.sort(BY_NAME);
+            return products.size() > limit
+                    ? new ArrayList<>(products.subList(0, limit))
+                    : products;
+        }
+    }
+}
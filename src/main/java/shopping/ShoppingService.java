@@ -4,6 +4,7 @@ import customer.Customer;
 import product.Product;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Сервис покупок
@@ -23,11 +24,33 @@ public interface ShoppingService {
      */
     List<Product> getAllProducts();
 
+    /**
+     * Получить страницу товаров в порядке возрастания имени
+     * @param afterName имя последнего товара предыдущей страницы, null - первая страница
+     * @param limit максимальное количество товаров на странице
+     */
+    List<Product> getProductsPage(String afterName, int limit);
+
+    /**
+     * Получить все товары в виде потока в порядке возрастания имени.<br>
+     * Товары читаются лениво, поэтому каталог целиком в памяти не находится,
+     * а чтение можно прекратить досрочно.
+     */
+    Stream<Product> streamAllProducts();
+
     /**
      * Найти товар по имени (полное совпадение)
      */
     Product getProductByName(String name);
 
+    /**
+     * Найти товары по началу имени (для автодополнения)
+     * @param prefix начало имени
+     * @param limit максимальное количество товаров в результате
+     * @return товары в порядке возрастания имени
+     */
+    List<Product> findProductsByNamePrefix(String prefix, int limit);
+
     /**
      * Совершить покупку (уменьшает количество доступных товаров и очищает корзину)
      * @param cart корзина
@@ -35,4 +58,12 @@ public interface ShoppingService {
      * @throws BuyException - при ошибке покупки
      */
     boolean buy(Cart cart) throws BuyException;
+
+    /**
+     * Совершить покупку, как {@link #buy(Cart)}, но сообщить о нехватке товара итогом, а не исключением
+     * @param cart корзина
+     * @return итог покупки, при нехватке - какого товара не хватило и сколько,
+     * при перегрузке распродажи ({@link FlashSale}) - {@link BuyResult#OVERLOADED}
+     */
+    BuyResult tryBuy(Cart cart);
 }
@@ -5,7 +5,8 @@ import product.Product;
 import product.ProductDao;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 /**
  * Реализация {@link ShoppingService}
@@ -14,16 +15,82 @@ import java.util.Map;
  * @since 16.05.2023
  */
 public class ShoppingServiceImpl implements ShoppingService {
+    /**
+     * Количество товаров, читаемых из БД за раз при потоковом чтении каталога
+     */
+    private static final int STREAM_PAGE_SIZE = 1_000;
 
     private final ProductDao productDAO;
+    /**
+     * Хранилище корзин между запросами, null - корзина создаётся заново при каждом обращении
+     */
+    private final CartStore cartStore;
+    /**
+     * Журнал покупок, null - товары сохраняются в БД при каждой покупке
+     */
+    private final PurchaseJournal journal;
+    /**
+     * Резервы товаров, null - товары не откладываются при добавлении в корзину
+     */
+    private final StockReservations reservations;
+    /**
+     * Режим распродажи, null - все товары вычитаются CAS-операцией
+     */
+    private final FlashSale flashSale;
 
     public ShoppingServiceImpl(ProductDao productDAO) {
+        this(productDAO, null);
+    }
+
+    public ShoppingServiceImpl(ProductDao productDAO, CartStore cartStore) {
+        this(productDAO, cartStore, null);
+    }
+
+    /**
+     * Покупки записываются в журнал, а в БД - контрольными точками журнала.
+     * Покупки из журнала, не попавшие в БД до перезапуска, восстанавливаются при создании сервиса.
+     * @throws java.io.UncheckedIOException - если не удалось восстановить покупки из журнала
+     */
+    public ShoppingServiceImpl(ProductDao productDAO, CartStore cartStore, PurchaseJournal journal) {
+        this(productDAO, cartStore, journal, null);
+    }
+
+    /**
+     * @param cartStore    хранилище корзин, может быть null
+     * @param journal      журнал покупок, может быть null
+     * @param reservations резервы, в которые корзины откладывают товары при добавлении, может быть null
+     */
+    public ShoppingServiceImpl(ProductDao productDAO, CartStore cartStore, PurchaseJournal journal,
+                               StockReservations reservations) {
+        this(productDAO, cartStore, journal, reservations, null);
+    }
+
+    /**
+     * @param cartStore    хранилище корзин, может быть null
+     * @param journal      журнал покупок, может быть null
+     * @param reservations резервы, в которые корзины откладывают товары при добавлении, может быть null
+     * @param flashSale    режим распродажи, через который вычитаются распродаваемые товары, может быть null;
+     *                     см. ограничения в {@link FlashSale}
+     */
+    public ShoppingServiceImpl(ProductDao productDAO, CartStore cartStore, PurchaseJournal journal,
+                               StockReservations reservations, FlashSale flashSale) {
         this.productDAO = productDAO;
+        this.cartStore = cartStore;
+        this.journal = journal;
+        this.reservations = reservations;
+        this.flashSale = flashSale;
+        if (journal != null) {
+            journal.recover(productDAO);
+        }
     }
 
     @Override
     public Cart getCart(Customer customer) {
-        return new Cart(customer);
+        Cart cart = cartStore != null
+                ? cartStore.getCart(customer)
+                : new Cart(customer);
+        cart.useReservations(reservations);
+        return cart;
     }
 
     @Override
@@ -31,35 +98,129 @@ public class ShoppingServiceImpl implements ShoppingService {
         return productDAO.getAll();
     }
 
+    @Override
+    public List<Product> getProductsPage(String afterName, int limit) {
+        return productDAO.getPage(afterName, limit);
+    }
+
+    @Override
+    public Stream<Product> streamAllProducts() {
+        return productDAO.streamAll(STREAM_PAGE_SIZE);
+    }
+
     @Override
     public Product getProductByName(String name) {
         return productDAO.getByName(name);
     }
 
+    @Override
+    public List<Product> findProductsByNamePrefix(String prefix, int limit) {
+        return productDAO.findByNamePrefix(prefix, limit);
+    }
+
     @Override
     public boolean buy(Cart cart) throws BuyException {
-        if (cart.getProducts().isEmpty()) {
-            return false;
+        BuyResult result = tryBuy(cart);
+        if (result.getStatus() == BuyResult.Status.INSUFFICIENT_STOCK) {
+            throw result.toException();
+        }
+        return result.isBought();
+    }
+
+    /**
+     * После удачной покупки корзина покупателя удаляется из хранилища корзин:
+     * следующий {@link #getCart(Customer)} вернёт пустую корзину
+     */
+    @Override
+    public BuyResult tryBuy(Cart cart) {
+        if (cart.size() == 0) {
+            return BuyResult.EMPTY_CART;
+        }
+        BuyResult result;
+        if (journal != null) {
+            result = buyJournaled(cart);
+        } else {
+            result = subtractAllOrNothing(cart);
+            if (result.isBought()) {
+                cart.clearReservations();
+                productDAO.saveAll(cart.productList());
+            }
+        }
+        if (result.isBought() && cartStore != null) {
+            cartStore.remove(cart);
+        }
+        return result;
+    }
+
+    /**
+     * Вычесть товары и записать покупку в журнал.
+     * Если запись не удалась, товары возвращаются в наличие.
+     * Если журнал заполнен, после покупки выполняется контрольная точка.
+     */
+    private BuyResult buyJournaled(Cart cart) {
+        BuyResult result;
+        Lock purchaseLock = journal.purchaseLock();
+        purchaseLock.lock();
+        try {
+            result = subtractAllOrNothing(cart);
+            if (!result.isBought()) {
+                return result;
+            }
+            try {
+                journal.append(cart);
+            } catch (RuntimeException e) {
+                rollback(cart, cart.size());
+                throw e;
+            }
+            cart.clearReservations();
+        } finally {
+            purchaseLock.unlock();
+        }
+        journal.checkpointIfFull();
+        return result;
+    }
+
+    /**
+     * Вычесть из наличия все товары корзины либо не вычитать ни одного.<br>
+     * Отложенный товар продаётся из резерва, остальные вычитаются атомарно ({@link Product#trySubtractCount(int)}),
+     * а при нехватке любого из товаров уже вычтенные возвращаются в наличие, а проданные из резерва - в резерв.
+     * Глобальная блокировка не нужна: покупки разных товаров не мешают друг другу.
+     * Если задан режим распродажи, товары вычитаются через него ({@link FlashSale#trySubtract(Product, int)}).
+     * @return {@link BuyResult#BOUGHT}, итог с товаром, которого не хватило, или {@link BuyResult#OVERLOADED}
+     */
+    private BuyResult subtractAllOrNothing(Cart cart) {
+        for (int i = 0; i < cart.size(); i++) {
+            Product product = cart.productAt(i);
+            int count = cart.countAt(i);
+            if (cart.sellReserved(i)) {
+                continue;
+            }
+            BuyResult result = subtract(product, count);
+            if (!result.isBought()) {
+                rollback(cart, i);
+                return result;
+            }
+        }
+        return BuyResult.BOUGHT;
+    }
+
+    private BuyResult subtract(Product product, int count) {
+        if (flashSale != null) {
+            return flashSale.trySubtract(product, count);
         }
-        validateCanBuy(cart);
-        cart.getProducts().forEach((product, count) -> {
-            product.subtractCount(count);
-            productDAO.save(product);
-        });
-        return true;
+        return product.trySubtractCount(count)
+                ? BuyResult.BOUGHT
+                : BuyResult.insufficientStock(product, count, product.getLiveCount());
     }
 
     /**
-     * Проверить, что покупка может быть совершена
-     * @throws BuyException - если покупка не может быть совершена
+     * Отменить вычитание строк корзины до строки {@code failedIndex}: проданное из резерва
+     * снова отложить, остальное вернуть в наличие
      */
-    private static void validateCanBuy(Cart cart) throws BuyException {
-        for (Map.Entry<Product, Integer> entry : cart.getProducts().entrySet()) {
-            Product product = entry.getKey();
-            Integer count = entry.getValue();
-            if (product.getCount() < count) {
-                throw new BuyException("В наличии нет необходимого количества товара '%s'"
-                        .formatted(product.getName()));
+    private static void rollback(Cart cart, int failedIndex) {
+        for (int i = 0; i < failedIndex; i++) {
+            if (!cart.unsellReserved(i)) {
+                cart.productAt(i).addCount(cart.countAt(i));
             }
         }
     }
@@ -0,0 +1,211 @@
+package shopping;
+
+import product.Product;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенные в корзины товары с ограниченным сроком.
+ * <p>Отложенный товар сразу вычитается из доступного количества ({@link Product#tryReserve(int)}),
+ * поэтому доступное для продажи количество - это по-прежнему {@link Product#getLiveCount()}, без обхода
+ * отложенных товаров. Покупка продаёт отложенный товар ({@link #sell(Reservation)}), а если покупки
+ * не было в течение {@code ttl}, товар возвращается в наличие. Резервы живут только в памяти:
+ * в БД и журнал покупок отложенный товар сохраняется как товар на складе ({@link Product#getOnHandCount()}).</p>
+ * Сроки отслеживает {@link TimingWheel колесо таймеров}. Фоновый поток на каждом такте
+ * забирает все истёкшие за такт резервы и возвращает их одним проходом.
+ * <p>Каждый резерв либо продаётся, либо возвращается ровно один раз: переход из активного состояния
+ * выполняется одной CAS-операцией.</p>
+ *
+ * @since 18.10.2026
+ */
+public final class StockReservations implements AutoCloseable {
+    private static final int ACTIVE = 0;
+    private static final int SOLD = 1;
+    private static final int RELEASED = 2;
+
+    private final long ttlNanos;
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimingWheel<Reservation> timingWheel;
+    private final ScheduledExecutorService reaper;
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param ttl время, в течение которого товар остаётся отложенным
+     */
+    public StockReservations(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Срок резерва должен быть положительным");
+        }
+        this.ttlNanos = ttl.toNanos();
+        long tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), ttlNanos / 64);
+        this.timingWheel = new TimingWheel<>(tickNanos, System.nanoTime());
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservations-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleAtFixedRate(this::releaseExpired, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Отложить товар
+     * @return резерв или null, если товара недостаточно
+     */
+    public Reservation reserve(Product product, int count) {
+        if (!product.tryReserve(count)) {
+            return null;
+        }
+        return schedule(new Reservation(product, count));
+    }
+
+    /**
+     * Заменить резерв резервом на другое количество того же товара с новым сроком.
+     * Откладывается или возвращается только разница, поэтому при нехватке товара прежний резерв остаётся
+     * @return новый резерв или null, если товара недостаточно
+     */
+    public Reservation change(Reservation previous, int count) {
+        Product product = previous.product;
+        int delta = count - previous.count;
+        if (delta > 0 && !product.tryReserve(delta)) {
+            return null;
+        }
+        if (!previous.state.compareAndSet(ACTIVE, RELEASED)) {
+            // прежний резерв истёк или продан: его товар больше не отложен, откладывается всё количество
+            if (delta > 0) {
+                product.releaseReserved(delta);
+            }
+            return reserve(product, count);
+        }
+        if (delta < 0) {
+            product.releaseReserved(-delta);
+        }
+        return schedule(new Reservation(product, count));
+    }
+
+    /**
+     * Продать отложенный товар
+     * @return false - если срок резерва истёк или резерв уже продан, товар нужно вычитать заново
+     */
+    public boolean sell(Reservation reservation) {
+        if (!reservation.state.compareAndSet(ACTIVE, SOLD)) {
+            return false;
+        }
+        reservation.product.sellReserved(reservation.count);
+        return true;
+    }
+
+    /**
+     * Отменить продажу резерва, если покупка не состоялась: товар снова отложен с новым сроком
+     * @return false - если резерв не продан
+     */
+    public boolean unsell(Reservation reservation) {
+        if (!reservation.state.compareAndSet(SOLD, ACTIVE)) {
+            return false;
+        }
+        reservation.product.unsellReserved(reservation.count);
+        // прежний таймер мог сработать, пока резерв был продан, а если нет - он пропустит резерв с новым сроком
+        schedule(reservation);
+        return true;
+    }
+
+    /**
+     * Вернуть отложенный товар в наличие досрочно, например, при удалении из корзины
+     */
+    public void release(Reservation reservation) {
+        if (reservation.state.compareAndSet(ACTIVE, RELEASED)) {
+            reservation.product.releaseReserved(reservation.count);
+        }
+    }
+
+    /**
+     * Сколько резервов вернулось в наличие по истечении срока
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Остановить возврат истёкших резервов
+     */
+    @Override
+    public void close() {
+        reaper.shutdownNow();
+    }
+
+    private Reservation schedule(Reservation reservation) {
+        wheelLock.lock();
+        try {
+            reservation.deadlineNanos = System.nanoTime() + ttlNanos;
+            timingWheel.schedule(reservation, reservation.deadlineNanos);
+        } finally {
+            wheelLock.unlock();
+        }
+        return reservation;
+    }
+
+    /**
+     * Вернуть в наличие резервы, срок которых истёк, выполняется на каждом такте.
+     * Таймер резерва, срок которого продлили ({@link #unsell(Reservation)}), пропускается:
+     * резерв вернёт таймер нового срока
+     */
+    void releaseExpired() {
+        List<Reservation> batch = new ArrayList<>();
+        long now = System.nanoTime();
+        wheelLock.lock();
+        try {
+            timingWheel.advance(now, batch::add);
+        } finally {
+            wheelLock.unlock();
+        }
+        for (Reservation reservation : batch) {
+            if (now - reservation.deadlineNanos < 0) {
+                continue;
+            }
+            if (reservation.state.compareAndSet(ACTIVE, RELEASED)) {
+                reservation.product.releaseReserved(reservation.count);
+                expired.increment();
+            }
+        }
+    }
+
+    /**
+     * Отложенное количество товара
+     */
+    public static final class Reservation {
+        private final Product product;
+        private final int count;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+        /**
+         * Срок последнего запланированного таймера
+         */
+        private volatile long deadlineNanos;
+
+        private Reservation(Product product, int count) {
+            this.product = product;
+            this.count = count;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * true - если товар ещё отложен: не продан, не возвращён и срок не истёк
+         */
+        public boolean isActive() {
+            return state.get() == ACTIVE;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package shopping;
+
+import java.util.function.Consumer;
+
+/**
+ * Иерархическое колесо таймеров.
+ * <p>Время делится на такты длительностью {@code tickNanos}. Колесо состоит из {@value #LEVELS} уровней
+ * по {@value #WHEEL_SIZE} ячеек: ячейка уровня k покрывает {@code 64^k} тактов. Таймер кладётся
+ * в ячейку самого нижнего уровня, в диапазон которого попадает его срок, а при переходе времени
+ * через границу ячейки верхнего уровня её таймеры раскладываются по нижним уровням.
+ * Поэтому постановка таймера стоит O(1), а продвижение - O(1) на такт плюс O(1) на сработавший таймер,
+ * сколько бы таймеров ни было запланировано.</p>
+ * Таймеры за пределами последнего уровня лежат в отдельном списке и раскладываются заново
+ * при каждом переходе через границу ячейки последнего уровня.
+ * <p>Не потокобезопасно, синхронизацию обеспечивает владелец.</p>
+ *
+ * @param <T> тип объекта, к которому привязан таймер
+ * @since 18.10.2026
+ */
+final class TimingWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long startNanos;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Timer<T>[][] slots = new Timer[LEVELS][WHEEL_SIZE];
+    private Timer<T> overflow;
+    /**
+     * Последний обработанный такт
+     */
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickNanos  длительность такта - точность срабатывания таймеров
+     * @param startNanos момент начала отсчёта (по {@link System#nanoTime()})
+     */
+    TimingWheel(long tickNanos, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Длительность такта должна быть положительной");
+        }
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Запланировать срабатывание таймера не раньше {@code deadlineNanos}
+     */
+    void schedule(T item, long deadlineNanos) {
+        long deadlineTick = Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos);
+        place(new Timer<>(item, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Продвинуть время до {@code nowNanos} и передать сработавшие таймеры в {@code expired}
+     */
+    void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Timer<T> timer = slots[0][(int) (currentTick & WHEEL_MASK)];
+            slots[0][(int) (currentTick & WHEEL_MASK)] = null;
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                size--;
+                expired.accept(timer.item);
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * Количество запланированных таймеров
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Разложить по нижним уровням таймеры тех ячеек верхних уровней, границу которых пересёк текущий такт.
+     * Уровни обрабатываются сверху вниз, т.к. верхний уровень может переложить таймеры в ячейку,
+     * которую сейчас же нужно разложить на уровне ниже.
+     */
+    private void cascade() {
+        int level = 0;
+        while (level < LEVELS - 1 && (currentTick & ((1L << (WHEEL_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        if (level == LEVELS - 1) {
+            Timer<T> timers = overflow;
+            overflow = null;
+            replace(timers);
+        }
+        for (; level >= 1; level--) {
+            int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timer<T> timers = slots[level][slot];
+            slots[level][slot] = null;
+            replace(timers);
+        }
+    }
+
+    private void replace(Timer<T> timers) {
+        while (timers != null) {
+            Timer<T> next = timers.next;
+            place(timers);
+            timers = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                int slot = (int) ((timer.deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                timer.next = slots[level][slot];
+                slots[level][slot] = timer;
+                return;
+            }
+        }
+        timer.next = overflow;
+        overflow = timer;
+    }
+
+    private static final class Timer<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timer<T> next;
+
+        private Timer(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение импорта списка покупателей по одному ({@link CustomerService#addCustomer(Customer)})
+ * и пакетом ({@link CustomerService#addCustomers(java.util.Collection)}).
+ * <p>Результат - время импорта всего списка, пропускная способность в записях/с
+ * равна {@code records / score}. Каждый 10-й номер повторяется, каждый 20-й уже есть в БД.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=CustomerImportBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerImportBenchmark {
+
+    @Param({"10000"})
+    private int records;
+
+    @Param({"20000"})
+    private long roundTripNanos;
+
+    private List<Customer> customers;
+    private CustomerService customerService;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        RoundTripCustomerDao customerDao = new RoundTripCustomerDao(roundTripNanos);
+        for (int i = 0; i < records; i += 20) {
+            customerDao.preload(new Customer(0, phone(i)));
+        }
+        customers = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            customers.add(new Customer(0, phone(i % 10 == 9 ? i - 1 : i)));
+        }
+        customerService = new CustomerService(customerDao);
+    }
+
+    @Benchmark
+    public int singleRecord() throws Exception {
+        int added = 0;
+        for (Customer customer : customers) {
+            if (customerService.addCustomer(customer)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Benchmark
+    public int bulk() throws InterruptedException {
+        return customerService.addCustomers(customers).count(BulkAddResult.Status.ADDED);
+    }
+
+    private static String phone(int i) {
+        return "+7900%07d".formatted(i);
+    }
+}
@@ -0,0 +1,51 @@
+package customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление покупателя через {@link CustomerService#addCustomer(Customer)}
+ * поверх DAO в памяти: новый номер и уже существующий номер.
+ * <p>Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=CustomerServiceBenchmark}</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    private CustomerService customerService;
+    private Customer existing;
+    private long nextPhone;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        RoundTripCustomerDao customerDao = new RoundTripCustomerDao(0);
+        existing = new Customer(0, "+79000000000");
+        customerDao.preload(existing);
+        customerService = new CustomerService(customerDao);
+    }
+
+    @Benchmark
+    public boolean addNewCustomer() throws Exception {
+        return customerService.addCustomer(new Customer(0, Long.toString(nextPhone++)));
+    }
+
+    @Benchmark
+    public boolean addDuplicateCustomer() throws Exception {
+        return customerService.addCustomer(existing);
+    }
+}
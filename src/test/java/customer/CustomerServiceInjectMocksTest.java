@@ -0,0 +1,42 @@
+package customer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Тестирование класса {@link CustomerService}, созданного 2 способом из {@link CustomerServiceTest}:
+ * через аннотации &#064;{@link Mock} и &#064;{@link InjectMocks}.
+ * Mockito выбирает самый длинный конструктор и передаёт null вместо фильтра номеров и реестра метрик,
+ * для которых нет моков
+ */
+@ExtendWith(MockitoExtension.class)
+public class CustomerServiceInjectMocksTest {
+
+    @Mock
+    private CustomerDao customerDaoMock;
+    @InjectMocks
+    private CustomerService customerService;
+
+    /**
+     * Тестирование добавления покупателя
+     */
+    @Test
+    public void testAddCustomer() throws Exception {
+        // Подготовка
+        Customer customer = new Customer(0, "11-11-11");
+        Mockito.when(customerDaoMock.save(customer)).thenReturn(Boolean.TRUE);
+
+        // Действия
+        boolean added = customerService.addCustomer(customer);
+
+        // Проверки
+        Assertions.assertTrue(added);
+        Mockito.verify(customerDaoMock).exists("11-11-11");
+        Assertions.assertEquals(1, customerService.getMetrics().counter("customer_add_success_total").sum());
+    }
+}
@@ -1,5 +1,6 @@
 package customer;
 
+import metrics.MetricsRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +10,9 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * <p>Тестирование класса {@link CustomerService}</p>
  * <h3>Способы определения mock объектов для сервиса CustomerService</h3>
@@ -174,4 +178,105 @@ public class CustomerServiceTest {
         Assertions.assertTrue(customerService.addCustomer(customer));
         Assertions.assertTrue(customer.getId() > 0);
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирование пакетного добавления покупателей: итог по каждой записи,
+     * отсев повторов внутри пакета (по цифрам номера) и одно обращение к БД на часть пакета
+     */
+    @Test
+    public void testAddCustomers() throws Exception {
+        // Подготовка
+        List<Customer> customers = List.of(
+                new Customer(0, "11-11-11"),
+                new Customer(0, "22-22-22"),
+                new Customer(0, "111111"),
+                new Customer(0, "33-33-33"));
+        Mockito.when(customerDaoMock.existsAny(List.of("11-11-11", "22-22-22", "33-33-33")))
+                .thenReturn(Set.of("22-22-22"));
+        Mockito.when(customerDaoMock.saveAll(Mockito.anyList()))
+                .thenReturn(new boolean[]{true, false});
+
+        // Действия
+        BulkAddResult result = customerService.addCustomers(customers, 10, 2);
+
+        // Проверки
+        Assertions.assertEquals(BulkAddResult.Status.ADDED, result.getStatus(0));
+        Assertions.assertEquals(BulkAddResult.Status.ALREADY_EXISTS, result.getStatus(1));
+        Assertions.assertEquals(BulkAddResult.Status.DUPLICATE_IN_BATCH, result.getStatus(2));
+        Assertions.assertEquals(BulkAddResult.Status.NOT_SAVED, result.getStatus(3));
+        Mockito.verify(customerDaoMock).saveAll(List.of(customers.get(0), customers.get(3)));
+        Mockito.verify(customerDaoMock, Mockito.never()).save(Mockito.any(Customer.class));
+    }
+
+    /**
+     * Тестирование того, что ошибка БД на одной части пакета
+     * не прерывает обработку остальных частей
+     */
+    @Test
+    public void testAddCustomersContinuesAfterChunkFailure() throws Exception {
+        // Подготовка
+        Mockito.when(customerDaoMock.existsAny(List.of("11-11-11")))
+                .thenThrow(new IllegalStateException("БД недоступна"));
+        Mockito.when(customerDaoMock.existsAny(List.of("22-22-22")))
+                .thenReturn(Set.of());
+        Mockito.when(customerDaoMock.saveAll(Mockito.anyList()))
+                .thenReturn(new boolean[]{true});
+
+        // Действия
+        BulkAddResult result = customerService.addCustomers(
+                List.of(new Customer(0, "11-11-11"), new Customer(0, "22-22-22")), 1, 1);
+
+        // Проверки
+        Assertions.assertEquals(BulkAddResult.Status.FAILED, result.getStatus(0));
+        Assertions.assertEquals(BulkAddResult.Status.ADDED, result.getStatus(1));
+        Assertions.assertEquals(1, result.getErrors().size());
+    }
+
+    /**
+     * Тестирование того, что записи части пакета, обработку которой прервала ошибка JVM,
+     * не считаются добавленными
+     */
+    @Test
+    public void testAddCustomersChunkDiedWithError() throws Exception {
+        // Подготовка
+        Mockito.when(customerDaoMock.existsAny(List.of("11-11-11")))
+                .thenThrow(new StackOverflowError());
+        Mockito.when(customerDaoMock.existsAny(List.of("22-22-22")))
+                .thenReturn(Set.of());
+        Mockito.when(customerDaoMock.saveAll(Mockito.anyList()))
+                .thenReturn(new boolean[]{true});
+
+        // Действия
+        BulkAddResult result = customerService.addCustomers(
+                List.of(new Customer(0, "11-11-11"), new Customer(0, "22-22-22")), 1, 1);
+
+        // Проверки
+        Assertions.assertEquals(BulkAddResult.Status.PENDING, result.getStatus(0));
+        Assertions.assertEquals(BulkAddResult.Status.ADDED, result.getStatus(1));
+        Assertions.assertEquals(1, result.count(BulkAddResult.Status.ADDED));
+    }
+
+    /**
+     * Тестирование метрик добавления покупателя: итоги по видам и задержка каждого вызова
+     */
+    @Test
+    public void testAddCustomerMetrics() throws Exception {
+        // Подготовка
+        Mockito.when(customerDaoMock.exists("11-11-11")).thenReturn(true);
+        Mockito.when(customerDaoMock.exists("33-33-33")).thenThrow(new IllegalStateException("БД недоступна"));
+        Mockito.when(customerDaoMock.save(Mockito.any(Customer.class))).thenReturn(true);
+
+        // Действия
+        customerService.addCustomer(new Customer(0, "11-11-11"));
+        customerService.addCustomer(new Customer(0, "22-22-22"));
+        Assertions.assertThrows(Exception.class, () -> customerService.addCustomer(new Customer(0, "33-33-33")));
+
+        // Проверки
+        MetricsRegistry metrics = customerService.getMetrics();
+        Assertions.assertEquals(1, metrics.counter("customer_add_duplicate_phone_total").sum());
+        Assertions.assertEquals(1, metrics.counter("customer_add_success_total").sum());
+        Assertions.assertEquals(1, metrics.counter("customer_add_error_total").sum());
+        Assertions.assertEquals(0, metrics.counter("customer_add_not_saved_total").sum());
+        Assertions.assertEquals(3, metrics.histogram("customer_add_latency_ns").snapshot().count());
+    }
+}
@@ -0,0 +1,138 @@
+package customer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Тестирование класса {@link InMemoryCustomerDao}
+ */
+public class InMemoryCustomerDaoTest {
+
+    /**
+     * Тестирование сохранения, проверки и удаления покупателя с учётом того,
+     * что номера сравниваются по цифрам, а ведущие нули значимы
+     */
+    @Test
+    public void testSaveExistsDelete() {
+        // Подготовка
+        InMemoryCustomerDao customerDao = new InMemoryCustomerDao();
+        Customer first = new Customer(0, "+7 (900) 111-11-11");
+        Customer second = new Customer(0, "011-11-11");
+
+        // Действия
+        boolean firstSaved = customerDao.save(first);
+        boolean secondSaved = customerDao.save(second);
+        boolean duplicateSaved = customerDao.save(new Customer(0, "79001111111"));
+        boolean invalidSaved = customerDao.save(new Customer(0, "без номера"));
+
+        // Проверки
+        Assertions.assertTrue(firstSaved);
+        Assertions.assertTrue(secondSaved);
+        Assertions.assertFalse(duplicateSaved);
+        Assertions.assertFalse(invalidSaved);
+        Assertions.assertNotEquals(first.getId(), second.getId());
+        Assertions.assertTrue(customerDao.exists("79001111111"));
+        Assertions.assertTrue(customerDao.exists("0111111"));
+        Assertions.assertFalse(customerDao.exists("111111"));
+        Assertions.assertEquals("79001111111", customerDao.getPhone(first.getId()));
+        Assertions.assertEquals(Set.of("79001111111", "0111111"),
+                customerDao.streamPhones().collect(Collectors.toSet()));
+
+        customerDao.delete(first);
+        Assertions.assertFalse(customerDao.exists("+79001111111"));
+        Assertions.assertNull(customerDao.getPhone(first.getId()));
+        Assertions.assertEquals(1, customerDao.size());
+        Assertions.assertTrue(customerDao.save(new Customer(0, "79001111111")));
+    }
+
+    /**
+     * Тестирование того, что выдаваемые идентификаторы пропускают явно сохранённые
+     */
+    @Test
+    public void testGeneratedIdSkipsExplicitId() {
+        // Подготовка
+        InMemoryCustomerDao customerDao = new InMemoryCustomerDao();
+        Customer explicit = new Customer(3, "100");
+        Customer first = new Customer(0, "101");
+        Customer second = new Customer(0, "102");
+        Customer third = new Customer(0, "103");
+
+        // Действия
+        boolean explicitSaved = customerDao.save(explicit);
+        boolean firstSaved = customerDao.save(first);
+        boolean secondSaved = customerDao.save(second);
+        boolean thirdSaved = customerDao.save(third);
+        boolean takenIdSaved = customerDao.save(new Customer(3, "104"));
+
+        // Проверки
+        Assertions.assertTrue(explicitSaved);
+        Assertions.assertTrue(firstSaved);
+        Assertions.assertTrue(secondSaved);
+        Assertions.assertTrue(thirdSaved);
+        Assertions.assertFalse(takenIdSaved);
+        Assertions.assertEquals(4, Stream.of(3L, first.getId(), second.getId(), third.getId()).distinct().count());
+        Assertions.assertTrue(first.getId() > 3);
+        Assertions.assertEquals("100", customerDao.getPhone(3));
+        Assertions.assertEquals("103", customerDao.getPhone(third.getId()));
+    }
+
+    /**
+     * Тестирование того, что при одновременной регистрации одних и тех же номеров каждый номер
+     * сохраняется ровно один раз, а удаление части покупателей не теряет остальных
+     */
+    @Test
+    public void testConcurrentSaveAndDelete() throws Exception {
+        // Подготовка
+        InMemoryCustomerDao customerDao = new InMemoryCustomerDao(0);
+        int threads = 8;
+        int phones = 20_000;
+        AtomicInteger saved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Действия
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < phones; i++) {
+                    Customer customer = new Customer(0, "+7900" + i);
+                    if (customerDao.save(customer)) {
+                        saved.incrementAndGet();
+                        if (i % 2 == 0) {
+                            customerDao.delete(customer);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Проверки
+        Assertions.assertEquals(phones / 2, customerDao.size());
+        for (int i = 0; i < phones; i++) {
+            Assertions.assertEquals(i % 2 != 0, customerDao.exists("+7900" + i), "+7900" + i);
+        }
+        try (Stream<String> stored = customerDao.streamPhones()) {
+            Assertions.assertEquals(phones / 2, stored.count());
+        }
+        Assertions.assertTrue(saved.get() >= phones);
+    }
+}
@@ -0,0 +1,79 @@
+package customer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.stream.Stream;
+
+/**
+ * Тестирование класса {@link PhoneBloomFilter} и его использования в {@link CustomerService}
+ */
+public class PhoneBloomFilterTest {
+
+    /**
+     * Тестирование отсутствия ложноотрицательных ответов
+     * и соблюдения заданной вероятности ложного срабатывания
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        // Подготовка
+        PhoneBloomFilter filter = new PhoneBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("+7900" + i);
+        }
+
+        // Действия и проверки
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(filter.mightContain("+7900" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("+7800" + i)) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertTrue(falsePositives < 2_000, "Ложных срабатываний: " + falsePositives);
+    }
+
+    /**
+     * Тестирование того, что для номера, которого точно нет в фильтре,
+     * сервис не проверяет существование номера в БД
+     */
+    @Test
+    public void testAddCustomerSkipsExistsForUnseenPhone() throws Exception {
+        // Подготовка
+        CustomerDao customerDaoMock = Mockito.mock(CustomerDao.class);
+        Mockito.when(customerDaoMock.save(Mockito.any(Customer.class))).thenReturn(Boolean.TRUE);
+        CustomerService customerService = new CustomerService(customerDaoMock, new PhoneBloomFilter(1_000, 0.001));
+
+        // Действия
+        Assertions.assertTrue(customerService.addCustomer(new Customer(0, "11-11-11")));
+
+        // Проверки
+        Mockito.verify(customerDaoMock, Mockito.never()).exists(Mockito.anyString());
+        Assertions.assertEquals(new CustomerService.PhoneFilterStats(1, 0, 0),
+                customerService.getPhoneFilterStats());
+    }
+
+    /**
+     * Тестирование того, что после пересборки фильтра из БД повторный номер
+     * проверяется в БД и не добавляется
+     */
+    @Test
+    public void testRebuildPhoneFilterFromDao() throws Exception {
+        // Подготовка
+        CustomerDao customerDaoMock = Mockito.mock(CustomerDao.class);
+        Mockito.when(customerDaoMock.streamPhones()).thenReturn(Stream.of("11-11-11", "22-22-22"));
+        Mockito.when(customerDaoMock.exists("22-22-22")).thenReturn(Boolean.TRUE);
+        CustomerService customerService = new CustomerService(customerDaoMock, new PhoneBloomFilter(1_000, 0.001));
+
+        // Действия
+        customerService.rebuildPhoneFilter(1_000, 0.001);
+
+        // Проверки
+        Assertions.assertFalse(customerService.addCustomer(new Customer(0, "22-22-22")));
+        Mockito.verify(customerDaoMock).exists("22-22-22");
+        Mockito.verify(customerDaoMock, Mockito.never()).save(Mockito.any(Customer.class));
+    }
+}
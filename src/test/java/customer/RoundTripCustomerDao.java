@@ -0,0 +1,79 @@
+package customer;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Заменитель {@link CustomerDao} для бенчмарков: хранит покупателей в памяти,
+ * а каждый вызов (одиночный или пакетный) стоит одного обращения к БД длительностью {@code roundTripNanos}
+ */
+class RoundTripCustomerDao extends CustomerDao {
+
+    private final ConcurrentHashMap<String, Customer> byPhone = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final long roundTripNanos;
+
+    RoundTripCustomerDao(long roundTripNanos) {
+        this.roundTripNanos = roundTripNanos;
+    }
+
+    @Override
+    public boolean save(Customer customer) {
+        roundTrip();
+        return saveInMemory(customer);
+    }
+
+    @Override
+    public boolean[] saveAll(List<Customer> customers) {
+        roundTrip();
+        boolean[] saved = new boolean[customers.size()];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = saveInMemory(customers.get(i));
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean exists(String phone) {
+        roundTrip();
+        return byPhone.containsKey(phone);
+    }
+
+    @Override
+    public Set<String> existsAny(Collection<String> phones) {
+        roundTrip();
+        Set<String> existing = new HashSet<>();
+        for (String phone : phones) {
+            if (byPhone.containsKey(phone)) {
+                existing.add(phone);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Сохранить покупателя без задержки, для подготовки данных
+     */
+    void preload(Customer customer) {
+        saveInMemory(customer);
+    }
+
+    private boolean saveInMemory(Customer customer) {
+        if (byPhone.putIfAbsent(customer.getPhone(), customer) != null) {
+            return false;
+        }
+        customer.setId(ids.incrementAndGet());
+        return true;
+    }
+
+    private void roundTrip() {
+        long end = System.nanoTime() + roundTripNanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
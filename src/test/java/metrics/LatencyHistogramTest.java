@@ -0,0 +1,72 @@
+package metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+/**
+ * Тестирование класса {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Тестирование того, что каждое значение попадает в корзину, границы которой его содержат,
+     * а ширина корзины не больше 1/16 значения
+     */
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            // Действия
+            int bucket = LatencyHistogram.bucketOf(value);
+
+            // Проверки
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            long lower = bucket == 0 ? 0 : LatencyHistogram.upperBoundOf(bucket - 1) + 1;
+            Assertions.assertTrue(lower <= value && value <= upper, "value = " + value);
+            Assertions.assertTrue(upper - lower <= Math.max(0, value / 16), "value = " + value);
+        }
+    }
+
+    /**
+     * Тестирование квантилей при конкурентной записи значений 1..100 000 нс
+     */
+    @Test
+    public void testQuantiles() {
+        // Подготовка
+        LatencyHistogram histogram = new MetricsRegistry().histogram("test_latency_ns");
+
+        // Действия
+        IntStream.rangeClosed(1, 100_000).parallel().forEach(histogram::record);
+
+        // Проверки
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assertions.assertEquals(100_000, snapshot.count());
+        Assertions.assertEquals(100_000, snapshot.maxNanos());
+        Assertions.assertEquals(50_000.5, snapshot.meanNanos(), 1e-9);
+        Assertions.assertEquals(50_000, snapshot.quantileNanos(0.5), 50_000 / 16.0);
+        Assertions.assertEquals(99_000, snapshot.quantileNanos(0.99), 99_000 / 16.0);
+        Assertions.assertEquals(100_000, snapshot.quantileNanos(1));
+    }
+
+    /**
+     * Тестирование выгрузки метрик в текстовом формате Prometheus
+     */
+    @Test
+    public void testExport() {
+        // Подготовка
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("orders_total").add(3);
+        metrics.histogram("order_latency_ns").record(100);
+
+        // Действия
+        String text = metrics.export();
+
+        // Проверки
+        Assertions.assertTrue(text.contains("# TYPE orders_total counter\norders_total 3\n"), text);
+        Assertions.assertTrue(text.contains("order_latency_ns{quantile=\"0.99\"} 100\n"), text);
+        Assertions.assertTrue(text.contains("order_latency_ns_count 1\n"), text);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> metrics.histogram("orders_total"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> metrics.counter("заказы"));
+    }
+}
@@ -0,0 +1,66 @@
+package metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость метрик на один инструментированный вызов: увеличение счётчика
+ * и запись задержки вместе с замером времени, в одном и в нескольких потоках.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=MetricsBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Counter counter = metrics.counter("benchmark_total");
+    private final LatencyHistogram histogram = metrics.histogram("benchmark_latency_ns");
+
+    @Benchmark
+    @Threads(1)
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void record() {
+        histogram.record(1_000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void counter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void timedCall() {
+        long start = System.nanoTime();
+        counter.increment();
+        histogram.recordSince(start);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void timedCallConcurrent() {
+        long start = System.nanoTime();
+        counter.increment();
+        histogram.recordSince(start);
+    }
+}
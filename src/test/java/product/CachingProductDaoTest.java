@@ -0,0 +1,41 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Тестирование класса {@link CachingProductDao}
+ */
+public class CachingProductDaoTest {
+
+    private final ProductDao productDaoMock = Mockito.mock(ProductDao.class);
+    private final CachingProductDao cachingProductDao = new CachingProductDao(productDaoMock,
+            new SegmentedLruProductCache(100, Duration.ZERO));
+
+    /**
+     * Тестирование того, что повторный поиск товара не обращается к БД,
+     * а после сохранения товара (как при покупке) читается заново
+     */
+    @Test
+    public void testReadThroughAndInvalidationOnSave() {
+        // Подготовка
+        Product product = new Product("Хлеб", 10);
+        Mockito.when(productDaoMock.getByName("Хлеб")).thenReturn(product);
+
+        // Действия
+        cachingProductDao.getByName("Хлеб");
+        cachingProductDao.getByName("Хлеб");
+        cachingProductDao.saveAll(List.of(product));
+        cachingProductDao.getByName("Хлеб");
+
+        // Проверки
+        Mockito.verify(productDaoMock, Mockito.times(2)).getByName("Хлеб");
+        Mockito.verify(productDaoMock).saveAll(List.of(product));
+        Assertions.assertEquals(new ProductCache.CacheStats(1, 2, 0),
+                cachingProductDao.getCache().stats());
+    }
+}
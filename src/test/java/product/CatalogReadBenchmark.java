@@ -0,0 +1,69 @@
+package product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение каталога ({@code getByName}, {@code getAll}) и покупка одного товара с сохранением
+ * в {@link InMemoryProductDao} и {@link VersionedProductDao} на каталоге из {@value #PRODUCTS} товаров.
+ * <p>{@code getAll} измеряется без сохранений между вызовами, т.е. для версионного каталога -
+ * стоимость чтения уже построенного списка версии.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=CatalogReadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogReadBenchmark {
+    private static final int PRODUCTS = 10_000;
+
+    @Param({"inMemory", "versioned"})
+    private String dao;
+
+    private ProductDao productDao;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        productDao = dao.equals("versioned")
+                ? new VersionedProductDao()
+                : new InMemoryProductDao();
+        names = new String[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            names[i] = "Товар " + i;
+            productDao.save(new Product(names[i], Integer.MAX_VALUE));
+        }
+    }
+
+    @Benchmark
+    public Product getByName() {
+        return productDao.getByName(names[ThreadLocalRandom.current().nextInt(PRODUCTS)]);
+    }
+
+    @Benchmark
+    public List<Product> getAll() {
+        return productDao.getAll();
+    }
+
+    @Benchmark
+    public void buy() {
+        Product product = productDao.getByName(names[ThreadLocalRandom.current().nextInt(PRODUCTS)]);
+        product.trySubtractCount(1);
+        productDao.save(product);
+    }
+}
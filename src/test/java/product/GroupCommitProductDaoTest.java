@@ -0,0 +1,121 @@
+package product;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Тестирование класса {@link GroupCommitProductDao}
+ */
+public class GroupCommitProductDaoTest {
+
+    private final ProductDao delegateMock = Mockito.mock(ProductDao.class);
+    private final GroupCommitProductDao groupCommitDao
+            = new GroupCommitProductDao(delegateMock, 3, Duration.ofSeconds(5));
+
+    @AfterEach
+    public void tearDown() {
+        groupCommitDao.close();
+    }
+
+    /**
+     * Тестирование того, что сохранения из разных потоков записываются одним пакетом,
+     * как только пакет заполнился, не дожидаясь истечения maxWait
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentSavesAreMergedIntoOneBatch() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 1);
+        Product milk = new Product("Молоко", 1);
+        Product eggs = new Product("Яйца", 1);
+
+        // Действия
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> groupCommitDao.saveAll(List.of(bread, milk))),
+                CompletableFuture.runAsync(() -> groupCommitDao.save(eggs))
+        ).join();
+
+        // Проверки
+        ArgumentCaptor<Collection<Product>> batch = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(delegateMock, Mockito.times(1)).saveAll(batch.capture());
+        Assertions.assertEquals(3, batch.getValue().size());
+        Mockito.verify(delegateMock, Mockito.never()).save(Mockito.any());
+    }
+
+    /**
+     * Тестирование того, что ошибка записи пакета пробрасывается ожидающему потоку
+     */
+    @Test
+    public void testBatchErrorIsPropagatedToCaller() {
+        // Подготовка
+        Mockito.doThrow(new IllegalStateException("БД недоступна"))
+                .when(delegateMock).saveAll(Mockito.any());
+        List<Product> fullBatch = List.of(new Product("Хлеб", 1), new Product("Молоко", 1), new Product("Яйца", 1));
+
+        // Действия
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> groupCommitDao.saveAll(fullBatch));
+
+        // Проверки
+        Assertions.assertEquals("БД недоступна", exception.getMessage());
+    }
+
+    /**
+     * Тестирование того, что после прерывания потока записи сохранения не зависают,
+     * а отклоняются, как после закрытия
+     */
+    @Test
+    public void testSaveAfterFlusherInterrupted() throws InterruptedException {
+        // Подготовка
+        Thread flusher = groupCommitDao.flusher();
+
+        // Действия
+        flusher.interrupt();
+        flusher.join();
+
+        // Проверки
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> groupCommitDao.save(new Product("Хлеб", 1)));
+        Assertions.assertEquals("Групповое сохранение товаров уже остановлено", exception.getMessage());
+    }
+
+    /**
+     * Тестирование того, что поиск по номеру идёт в словаре и данных DAO, в который записываются пакеты
+     */
+    @Test
+    public void testGetByIdUsesDelegateDictionary() {
+        // Подготовка
+        ProductDictionary dictionary = new ProductDictionary();
+        InMemoryProductDao base = new InMemoryProductDao(dictionary);
+        Product apple = new Product("Яблоко", 1, dictionary);
+        base.save(apple);
+
+        // Действия
+        try (GroupCommitProductDao productDao = new GroupCommitProductDao(base, 3, Duration.ofSeconds(5))) {
+            // Проверки
+            Assertions.assertSame(dictionary, productDao.getDictionary());
+            Assertions.assertSame(apple, productDao.getById(apple.getId()));
+        }
+    }
+
+    /**
+     * Тестирование того, что после закрытия новые сохранения не принимаются
+     */
+    @Test
+    public void testSaveAfterClose() {
+        // Действия
+        groupCommitDao.close();
+
+        // Проверки
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> groupCommitDao.save(new Product("Хлеб", 1)));
+    }
+}
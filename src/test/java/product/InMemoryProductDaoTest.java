@@ -0,0 +1,99 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Тестирование класса {@link InMemoryProductDao}
+ */
+public class InMemoryProductDaoTest {
+
+    private final InMemoryProductDao productDao = new InMemoryProductDao();
+
+    /**
+     * Тестирование поиска по началу имени: порядок по имени, ограничение количества
+     * и отсутствие товаров, которые лишь следуют за префиксом в порядке сортировки
+     */
+    @Test
+    public void testFindByNamePrefix() {
+        // Подготовка
+        productDao.save(new Product("Молоко 3.2%", 1));
+        productDao.save(new Product("Мука", 1));
+        productDao.save(new Product("Молоко 1.5%", 1));
+        productDao.save(new Product("Морковь", 1));
+        productDao.save(new Product("Молоток", 1));
+
+        // Действия и проверки
+        Assertions.assertEquals(List.of("Молоко 1.5%", "Молоко 3.2%", "Молоток"),
+                names(productDao.findByNamePrefix("Моло", 10)));
+        Assertions.assertEquals(List.of("Молоко 1.5%"),
+                names(productDao.findByNamePrefix("Моло", 1)));
+        Assertions.assertTrue(productDao.findByNamePrefix("Хлеб", 10).isEmpty());
+    }
+
+    /**
+     * Тестирование того, что при конкурентном сохранении товаров с одним именем
+     * поиск по полному имени, по префиксу и по номеру возвращает один и тот же объект
+     */
+    @Test
+    public void testIndexesStayConsistentUnderConcurrentSave() {
+        // Действия
+        IntStream.range(0, 10_000).parallel()
+                .forEach(i -> productDao.save(new Product("Товар " + (i % 100), i)));
+
+        // Проверки
+        Assertions.assertEquals(100, productDao.getAll().size());
+        for (int i = 0; i < 100; i++) {
+            String name = "Товар " + i;
+            Product byPrefix = productDao.findByNamePrefix(name, 1).get(0);
+            Assertions.assertSame(productDao.getByName(name), byPrefix);
+            Assertions.assertSame(byPrefix, productDao.getById(byPrefix.getId()));
+        }
+    }
+
+    /**
+     * Тестирование постраничного чтения: страницы идут подряд без пропусков и повторов
+     */
+    @Test
+    public void testGetPage() {
+        // Подготовка
+        for (String name : List.of("Д", "Б", "А", "Г", "В")) {
+            productDao.save(new Product(name, 1));
+        }
+
+        // Действия и проверки
+        Assertions.assertEquals(List.of("А", "Б"), names(productDao.getPage(null, 2)));
+        Assertions.assertEquals(List.of("В", "Г"), names(productDao.getPage("Б", 2)));
+        Assertions.assertEquals(List.of("Д"), names(productDao.getPage("Г", 2)));
+        Assertions.assertTrue(productDao.getPage("Д", 2).isEmpty());
+    }
+
+    /**
+     * Тестирование ленивости потокового чтения: при досрочном прекращении чтения
+     * следующие страницы из DAO не запрашиваются
+     */
+    @Test
+    public void testStreamAllReadsPagesLazily() {
+        // Подготовка
+        InMemoryProductDao productDaoSpy = Mockito.spy(productDao);
+        for (int i = 0; i < 10; i++) {
+            productDaoSpy.save(new Product("Товар " + i, 1));
+        }
+
+        // Действия
+        List<String> firstThree = productDaoSpy.streamAll(2).limit(3).map(Product::getName).toList();
+
+        // Проверки
+        Assertions.assertEquals(List.of("Товар 0", "Товар 1", "Товар 2"), firstThree);
+        Mockito.verify(productDaoSpy, Mockito.times(2)).getPage(Mockito.any(), Mockito.eq(2));
+        Assertions.assertEquals(10, productDaoSpy.streamAll(3).count());
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
+}
@@ -0,0 +1,139 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Тестирование класса {@link MappedProductDao}
+ */
+public class MappedProductDaoTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Тестирование того, что товары и изменения количества на месте сохраняются после повторного открытия
+     */
+    @Test
+    public void testReopenKeepsProductsAndCounts() throws Exception {
+        // Подготовка
+        try (MappedProductDao productDao = new MappedProductDao(directory, 100, 4096, null)) {
+            productDao.save(new Product("Молоко", 10));
+            productDao.save(new Product("Хлеб", 5));
+            productDao.save(new Product("Хлеб", 7));
+
+            Product milk = productDao.getByName("Молоко");
+            Assertions.assertTrue(milk.trySubtractCount(3));
+            Assertions.assertFalse(milk.trySubtractCount(8));
+            productDao.save(milk);
+        }
+
+        // Действия
+        try (MappedProductDao productDao = new MappedProductDao(directory, 1, 1, null)) {
+            // Проверки
+            Assertions.assertEquals(2, productDao.size());
+            Assertions.assertEquals(7, productDao.getByName("Молоко").getCount());
+            Assertions.assertEquals(7, productDao.getByName("Хлеб").getCount());
+            Assertions.assertNull(productDao.getByName("Сыр"));
+        }
+    }
+
+    /**
+     * Тестирование того, что резерв хранится в файле вместе с количеством: его видят все объекты товара,
+     * сохранение другого объекта товара его не теряет, а после повторного открытия отложенный товар
+     * возвращается в наличие
+     */
+    @Test
+    public void testReservationsReturnAfterReopen() throws Exception {
+        // Подготовка
+        try (MappedProductDao productDao = new MappedProductDao(directory, 16, 1024, null)) {
+            productDao.save(new Product("Молоко", 10));
+            Assertions.assertTrue(productDao.getByName("Молоко").tryReserve(3));
+            Product milk = productDao.getByName("Молоко");
+            Assertions.assertEquals(7, milk.getCount());
+            Assertions.assertEquals(3, milk.getReserved());
+            Assertions.assertEquals(10, milk.getOnHandCount());
+
+            productDao.save(new Product("Молоко", 12));
+            Assertions.assertEquals(9, milk.getCount());
+            Assertions.assertEquals(3, milk.getReserved());
+        }
+
+        // Действия
+        try (MappedProductDao productDao = new MappedProductDao(directory, 16, 1024, null)) {
+            Product milk = productDao.getByName("Молоко");
+
+            // Проверки
+            Assertions.assertEquals(12, milk.getCount());
+            Assertions.assertEquals(0, milk.getReserved());
+        }
+    }
+
+    /**
+     * Тестирование того, что разные объекты одного товара видят одно количество,
+     * и конкурентные покупки не продают больше, чем есть
+     */
+    @Test
+    public void testConcurrentSubtractSharesCount() throws Exception {
+        try (MappedProductDao productDao = new MappedProductDao(directory, 16, 1024, null)) {
+            // Подготовка
+            productDao.save(new Product("Товар", 1000));
+
+            // Действия
+            long bought = IntStream.range(0, 2000).parallel()
+                    .filter(i -> productDao.getByName("Товар").trySubtractCount(1))
+                    .count();
+
+            // Проверки
+            Assertions.assertEquals(1000, bought);
+            Assertions.assertEquals(0, productDao.getByName("Товар").getCount());
+        }
+    }
+
+    /**
+     * Тестирование поиска по префиксу и постраничного чтения в порядке имени
+     */
+    @Test
+    public void testPrefixAndPages() throws Exception {
+        try (MappedProductDao productDao = new MappedProductDao(directory, 16, 1024, null)) {
+            // Подготовка
+            for (String name : List.of("Морковь", "Молоко 3.2%", "Мука", "Молоток", "Молоко 1.5%")) {
+                productDao.save(new Product(name, 1));
+            }
+
+            // Действия и проверки
+            Assertions.assertEquals(List.of("Молоко 1.5%", "Молоко 3.2%"),
+                    names(productDao.findByNamePrefix("Моло", 2)));
+            Assertions.assertEquals(List.of("Молоток", "Морковь"),
+                    names(productDao.getPage("Молоко 3.2%", 2)));
+            Assertions.assertEquals(List.of("Молоко 1.5%", "Молоко 3.2%", "Молоток", "Морковь", "Мука"),
+                    names(productDao.streamAll(2).toList()));
+        }
+    }
+
+    /**
+     * Тестирование того, что переполнение хранилища не портит уже сохранённые товары
+     */
+    @Test
+    public void testCapacityExceeded() throws Exception {
+        try (MappedProductDao productDao = new MappedProductDao(directory, 2, 1024, null)) {
+            // Подготовка
+            productDao.save(new Product("А", 1));
+            productDao.save(new Product("Б", 2));
+
+            // Действия и проверки
+            Assertions.assertThrows(IllegalStateException.class, () -> productDao.save(new Product("В", 3)));
+            Assertions.assertEquals(2, productDao.getAll().size());
+            Assertions.assertEquals(2, productDao.getByName("Б").getCount());
+        }
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение товара после покупки через {@link ChangeFeedProductDao} с одним подписчиком
+ * и без ленты изменений.
+ * <p>Подписчик только складывает количества. Выделение памяти на публикацию видно
+ * с профилировщиком: {@code -Djmh.args="ProductChangeFeedBenchmark -prof gc"}.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=ProductChangeFeedBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductChangeFeedBenchmark {
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"SLEEPING", "BLOCKING"})
+    private ProductChangeFeed.WaitStrategy waitStrategy;
+
+    private ProductChangeFeed feed;
+    private ProductDao plainDao;
+    private ProductDao feedDao;
+    private Product plainProduct;
+    private Product feedProduct;
+    private long consumed;
+
+    @Setup
+    public void setUp() {
+        feed = new ProductChangeFeed(1 << 16, waitStrategy, ProductChangeFeed.OverflowPolicy.BLOCK);
+        feed.subscribe("benchmark", (change, endOfBatch) -> consumed += change.getNewCount());
+        plainDao = new InMemoryProductDao();
+        plainProduct = new Product("Хлеб", STOCK);
+        plainDao.save(plainProduct);
+        InMemoryProductDao delegate = new InMemoryProductDao();
+        delegate.save(new Product("Хлеб", STOCK));
+        feedDao = new ChangeFeedProductDao(delegate, feed);
+        feedProduct = feedDao.getByName("Хлеб");
+    }
+
+    @TearDown
+    public void tearDown(Blackhole blackhole) {
+        feed.close();
+        blackhole.consume(consumed);
+    }
+
+    @Benchmark
+    public void saveWithoutFeed() {
+        buyOne(plainDao, plainProduct);
+    }
+
+    @Benchmark
+    public void saveWithFeed() {
+        buyOne(feedDao, feedProduct);
+    }
+
+    private static void buyOne(ProductDao productDao, Product product) {
+        if (!product.trySubtractCount(1)) {
+            product.addCount(STOCK);
+        }
+        productDao.save(product);
+    }
+}
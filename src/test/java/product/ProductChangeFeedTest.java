@@ -0,0 +1,95 @@
+package product;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import shopping.Cart;
+import shopping.ShoppingServiceImpl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Тестирование классов {@link ProductChangeFeed} и {@link ChangeFeedProductDao}
+ */
+public class ProductChangeFeedTest {
+
+    /**
+     * Тестирование того, что подписчик получает каждое изменение количества из покупок по порядку,
+     * с прежним и новым количеством
+     */
+    @Test
+    public void testSubscriberReceivesPurchases() throws Exception {
+        // Подготовка
+        ProductChangeFeed feed = new ProductChangeFeed(8,
+                ProductChangeFeed.WaitStrategy.BLOCKING, ProductChangeFeed.OverflowPolicy.BLOCK);
+        List<String> changes = new CopyOnWriteArrayList<>();
+        ProductChangeFeed.Subscription subscription = feed.subscribe("test",
+                (change, endOfBatch) -> changes.add(change.toString()));
+        InMemoryProductDao inMemoryProductDao = new InMemoryProductDao();
+        inMemoryProductDao.save(new Product("Хлеб", 10));
+        inMemoryProductDao.save(new Product("Молоко", 10));
+        ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(
+                new ChangeFeedProductDao(inMemoryProductDao, feed));
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(shoppingService.getProductByName("Хлеб"), 2);
+        cart.add(shoppingService.getProductByName("Молоко"), 1);
+
+        // Действия
+        for (int i = 0; i < 10; i++) {
+            if (!shoppingService.tryBuy(cart).isBought()) {
+                break;
+            }
+        }
+        feed.close();
+
+        // Проверки
+        Assertions.assertEquals(10, changes.size());
+        Assertions.assertEquals(List.of("#0 Хлеб: 10 -> 8", "#1 Молоко: 10 -> 9", "#2 Хлеб: 8 -> 6"),
+                changes.subList(0, 3));
+        Assertions.assertEquals("#9 Молоко: 6 -> 5", changes.get(9));
+        Assertions.assertEquals(9, subscription.getSequence());
+        Assertions.assertEquals(0, feed.getDroppedCount());
+    }
+
+    /**
+     * Тестирование того, что при {@link ProductChangeFeed.OverflowPolicy#DROP} публикация не ждёт
+     * отставшего подписчика, а отбрасывает события, не помещающиеся в буфер
+     */
+    @Test
+    public void testDropWhenSubscriberLags() throws Exception {
+        // Подготовка
+        ProductChangeFeed feed = new ProductChangeFeed(4,
+                ProductChangeFeed.WaitStrategy.SLEEPING, ProductChangeFeed.OverflowPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> sequences = new CopyOnWriteArrayList<>();
+        List<Boolean> batchEnds = new CopyOnWriteArrayList<>();
+        feed.subscribe("slow", (change, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sequences.add(change.getSequence());
+            batchEnds.add(endOfBatch);
+        });
+        Product bread = new Product("Хлеб", 100);
+
+        // Действия
+        int publishedCount = 0;
+        for (int i = 0; i < 10; i++) {
+            if (feed.publish(bread, 100 - i, 99 - i)) {
+                publishedCount++;
+            }
+        }
+        release.countDown();
+        feed.close();
+
+        // Проверки
+        Assertions.assertEquals(4, publishedCount);
+        Assertions.assertEquals(6, feed.getDroppedCount());
+        Assertions.assertEquals(List.of(0L, 1L, 2L, 3L), sequences);
+        Assertions.assertTrue(batchEnds.get(3));
+    }
+}
@@ -0,0 +1,112 @@
+package product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение сохранения корзины по одному товару, пакетом и групповым сохранением.
+ * <p>Обращение к БД эмулируется ожиданием {@code roundTripNanos} на каждый вызов DAO.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=ProductDaoSaveBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductDaoSaveBenchmark {
+
+    @Param({"1", "10", "40"})
+    private int cartSize;
+
+    @Param({"20000"})
+    private long roundTripNanos;
+
+    private List<Product> products;
+    private ProductDao dao;
+    private GroupCommitProductDao groupCommitDao;
+
+    @Setup
+    public void setUp() {
+        products = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            products.add(new Product("Товар " + i, 1_000));
+        }
+        dao = new RoundTripProductDao(roundTripNanos);
+        groupCommitDao = new GroupCommitProductDao(dao, 1_024, Duration.ZERO);
+    }
+
+    @TearDown
+    public void tearDown() {
+        groupCommitDao.close();
+    }
+
+    @Benchmark
+    public void perItem() {
+        for (Product product : products) {
+            dao.save(product);
+        }
+    }
+
+    @Benchmark
+    public void batched() {
+        dao.saveAll(products);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void perItemConcurrent() {
+        perItem();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void groupCommitConcurrent() {
+        groupCommitDao.saveAll(products);
+    }
+
+    /**
+     * DAO, каждый вызов которого стоит одного обращения к БД
+     */
+    private static final class RoundTripProductDao extends ProductDao {
+        private final long roundTripNanos;
+
+        private RoundTripProductDao(long roundTripNanos) {
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        @Override
+        public void save(Product product) {
+            roundTrip();
+        }
+
+        @Override
+        public void saveAll(Collection<Product> products) {
+            roundTrip();
+        }
+
+        private void roundTrip() {
+            long end = System.nanoTime() + roundTripNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Тестирование класса {@link ProductDictionary}
+ */
+public class ProductDictionaryTest {
+
+    /**
+     * Тестирование того, что конкурентное присвоение номеров даёт каждому имени один номер,
+     * номера идут подряд без пропусков, а по номеру находится имя
+     */
+    @Test
+    public void testConcurrentIdsAreDenseAndStable() {
+        // Подготовка
+        ProductDictionary dictionary = new ProductDictionary();
+
+        // Действия
+        Set<Integer> ids = IntStream.range(0, 20_000).parallel()
+                .map(i -> dictionary.idOf("Товар " + (i % 5_000)))
+                .boxed()
+                .collect(Collectors.toSet());
+
+        // Проверки
+        Assertions.assertEquals(5_000, dictionary.size());
+        Assertions.assertEquals(IntStream.range(0, 5_000).boxed().collect(Collectors.toSet()), ids);
+        for (int i = 0; i < 5_000; i++) {
+            int id = dictionary.find("Товар " + i);
+            Assertions.assertEquals("Товар " + i, dictionary.nameOf(id));
+        }
+        Assertions.assertEquals(-1, dictionary.find("Нет такого"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dictionary.nameOf(5_000));
+    }
+
+    /**
+     * Тестирование того, что товары с одним именем имеют один номер и равны, даже если это разные объекты
+     */
+    @Test
+    public void testProductsWithSameNameShareId() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 1);
+        Product sameBread = new Product(new String("Хлеб"), 5);
+        Product milk = new Product("Молоко", 1);
+
+        // Проверки
+        Assertions.assertEquals(bread.getId(), sameBread.getId());
+        Assertions.assertEquals(bread, sameBread);
+        Assertions.assertNotEquals(bread, milk);
+        Assertions.assertEquals("Хлеб", ProductDictionary.global().nameOf(bread.getId()));
+    }
+
+    /**
+     * Тестирование того, что у каталога со своим словарём номера товаров плотные с нуля
+     * и не пересекаются с товарами общего словаря
+     */
+    @Test
+    public void testCatalogWithOwnDictionary() {
+        // Подготовка
+        ProductDictionary dictionary = new ProductDictionary();
+        InMemoryProductDao productDao = new InMemoryProductDao(dictionary);
+        Product milk = new Product("Молоко", 1, dictionary);
+        Product bread = new Product("Хлеб", 1, dictionary);
+        Product globalBread = new Product("Хлеб", 1);
+
+        // Действия
+        productDao.save(milk);
+        productDao.save(bread);
+
+        // Проверки
+        Assertions.assertEquals(0, milk.getId());
+        Assertions.assertEquals(1, bread.getId());
+        Assertions.assertEquals(2, dictionary.size());
+        Assertions.assertSame(bread, productDao.getById(1));
+        CachingProductDao cachingDao = new CachingProductDao(productDao, new SegmentedLruProductCache(4, Duration.ZERO));
+        Assertions.assertSame(bread, cachingDao.getById(1));
+        Assertions.assertNotEquals(bread, globalBread);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> productDao.save(globalBread));
+    }
+}
@@ -0,0 +1,75 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тестирование класса {@link SegmentedLruProductCache}
+ */
+public class SegmentedLruProductCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Тестирование того, что кеш не превышает заданный размер,
+     * а повторно запрошенный товар переживает обход множества редких товаров
+     */
+    @Test
+    public void testBoundedSizeAndScanResistance() {
+        // Подготовка
+        SegmentedLruProductCache cache = new SegmentedLruProductCache(10, Duration.ZERO, now::get);
+        Product hot = new Product("Хлеб", 1);
+        cache.get("Хлеб", name -> hot);
+        cache.get("Хлеб", name -> Assertions.fail("Должен быть в кеше"));
+
+        // Действия
+        for (int i = 0; i < 100; i++) {
+            cache.get("Товар " + i, name -> new Product(name, 1));
+        }
+
+        // Проверки
+        Assertions.assertEquals(10, cache.size());
+        Assertions.assertSame(hot, cache.get("Хлеб", name -> null));
+        Assertions.assertEquals(91, cache.stats().evictions());
+    }
+
+    /**
+     * Тестирование истечения времени жизни товара в кеше
+     */
+    @Test
+    public void testTtl() {
+        // Подготовка
+        SegmentedLruProductCache cache = new SegmentedLruProductCache(10, Duration.ofSeconds(1), now::get);
+        cache.get("Хлеб", name -> new Product(name, 1));
+
+        // Действия
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        // Проверки
+        Product reloaded = new Product("Хлеб", 2);
+        Assertions.assertSame(reloaded, cache.get("Хлеб", name -> reloaded));
+        Assertions.assertEquals(new ProductCache.CacheStats(0, 2, 1), cache.stats());
+    }
+
+    /**
+     * Тестирование того, что товар, инвалидированный во время загрузки,
+     * не попадает в кеш с устаревшим значением
+     */
+    @Test
+    public void testInvalidationDuringLoad() {
+        // Подготовка
+        SegmentedLruProductCache cache = new SegmentedLruProductCache(10, Duration.ZERO, now::get);
+
+        // Действия
+        cache.get("Хлеб", name -> {
+            cache.invalidate(name);
+            return new Product(name, 1);
+        });
+
+        // Проверки
+        Assertions.assertEquals(0, cache.size());
+    }
+}
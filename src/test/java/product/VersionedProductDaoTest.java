@@ -0,0 +1,111 @@
+package product;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Тестирование класса {@link VersionedProductDao}
+ */
+public class VersionedProductDaoTest {
+
+    private final VersionedProductDao productDao = new VersionedProductDao();
+
+    /**
+     * Тестирование того, что взятая версия каталога не меняется после покупки и сохранения,
+     * а новая версия показывает новое количество
+     */
+    @Test
+    public void testSnapshotIsStable() {
+        // Подготовка
+        productDao.save(new Product("Хлеб", 10));
+        productDao.save(new Product("Молоко", 5));
+        VersionedProductDao.Snapshot before = productDao.snapshot();
+
+        // Действия
+        Product bread = productDao.getByName("Хлеб");
+        Assertions.assertTrue(bread.trySubtractCount(3));
+        productDao.saveAll(List.of(bread));
+        productDao.save(new Product("Сыр", 1));
+
+        // Проверки
+        Assertions.assertEquals(10, before.getByName("Хлеб").getCount());
+        Assertions.assertEquals(2, before.getAll().size());
+        Assertions.assertNull(before.getByName("Сыр"));
+        VersionedProductDao.Snapshot after = productDao.snapshot();
+        Assertions.assertEquals(before.version() + 2, after.version());
+        Assertions.assertEquals(7, after.getByName("Хлеб").getCount());
+        Assertions.assertEquals(List.of("Молоко", "Сыр", "Хлеб"), names(after.getAll()));
+    }
+
+    /**
+     * Тестирование того, что покупки через товары разных версий вычитают одно и то же количество
+     */
+    @Test
+    public void testProductsOfAllVersionsShareStock() {
+        // Подготовка
+        productDao.save(new Product("Хлеб", 1000));
+
+        // Действия
+        long bought = IntStream.range(0, 2000).parallel()
+                .filter(i -> {
+                    Product bread = productDao.getByName("Хлеб");
+                    if (!bread.trySubtractCount(1)) {
+                        return false;
+                    }
+                    productDao.save(bread);
+                    return true;
+                })
+                .count();
+
+        // Проверки
+        Assertions.assertEquals(1000, bought);
+        Assertions.assertEquals(0, productDao.getByName("Хлеб").getCount());
+    }
+
+    /**
+     * Тестирование постраничного чтения и поиска по префиксу на большом количестве товаров
+     */
+    @Test
+    public void testPagesAndPrefix() {
+        // Подготовка
+        IntStream.range(0, 1000).map(i -> (i * 7919) % 1000)
+                .forEach(i -> productDao.save(new Product("Товар %04d".formatted(i), i)));
+
+        // Действия и проверки
+        Assertions.assertEquals(1000, productDao.snapshot().size());
+        Assertions.assertEquals(List.of("Товар 0500", "Товар 0501"), names(productDao.getPage("Товар 0499", 2)));
+        Assertions.assertEquals(10, productDao.findByNamePrefix("Товар 012", 100).size());
+        List<String> all = names(productDao.streamAll(64).toList());
+        Assertions.assertEquals(1000, all.size());
+        Assertions.assertEquals(all.stream().sorted().toList(), all);
+    }
+
+    /**
+     * Тестирование того, что DAO со своим словарём находит товар по номеру в нём
+     * и не принимает товары другого словаря
+     */
+    @Test
+    public void testGetByIdWithOwnDictionary() {
+        // Подготовка
+        ProductDictionary dictionary = new ProductDictionary();
+        VersionedProductDao ownDao = new VersionedProductDao(dictionary);
+        Product apple = new Product("Яблоко", 3, dictionary);
+
+        // Действия
+        ownDao.save(apple);
+
+        // Проверки
+        Assertions.assertSame(dictionary, ownDao.getDictionary());
+        Assertions.assertEquals(apple, ownDao.getById(apple.getId()));
+        Assertions.assertEquals(3, ownDao.getById(apple.getId()).getCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ownDao.save(new Product("Яблоко", 1)));
+        Assertions.assertEquals(1, ownDao.snapshot().size());
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.urfu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Заполнение матрицы {@link MatrixCalculator}.
+ * <p>Измеряется {@link MatrixCalculator#calculate()} - заполнение, как в задании {@link MatrixInitializer#test()},
+ * но без вывода в консоль, который исказил бы результат,
+ * {@link MatrixCalculator#calculateStreaming()} с одной строкой в памяти
+ * и {@link MatrixCalculator#calculateParallel(int)} с блоками {@value #TILE_SIZE} x {@value #TILE_SIZE}.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=MatrixCalculatorBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixCalculatorBenchmark {
+    private static final int TILE_SIZE = 256;
+
+    @Param({"100", "4000"})
+    private int size;
+
+    private MatrixCalculator matrixCalculator;
+
+    @Setup
+    public void setUp() {
+        matrixCalculator = new MatrixCalculator(size);
+    }
+
+    @Benchmark
+    public long calculate() {
+        return matrixCalculator.calculate();
+    }
+
+    @Benchmark
+    public long calculateStreaming() {
+        return matrixCalculator.calculateStreaming();
+    }
+
+    @Benchmark
+    public long calculateParallel() {
+        return matrixCalculator.calculateParallel(TILE_SIZE);
+    }
+}
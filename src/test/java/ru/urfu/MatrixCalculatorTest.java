@@ -0,0 +1,83 @@
+package ru.urfu;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Тестирование класса {@link MatrixCalculator}
+ */
+public class MatrixCalculatorTest {
+
+    /**
+     * Тестирование того, что параллельное заполнение по антидиагоналям блоков даёт ту же сумму,
+     * что и последовательное, в том числе когда размер не кратен размеру блока
+     */
+    @Test
+    public void testParallelMatchesSequential() {
+        for (int size : new int[]{1, 100, 257, 1000}) {
+            // Подготовка
+            MatrixCalculator matrixCalculator = new MatrixCalculator(size);
+            long expected = matrixCalculator.calculate();
+
+            for (int tileSize : new int[]{1, 7, 64, 2000, Integer.MAX_VALUE}) {
+                // Действия и проверки
+                Assertions.assertEquals(expected, matrixCalculator.calculateParallel(tileSize),
+                        "size = " + size + ", tileSize = " + tileSize);
+            }
+        }
+    }
+
+    /**
+     * Тестирование того, что размер блока проверяется до выделения памяти под матрицу,
+     * а количество блоков, не помещающееся в массив, отклоняется, а не переполняется
+     */
+    @Test
+    public void testInvalidTileSize() {
+        // Подготовка
+        MatrixCalculator matrixCalculator = new MatrixCalculator(50_000);
+
+        // Действия и проверки
+        Assertions.assertThrows(IllegalArgumentException.class, () -> matrixCalculator.calculateParallel(0));
+        IllegalArgumentException tooManyTiles = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> matrixCalculator.calculateParallel(1));
+        Assertions.assertTrue(tooManyTiles.getMessage().contains("2500000000"), tooManyTiles.getMessage());
+    }
+
+    /**
+     * Тестирование того, что построчное вычисление и вычисление в файл дают ту же сумму,
+     * а в файле лежит вся матрица
+     */
+    @Test
+    public void testStreamingAndFileMatchSequential(@TempDir Path tempDir) throws Exception {
+        for (int size : new int[]{1, 100, 1000}) {
+            // Подготовка
+            MatrixCalculator matrixCalculator = new MatrixCalculator(size);
+            long expected = matrixCalculator.calculate();
+            Path file = tempDir.resolve("matrix-" + size + ".bin");
+
+            // Действия
+            long streaming = matrixCalculator.calculateStreaming();
+            long toFile = matrixCalculator.calculateToFile(file);
+
+            // Проверки
+            Assertions.assertEquals(expected, streaming);
+            Assertions.assertEquals(expected, toFile);
+            Assertions.assertEquals((long) size * size * Long.BYTES, Files.size(file));
+            LongBuffer matrix = ByteBuffer.wrap(Files.readAllBytes(file))
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asLongBuffer();
+            long fileSum = 0;
+            while (matrix.hasRemaining()) {
+                fileSum += matrix.get();
+            }
+            Assertions.assertEquals(expected, fileSum);
+        }
+    }
+}
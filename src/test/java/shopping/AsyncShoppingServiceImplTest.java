@@ -0,0 +1,79 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.Product;
+import product.ProductDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тестирование класса {@link AsyncShoppingServiceImpl}
+ */
+public class AsyncShoppingServiceImplTest {
+
+    private final ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(new ProductDao());
+    private final AsyncShoppingServiceImpl asyncShoppingService = new AsyncShoppingServiceImpl(shoppingService, 16);
+
+    @AfterEach
+    public void tearDown() {
+        asyncShoppingService.close();
+    }
+
+    /**
+     * Тестирование десятков тысяч одновременных покупок корзин с общими товарами,
+     * в которых товары добавлены в разном порядке: покупки не блокируют друг друга
+     * и продаётся ровно столько товара, сколько было в наличии
+     */
+    @Test
+    public void testOverlappingCartsDoNotDeadlock() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 20_001);
+        Product milk = new Product("Молоко", 30_001);
+        Cart breadFirst = shoppingService.getCart(new Customer(1, "11-11-11"));
+        breadFirst.add(bread, 1);
+        breadFirst.add(milk, 1);
+        Cart milkFirst = shoppingService.getCart(new Customer(2, "22-22-22"));
+        milkFirst.add(milk, 1);
+        milkFirst.add(bread, 1);
+
+        // Действия
+        List<CompletableFuture<Boolean>> purchases = new ArrayList<>();
+        for (int i = 0; i < 25_000; i++) {
+            purchases.add(asyncShoppingService.buyAsync(i % 2 == 0 ? breadFirst : milkFirst)
+                    .exceptionally(e -> false));
+        }
+        CompletableFuture.allOf(purchases.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        // Проверки
+        long bought = purchases.stream().filter(CompletableFuture::join).count();
+        Assertions.assertEquals(20_001, bought);
+        Assertions.assertEquals(0, bread.getCount());
+        Assertions.assertEquals(10_000, milk.getCount());
+    }
+
+    /**
+     * Тестирование того, что ошибка покупки передаётся через {@link CompletableFuture}
+     */
+    @Test
+    public void testBuyExceptionCompletesFutureExceptionally() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 2);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 1);
+        bread.subtractCount(2);
+
+        // Действия
+        CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                () -> asyncShoppingService.buyAsync(cart).join());
+
+        // Проверки
+        Assertions.assertInstanceOf(BuyException.class, exception.getCause());
+    }
+}
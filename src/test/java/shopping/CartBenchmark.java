@@ -0,0 +1,85 @@
+package shopping;
+
+import customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import product.Product;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции с корзиной: добавление, изменение количества и удаление товара
+ * в корзине из {@code cartSize} товаров.
+ * <p>{@code editEqualProduct} изменяет количество через другой объект того же товара с длинным
+ * артикулом в имени, как при чтении товара заново из БД или из новой версии каталога.</p>
+ * <p>Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=CartBenchmark}</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"1", "10", "40"})
+    private int cartSize;
+
+    private Cart cart;
+    private Product[] products;
+    /**
+     * Другие объекты тех же товаров, что и в {@link #skuCart}
+     */
+    private Product[] skuCopies;
+    private Cart skuCart;
+    private Product extraProduct;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart(new Customer(1, "11-11-11"));
+        products = new Product[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            products[i] = new Product("Товар " + i, 1_000);
+            cart.add(products[i], 1);
+        }
+        extraProduct = new Product("Ещё товар", 1_000);
+        skuCart = new Cart(new Customer(2, "22-22-22"));
+        skuCopies = new Product[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            String name = "Товар артикул 4607001234567-%08d, упаковка 12 шт.".formatted(i);
+            skuCart.add(new Product(name, 1_000), 1);
+            skuCopies[i] = new Product(name, 1_000);
+        }
+    }
+
+    @Benchmark
+    public Cart addAndRemove() {
+        cart.add(extraProduct, 1);
+        cart.remove(extraProduct);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart edit() {
+        Product product = products[next++ % cartSize];
+        cart.edit(product, 1 + next % 10);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart editEqualProduct() {
+        Product product = skuCopies[next++ % cartSize];
+        skuCart.edit(product, 1 + next % 10);
+        return skuCart;
+    }
+}
@@ -0,0 +1,194 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Тестирование класса {@link CartStore}
+ */
+public class CartStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private final InMemoryProductDao productDao = new InMemoryProductDao();
+    private final Product bread = new Product("Хлеб", 10);
+    private final Product milk = new Product("Молоко", 10);
+    private CartStore cartStore;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        productDao.save(bread);
+        productDao.save(milk);
+        cartStore = new CartStore(productDao, Duration.ofMillis(300), 16, tempDir.resolve("carts.bin"));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        cartStore.close();
+    }
+
+    /**
+     * Тестирование того, что корзина сохраняется между обращениями,
+     * а вытесненная из памяти корзина, которую больше никто не использует, читается из файла с тем же содержимым
+     */
+    @Test
+    public void testSpilledCartIsRestored() {
+        // Подготовка
+        Customer customer = new Customer(1, "11-11-11");
+        fillCart(customer);
+
+        // Действия: больше корзин, чем помещается в память
+        for (int id = 2; id <= 100; id++) {
+            cartStore.getCart(new Customer(id, "22-22-22"));
+        }
+        Assertions.assertTrue(cartStore.spilledCount() > 0);
+        System.gc();
+        Cart restored = cartStore.getCart(customer);
+
+        // Проверки
+        Assertions.assertEquals(Map.of(bread, 2, milk, 3), restored.getProducts());
+        Assertions.assertSame(bread, restored.productAt(0));
+        Assertions.assertEquals(100, cartStore.residentCount() + cartStore.spilledCount());
+    }
+
+    /**
+     * Тестирование того, что изменение корзины, вытесненной в файл, пока её использует запрос,
+     * не теряется: корзина возвращается в память тем же объектом
+     */
+    @Test
+    public void testCartChangedAfterSpillIsKept() {
+        // Подготовка
+        Customer customer = new Customer(1, "11-11-11");
+        Cart cart = cartStore.getCart(customer);
+        cart.add(bread, 2);
+        for (int id = 2; id <= 100; id++) {
+            cartStore.getCart(new Customer(id, "22-22-22"));
+        }
+        Assertions.assertTrue(cartStore.spilledCount() > 0);
+
+        // Действия
+        cart.add(milk, 3);
+        for (int id = 101; id <= 200; id++) {
+            cartStore.getCart(new Customer(id, "22-22-22"));
+        }
+        Cart restored = cartStore.getCart(customer);
+
+        // Проверки
+        Assertions.assertSame(cart, restored);
+        Assertions.assertEquals(Map.of(bread, 2, milk, 3), restored.getProducts());
+        Assertions.assertEquals(200, cartStore.residentCount() + cartStore.spilledCount());
+    }
+
+    /**
+     * Тестирование того, что корзина, которую покупатель меняет, не вытесняется в файл раньше
+     * корзин, к которым давно не обращались
+     */
+    @Test
+    public void testChangedCartIsNotSpilled() throws IOException {
+        // Подготовка: по две корзины на сегмент
+        cartStore.close();
+        cartStore = new CartStore(productDao, Duration.ofMinutes(1), 32, tempDir.resolve("active.bin"));
+        Customer customer = new Customer(1, "11-11-11");
+        Cart cart = cartStore.getCart(customer);
+
+        // Действия и проверки: покупатель меняет корзину между обращениями других покупателей
+        for (int id = 2; id <= 200; id++) {
+            cartStore.getCart(new Customer(id, "22-22-22"));
+            Assertions.assertTrue(cartStore.isResident(customer.getId()), "Корзина вытеснена после покупателя " + id);
+            cart.edit(bread, id % 5 + 1);
+        }
+        Assertions.assertTrue(cartStore.spilledCount() > 0);
+    }
+
+    /**
+     * Тестирование того, что после покупки корзина покупателя пуста
+     */
+    @Test
+    public void testBoughtCartIsRemoved() throws BuyException {
+        // Подготовка
+        ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, cartStore);
+        Customer customer = new Customer(1, "11-11-11");
+        shoppingService.getCart(customer).add(bread, 2);
+
+        // Действия
+        boolean bought = shoppingService.buy(shoppingService.getCart(customer));
+
+        // Проверки
+        Assertions.assertTrue(bought);
+        Assertions.assertEquals(8, bread.getCount());
+        Assertions.assertTrue(shoppingService.getCart(customer).getProducts().isEmpty());
+    }
+
+    /**
+     * Тестирование того, что корзина, прочитанная из файла, продаёт товар из резерва,
+     * сделанного до вытеснения, а не вычитает его из наличия ещё раз
+     */
+    @Test
+    public void testSpilledCartKeepsReservations() throws BuyException {
+        // Подготовка
+        try (StockReservations reservations = new StockReservations(Duration.ofMinutes(1))) {
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, cartStore, null, reservations);
+            Customer customer = new Customer(1, "11-11-11");
+            shoppingService.getCart(customer).add(bread, 4);
+            for (int id = 2; id <= 100; id++) {
+                shoppingService.getCart(new Customer(id, "22-22-22"));
+            }
+            Assertions.assertTrue(cartStore.spilledCount() > 0);
+            System.gc();
+
+            // Действия
+            boolean bought = shoppingService.buy(shoppingService.getCart(customer));
+
+            // Проверки
+            Assertions.assertTrue(bought);
+            Assertions.assertEquals(6, bread.getCount());
+            Assertions.assertEquals(0, bread.getReserved());
+        }
+    }
+
+    /**
+     * Положить товары в корзину, не сохраняя ссылку на неё
+     */
+    private void fillCart(Customer customer) {
+        Cart cart = cartStore.getCart(customer);
+        cart.add(bread, 2);
+        cart.add(milk, 3);
+        Assertions.assertSame(cart, cartStore.getCart(customer));
+    }
+
+    /**
+     * Тестирование удаления корзин, к которым не обращались дольше заданного времени,
+     * как в памяти, так и в файле, при этом используемая корзина не удаляется
+     */
+    @Test
+    public void testIdleCartsExpire() throws InterruptedException {
+        // Подготовка
+        Customer active = new Customer(1, "11-11-11");
+        cartStore.getCart(active).add(bread, 1);
+        for (int id = 2; id <= 100; id++) {
+            cartStore.getCart(new Customer(id, "22-22-22"));
+        }
+
+        // Действия
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(100);
+            cartStore.getCart(active);
+        }
+
+        // Проверки
+        Assertions.assertEquals(1, cartStore.residentCount() + cartStore.spilledCount());
+        Assertions.assertEquals(Map.of(bread, 1), cartStore.getCart(active).getProducts());
+    }
+}
@@ -0,0 +1,69 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тестирование хранения товаров в {@link Cart}
+ */
+public class CartTest {
+
+    private final Cart cart = new Cart(new Customer(1, "11-11-11"));
+
+    /**
+     * Тестирование того, что после добавления, изменения и удаления товаров
+     * (в том числе после расширения внутренних массивов) корзина сохраняет порядок добавления
+     * и одинаково видна через {@link Cart#getProducts()} и обход по номеру строки
+     */
+    @Test
+    public void testAddEditRemoveKeepInsertionOrder() {
+        // Подготовка
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(new Product("Товар " + i, 100));
+        }
+
+        // Действия
+        products.forEach(product -> cart.add(product, 1));
+        cart.edit(products.get(5), 7);
+        cart.remove(products.get(0));
+        cart.remove(products.get(10));
+        cart.add(products.get(0), 2);
+        cart.edit(new Product("Нет в корзине", 100), 3);
+
+        // Проверки
+        List<Product> expected = new ArrayList<>(products.subList(1, 20));
+        expected.remove(products.get(10));
+        expected.add(products.get(0));
+        Assertions.assertEquals(expected, new ArrayList<>(cart.getProducts().keySet()));
+        Assertions.assertEquals(expected, cart.productList());
+        Assertions.assertEquals(19, cart.size());
+        for (int i = 0; i < cart.size(); i++) {
+            Assertions.assertEquals(cart.getProducts().get(cart.productAt(i)), cart.countAt(i));
+        }
+        Assertions.assertEquals(7, cart.getProducts().get(products.get(5)));
+        Assertions.assertEquals(2, cart.getProducts().get(products.get(0)));
+        Assertions.assertNull(cart.getProducts().get(products.get(10)));
+    }
+
+    /**
+     * Тестирование того, что корзину нельзя изменить через {@link Cart#getProducts()}
+     */
+    @Test
+    public void testGetProductsIsUnmodifiable() {
+        // Подготовка
+        Product product = new Product("Хлеб", 10);
+        cart.add(product, 1);
+
+        // Действия и проверки
+        Map<Product, Integer> products = cart.getProducts();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> products.put(product, 2));
+        Assertions.assertThrows(UnsupportedOperationException.class, products::clear);
+    }
+}
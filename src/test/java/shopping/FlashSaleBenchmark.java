@@ -0,0 +1,85 @@
+package shopping;
+
+import customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Покупка одного распродаваемого товара из {@code 64} потоков через {@link ShoppingServiceImpl#tryBuy(Cart)}:
+ * {@code flashSale=false} - каждый покупатель вычитает количество CAS-операцией,
+ * {@code flashSale=true} - запросы объединяются {@link FlashSale}.
+ * <p>В результат входят и отклонённые из-за перегрузки покупки, их доля видна по
+ * {@link FlashSale#getShedCount()}; выигрыш от объединения заметен только на многоядерной машине.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=FlashSaleBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlashSaleBenchmark {
+    /**
+     * Запас товара, которого хватает на любую итерацию
+     */
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"false", "true"})
+    private boolean flashSale;
+
+    private ShoppingServiceImpl shoppingService;
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        product = new Product("Телефон", STOCK);
+        productDao.save(product);
+        FlashSale sale = null;
+        if (flashSale) {
+            sale = new FlashSale(1_024);
+            sale.addProduct(product);
+        }
+        shoppingService = new ShoppingServiceImpl(productDao, null, null, null, sale);
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        product.addCount(STOCK - product.getCount());
+    }
+
+    /**
+     * Корзина покупателя: у каждого потока своя
+     */
+    @State(Scope.Thread)
+    public static class Buyer {
+        private Cart cart;
+
+        @Setup
+        public void setUp(FlashSaleBenchmark benchmark) {
+            cart = benchmark.shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(benchmark.product, 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(64)
+    public BuyResult buyHotProduct(Buyer buyer) {
+        return shoppingService.tryBuy(buyer.cart);
+    }
+}
@@ -0,0 +1,182 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Тестирование класса {@link FlashSale}
+ */
+public class FlashSaleTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 5_000;
+
+    /**
+     * Тестирование того, что при одновременной покупке распродаваемого товара он не продаётся
+     * сверх наличия, а проданное и оставшееся в сумме дают начальное наличие,
+     * в том числе когда часть покупок идёт мимо очереди распродажи.
+     * Первая покупка начинается раньше остальных и задерживается, пока остальные не встанут в очередь
+     * и их не обработает объединитель, поэтому очередь используется даже на одном ядре
+     */
+    @Test
+    public void testHotProductNeverOversold() throws Exception {
+        // Подготовка
+        FlashSale flashSale = new FlashSale(1_000);
+        ShoppingServiceImpl shoppingService =
+                new ShoppingServiceImpl(new InMemoryProductDao(), null, null, null, flashSale);
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        Product phone = blockFirstSubtract("Телефон", 10_000, firstEntered, () -> flashSale.getBatchCount() > 0);
+        flashSale.addProduct(phone);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger bypassSold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // Действия
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int count = t % 3 + 1;
+            boolean bypass = t == 0;
+            boolean first = t == 1;
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(phone, count);
+            futures.add(executor.submit(() -> {
+                if (!first) {
+                    start.await();
+                }
+                if (bypass) {
+                    // первое вычитание должно пройти через режим распродажи
+                    awaitCondition(() -> flashSale.getBatchCount() > 0);
+                }
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (bypass) {
+                        if (phone.trySubtractCount(count)) {
+                            bypassSold.addAndGet(count);
+                        }
+                    } else if (shoppingService.tryBuy(cart).isBought()) {
+                        sold.addAndGet(count);
+                    }
+                }
+                return null;
+            }));
+        }
+        Assertions.assertTrue(firstEntered.await(1, TimeUnit.MINUTES));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Проверки
+        Assertions.assertTrue(phone.getCount() >= 0);
+        Assertions.assertTrue(phone.getCount() < 3);
+        Assertions.assertEquals(10_000, sold.get() + bypassSold.get() + phone.getCount());
+        Assertions.assertEquals(0, flashSale.getShedCount());
+        Assertions.assertTrue(flashSale.getBatchCount() > 0);
+        Assertions.assertTrue(flashSale.getCombinedCount() >= flashSale.getBatchCount());
+    }
+
+    /**
+     * Тестирование того, что запросы сверх ограничения очереди сразу отклоняются
+     * с {@link BuyResult#OVERLOADED}, не вычитая товар, а ожидающие получают ответ.
+     * Первая покупка начинается раньше остальных и задерживается, пока хотя бы один запрос не будет отклонён
+     */
+    @Test
+    public void testRequestsOverLimitAreShed() throws Exception {
+        // Подготовка
+        FlashSale flashSale = new FlashSale(1);
+        ShoppingServiceImpl shoppingService =
+                new ShoppingServiceImpl(new InMemoryProductDao(), null, null, null, flashSale);
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        Product phone = blockFirstSubtract("Телефон", 1_000_000, firstEntered, () -> flashSale.getShedCount() > 0);
+        Product bread = new Product("Хлеб", 1_000);
+        flashSale.addProduct(phone);
+        AtomicInteger overloaded = new AtomicInteger();
+        AtomicInteger bought = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // Действия
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(bread, 1);
+            cart.add(phone, 1);
+            boolean first = t == 0;
+            futures.add(executor.submit(() -> {
+                if (!first) {
+                    start.await();
+                }
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    BuyResult result = shoppingService.tryBuy(cart);
+                    if (result == BuyResult.OVERLOADED) {
+                        overloaded.incrementAndGet();
+                    } else if (result.isBought()) {
+                        bought.incrementAndGet();
+                        bread.addCount(1);
+                    }
+                }
+                return null;
+            }));
+        }
+        Assertions.assertTrue(firstEntered.await(1, TimeUnit.MINUTES));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Проверки
+        Assertions.assertTrue(overloaded.get() > 0);
+        Assertions.assertEquals(THREADS * ATTEMPTS_PER_THREAD, overloaded.get() + bought.get());
+        Assertions.assertEquals(overloaded.get(), flashSale.getShedCount());
+        Assertions.assertEquals(1_000_000 - bought.get(), phone.getCount());
+        Assertions.assertEquals(1_000, bread.getCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FlashSale(0));
+    }
+
+    /**
+     * Товар, первое вычитание которого сообщает о себе в {@code entered} и ждёт выполнения условия:
+     * покупка, вычитающая товар без очереди, остаётся в обработке, и следующие покупки встают в очередь
+     */
+    private static Product blockFirstSubtract(String name, int count, CountDownLatch entered,
+                                              BooleanSupplier until) {
+        return new Product(name, count) {
+            private final AtomicBoolean first = new AtomicBoolean(true);
+
+            @Override
+            public boolean trySubtractCount(int count) {
+                if (first.compareAndSet(true, false)) {
+                    entered.countDown();
+                    awaitCondition(until);
+                }
+                return super.trySubtractCount(count);
+            }
+        };
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Условие не выполнилось за 30 секунд");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package shopping;
+
+import metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость метрик в {@link InstrumentedShoppingService}: поиск товара по имени без метрик и с метриками,
+ * когда задержка замеряется у одного вызова из {@code latencySampleRate}.
+ * <p>Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=InstrumentedShoppingServiceBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentedShoppingServiceBenchmark {
+
+    @Param({"1", "16"})
+    private int latencySampleRate;
+
+    private ShoppingService plain;
+    private ShoppingService instrumented;
+
+    @Setup
+    public void setUp() {
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        productDao.save(new Product("Хлеб", 1_000));
+        plain = new ShoppingServiceImpl(productDao);
+        instrumented = new InstrumentedShoppingService(plain, new MetricsRegistry(), latencySampleRate);
+    }
+
+    @Benchmark
+    public Product plain() {
+        return plain.getProductByName("Хлеб");
+    }
+
+    @Benchmark
+    public Product instrumented() {
+        return instrumented.getProductByName("Хлеб");
+    }
+}
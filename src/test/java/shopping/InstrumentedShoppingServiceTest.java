@@ -0,0 +1,114 @@
+package shopping;
+
+import customer.Customer;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.InMemoryProductDao;
+import product.Product;
+import product.ProductDao;
+
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * Тестирование класса {@link InstrumentedShoppingService}
+ */
+public class InstrumentedShoppingServiceTest {
+
+    /**
+     * Тестирование того, что каждая покупка попадает ровно в один счётчик итога и в гистограмму задержек
+     */
+    @Test
+    public void testBuyOutcomes() throws Exception {
+        // Подготовка
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        Product bread = new Product("Хлеб", 5);
+        productDao.save(bread);
+        MetricsRegistry metrics = new MetricsRegistry();
+        ShoppingService shoppingService = new InstrumentedShoppingService(new ShoppingServiceImpl(productDao), metrics, 1);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+
+        // Действия
+        shoppingService.buy(cart);
+        cart.add(bread, 3);
+        shoppingService.buy(cart);
+        Assertions.assertThrows(BuyException.class, () -> shoppingService.buy(cart));
+
+        ShoppingService failing = new InstrumentedShoppingService(new ShoppingServiceImpl(new ProductDao() {
+            @Override
+            public void saveAll(Collection<Product> products) {
+                throw new IllegalStateException("БД недоступна");
+            }
+        }), metrics, 1);
+        Cart other = failing.getCart(new Customer(2, "22-22-22"));
+        other.add(new Product("Молоко", 5), 1);
+        Assertions.assertThrows(IllegalStateException.class, () -> failing.buy(other));
+
+        // Проверки
+        Assertions.assertEquals(1, metrics.counter("shopping_buy_empty_cart_total").sum());
+        Assertions.assertEquals(1, metrics.counter("shopping_buy_success_total").sum());
+        Assertions.assertEquals(1, metrics.counter("shopping_buy_insufficient_stock_total").sum());
+        Assertions.assertEquals(1, metrics.counter("shopping_buy_error_total").sum());
+        Assertions.assertEquals(4, metrics.histogram("shopping_buy_latency_ns").snapshot().count());
+    }
+
+    /**
+     * Тестирование того, что задержка замеряется у всех операций чтения каталога,
+     * у потока товаров - при его закрытии
+     */
+    @Test
+    public void testCatalogLatency() {
+        // Подготовка
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        productDao.save(new Product("Хлеб", 5));
+        productDao.save(new Product("Молоко", 5));
+        MetricsRegistry metrics = new MetricsRegistry();
+        ShoppingService shoppingService = new InstrumentedShoppingService(new ShoppingServiceImpl(productDao), metrics, 1);
+
+        // Действия
+        shoppingService.getAllProducts();
+        shoppingService.getProductsPage(null, 1);
+        shoppingService.getProductByName("Хлеб");
+        shoppingService.findProductsByNamePrefix("Мо", 10);
+        Stream<Product> products = shoppingService.streamAllProducts();
+        long streamedBeforeClose = metrics.histogram("shopping_stream_all_products_latency_ns").snapshot().count();
+        try (products) {
+            Assertions.assertEquals(2, products.count());
+        }
+
+        // Проверки
+        Assertions.assertEquals(0, streamedBeforeClose);
+        for (String name : new String[]{"get_all_products", "get_products_page", "get_product_by_name",
+                "find_products_by_name_prefix", "stream_all_products"}) {
+            Assertions.assertEquals(1, metrics.histogram("shopping_" + name + "_latency_ns").snapshot().count(), name);
+        }
+    }
+
+    /**
+     * Тестирование выборочного замера задержки: итоги покупок учитываются все, задержка - только у части
+     */
+    @Test
+    public void testSampledLatency() {
+        // Подготовка
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        productDao.save(new Product("Хлеб", 5));
+        MetricsRegistry metrics = new MetricsRegistry();
+        ShoppingService shoppingService = new InstrumentedShoppingService(new ShoppingServiceImpl(productDao), metrics, 16);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        int calls = 16_000;
+
+        // Действия
+        for (int i = 0; i < calls; i++) {
+            shoppingService.tryBuy(cart);
+            shoppingService.getProductByName("Хлеб");
+        }
+
+        // Проверки
+        Assertions.assertEquals(calls, metrics.counter("shopping_buy_empty_cart_total").sum());
+        long sampled = metrics.histogram("shopping_buy_latency_ns").snapshot().count();
+        Assertions.assertTrue(sampled > 500 && sampled < 1_500, "замерено " + sampled);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new InstrumentedShoppingService(shoppingService, metrics, 0));
+    }
+}
@@ -0,0 +1,93 @@
+package shopping;
+
+import customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Покупка с записью в {@link PurchaseJournal} на локальный диск.
+ * <p>Каждый поток покупает свою корзину из 3 товаров. Чем больше потоков ждут сброса журнала,
+ * тем больше покупок приходится на один {@code fsync}.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=PurchaseJournalBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PurchaseJournalBenchmark {
+    private static final int STOCK = 1_000_000_000;
+    private static final int PRODUCTS = 100;
+
+    private Path directory;
+    private PurchaseJournal journal;
+    private ShoppingServiceImpl shoppingService;
+    private InMemoryProductDao productDao;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("purchase-journal");
+        productDao = new InMemoryProductDao();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productDao.save(new Product("Товар " + i, STOCK));
+        }
+        journal = new PurchaseJournal(directory.resolve("purchases.wal"));
+        shoppingService = new ShoppingServiceImpl(productDao, null, journal);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkpoint() {
+        journal.checkpoint(productDao);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        journal.close();
+        Files.deleteIfExists(directory.resolve("purchases.wal"));
+        Files.deleteIfExists(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Buyer {
+        private Cart cart;
+
+        @Setup
+        public void setUp(PurchaseJournalBenchmark benchmark) {
+            int first = (int) (Thread.currentThread().threadId() % PRODUCTS);
+            cart = benchmark.shoppingService.getCart(new Customer(first, "11-11-11"));
+            for (int i = 0; i < 3; i++) {
+                cart.add(benchmark.productDao.getByName("Товар " + (first + i) % PRODUCTS), 1);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean buy(Buyer buyer) throws BuyException {
+        return shoppingService.buy(buyer.cart);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean buyConcurrent(Buyer buyer) throws BuyException {
+        return shoppingService.buy(buyer.cart);
+    }
+}
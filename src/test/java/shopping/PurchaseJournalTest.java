@@ -0,0 +1,191 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import product.InMemoryProductDao;
+import product.Product;
+import product.ProductDao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Тестирование класса {@link PurchaseJournal}
+ */
+public class PurchaseJournalTest {
+
+    @TempDir
+    private Path tempDir;
+
+    /**
+     * Тестирование того, что покупки, не сохранённые в БД до перезапуска, восстанавливаются из журнала,
+     * а недописанный хвост журнала отбрасывается
+     */
+    @Test
+    public void testRecoverAfterRestart() throws Exception {
+        // Подготовка
+        Path path = tempDir.resolve("purchases.wal");
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null)) {
+            InMemoryProductDao productDao = productDao(10, 10);
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, null, journal);
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(productDao.getByName("Хлеб"), 2);
+            cart.add(productDao.getByName("Молоко"), 1);
+            shoppingService.buy(cart);
+            shoppingService.buy(cart);
+        }
+        Files.write(path, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        // Действия
+        InMemoryProductDao restarted = productDao(10, 10);
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null)) {
+            new ShoppingServiceImpl(restarted, null, journal);
+        }
+
+        // Проверки
+        Assertions.assertEquals(6, restarted.getByName("Хлеб").getCount());
+        Assertions.assertEquals(8, restarted.getByName("Молоко").getCount());
+        Assertions.assertEquals(0, Files.size(path));
+    }
+
+    /**
+     * Тестирование того, что сбой посреди контрольной точки не приводит к повторному вычитанию покупок,
+     * даже если часть товаров уже успела сохраниться в БД
+     */
+    @Test
+    public void testRecoverAfterFailedCheckpoint() throws Exception {
+        // Подготовка
+        Path path = tempDir.resolve("purchases.wal");
+        InMemoryProductDao productDao = productDao(10, 10);
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null)) {
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, null, journal);
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(productDao.getByName("Хлеб"), 3);
+            shoppingService.buy(cart);
+            Assertions.assertThrows(IllegalStateException.class, () -> journal.checkpoint(new ProductDao() {
+                @Override
+                public void saveAll(Collection<Product> products) {
+                    throw new IllegalStateException("сбой БД");
+                }
+            }));
+        }
+
+        // Действия
+        // в БД уже попало количество после покупки
+        InMemoryProductDao restarted = productDao(7, 10);
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null)) {
+            new ShoppingServiceImpl(restarted, null, journal);
+        }
+
+        // Проверки
+        Assertions.assertEquals(7, restarted.getByName("Хлеб").getCount());
+        Assertions.assertEquals(10, restarted.getByName("Молоко").getCount());
+    }
+
+    /**
+     * Тестирование того, что заполненный журнал сохраняет покупки в БД сразу после покупки,
+     * без перезапуска, и очищается
+     */
+    @Test
+    public void testCheckpointWhenJournalIsFull() throws Exception {
+        // Подготовка
+        Path path = tempDir.resolve("purchases.wal");
+        InMemoryProductDao productDao = Mockito.spy(productDao(10, 10));
+        Product bread = productDao.getByName("Хлеб");
+
+        try (PurchaseJournal journal = new PurchaseJournal(path, 1, null)) {
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, null, journal);
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(bread, 2);
+
+            // Действия
+            shoppingService.buy(cart);
+
+            // Проверки
+            Mockito.verify(productDao).saveAll(Mockito.argThat(products -> products.contains(bread)));
+            Assertions.assertEquals(8, bread.getCount());
+            Assertions.assertEquals(0, Files.size(path));
+            Assertions.assertEquals(0, journal.getCheckpointFailures());
+        }
+    }
+
+    /**
+     * Тестирование того, что покупки попадают в БД по интервалу контрольных точек, пока журнал не заполнен
+     */
+    @Test
+    public void testCheckpointByInterval() throws Exception {
+        // Подготовка
+        Path path = tempDir.resolve("purchases.wal");
+        InMemoryProductDao productDao = Mockito.spy(productDao(10, 10));
+        Product milk = productDao.getByName("Молоко");
+
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, Duration.ofMillis(10))) {
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, null, journal);
+            Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+            cart.add(milk, 3);
+
+            // Действия
+            shoppingService.buy(cart);
+
+            // Проверки
+            Mockito.verify(productDao, Mockito.timeout(5_000))
+                    .saveAll(Mockito.argThat(products -> products.contains(milk)));
+        }
+        Assertions.assertEquals(0, Files.size(path));
+    }
+
+    /**
+     * Тестирование того, что товар, отложенный во время контрольной точки, сохраняется в БД как товар
+     * на складе, и его продажа после контрольной точки при восстановлении вычитается один раз
+     */
+    @Test
+    public void testRecoverWithReservations() throws Exception {
+        // Подготовка
+        Path path = tempDir.resolve("purchases.wal");
+        Map<String, Integer> database = new HashMap<>();
+        ProductDao savingDao = new ProductDao() {
+            @Override
+            public void save(Product product) {
+                database.put(product.getName(), product.getOnHandCount());
+            }
+        };
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null);
+             StockReservations reservations = new StockReservations(Duration.ofMinutes(1))) {
+            InMemoryProductDao productDao = productDao(10, 10);
+            ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao, null, journal, reservations);
+            Product bread = productDao.getByName("Хлеб");
+            Cart holding = shoppingService.getCart(new Customer(1, "11-11-11"));
+            holding.add(bread, 3);
+            Cart buying = shoppingService.getCart(new Customer(2, "22-22-22"));
+            buying.add(bread, 1);
+            shoppingService.buy(buying);
+            journal.checkpoint(savingDao);
+            shoppingService.buy(holding);
+        }
+
+        // Действия
+        InMemoryProductDao restarted = productDao(database.get("Хлеб"), 10);
+        try (PurchaseJournal journal = new PurchaseJournal(path, Long.MAX_VALUE, null)) {
+            new ShoppingServiceImpl(restarted, null, journal);
+        }
+
+        // Проверки
+        Assertions.assertEquals(9, database.get("Хлеб"));
+        Assertions.assertEquals(6, restarted.getByName("Хлеб").getCount());
+    }
+
+    private static InMemoryProductDao productDao(int bread, int milk) {
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        productDao.save(new Product("Хлеб", bread));
+        productDao.save(new Product("Молоко", milk));
+        return productDao;
+    }
+}
@@ -0,0 +1,100 @@
+package shopping;
+
+import customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Модель склада из {@code shards} узлов для {@link ShardedShoppingService}.
+ * <p>Каждый узел обрабатывает запросы по одному и тратит на запрос {@code latencyMicros}
+ * (сеть и БД), т.е. пропускная способность узла ограничена, и покупки упираются в узлы, а не в процессор.
+ * 64 покупателя покупают корзины из случайных товаров: из одного товара (всегда одна часть)
+ * и из трёх (чаще всего несколько частей, две фазы).</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=ShardedCheckoutBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(64)
+public class ShardedCheckoutBenchmark {
+    private static final int STOCK = 1_000_000_000;
+    private static final int PRODUCTS = 1_000;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    @Param({"200"})
+    private long latencyMicros;
+
+    private final List<ExecutorService> nodes = new ArrayList<>();
+    private ShardedShoppingService shoppingService;
+    private Product[] products;
+
+    @Setup
+    public void setUp() {
+        List<InventoryShard> inventoryShards = new ArrayList<>();
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        for (int i = 0; i < shards; i++) {
+            ExecutorService node = Executors.newSingleThreadExecutor();
+            nodes.add(node);
+            inventoryShards.add(new InventoryShard(new InMemoryProductDao(), task -> node.execute(() -> {
+                LockSupport.parkNanos(latencyNanos);
+                task.run();
+            })));
+        }
+        shoppingService = new ShardedShoppingService(inventoryShards);
+        products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = new Product("Товар " + i, STOCK);
+            shoppingService.shardFor(products[i].getName()).getProductDao().save(products[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        nodes.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Benchmark
+    public BuyResult buySingleProduct() {
+        return shoppingService.tryBuy(randomCart(1));
+    }
+
+    @Benchmark
+    public BuyResult buyThreeProducts() {
+        return shoppingService.tryBuy(randomCart(3));
+    }
+
+    private Cart randomCart(int size) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        while (cart.size() < size) {
+            cart.add(products[random.nextInt(PRODUCTS)], 1);
+        }
+        return cart;
+    }
+}
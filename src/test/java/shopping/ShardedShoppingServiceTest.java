@@ -0,0 +1,194 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.InMemoryProductDao;
+import product.Product;
+import product.ProductDictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестирование класса {@link ShardedShoppingService}
+ */
+public class ShardedShoppingServiceTest {
+
+    /**
+     * Тестирование того, что покупка в нескольких частях склада вычитает товары во всех частях,
+     * а каталог сливает части в порядке имени
+     */
+    @Test
+    public void testBuyAcrossShards() throws Exception {
+        // Подготовка
+        List<ExecutorService> nodes = new ArrayList<>();
+        List<InventoryShard> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(Executors.newSingleThreadExecutor());
+            shards.add(new InventoryShard(new InMemoryProductDao(), nodes.get(i)));
+        }
+        ShardedShoppingService shoppingService = new ShardedShoppingService(shards);
+        List<Product> products = fill(shoppingService, 20, 10);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        for (Product product : products) {
+            cart.add(product, 3);
+        }
+
+        // Действия
+        boolean bought = shoppingService.buy(cart);
+
+        // Проверки
+        Assertions.assertTrue(bought);
+        for (Product product : products) {
+            Assertions.assertEquals(7, shoppingService.getProductByName(product.getName()).getCount());
+            Assertions.assertEquals(0, product.getReserved());
+        }
+        List<String> names = shoppingService.getAllProducts().stream().map(Product::getName).toList();
+        Assertions.assertEquals(names.stream().sorted().toList(), names);
+        Assertions.assertEquals(names.subList(5, 10),
+                shoppingService.getProductsPage(names.get(4), 5).stream().map(Product::getName).toList());
+        Assertions.assertEquals(names, shoppingService.streamAllProducts().map(Product::getName).toList());
+        nodes.forEach(ExecutorService::close);
+    }
+
+    /**
+     * Тестирование того, что при нехватке товара отложенные в других частях товары возвращаются в наличие,
+     * а при сбое БД части склада вычтенные товары возвращаются в наличие
+     */
+    @Test
+    public void testAbortReleasesPreparedShards() {
+        // Подготовка
+        InventoryShard failing = new InventoryShard(new InMemoryProductDao() {
+            @Override
+            public void saveAll(Collection<Product> products) {
+                throw new IllegalStateException("сбой БД");
+            }
+        });
+        ShardedShoppingService shoppingService = new ShardedShoppingService(
+                List.of(new InventoryShard(new InMemoryProductDao()), new InventoryShard(new InMemoryProductDao())));
+        List<Product> products = fill(shoppingService, 10, 10);
+        Product scarce = products.get(products.size() - 1);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        for (Product product : products) {
+            cart.add(product, 2);
+        }
+        scarce.subtractCount(9);
+
+        // Действия
+        BuyResult result = shoppingService.tryBuy(cart);
+
+        // Проверки
+        Assertions.assertEquals(BuyResult.Status.INSUFFICIENT_STOCK, result.getStatus());
+        Assertions.assertSame(scarce, result.getProduct());
+        for (Product product : products) {
+            Assertions.assertEquals(product == scarce ? 1 : 10, product.getCount());
+            Assertions.assertEquals(0, product.getReserved());
+        }
+        Product single = new Product("Хлеб", 5);
+        failing.getProductDao().save(single);
+        ShardedShoppingService failingService = new ShardedShoppingService(List.of(failing));
+        Cart singleShardCart = failingService.getCart(new Customer(2, "22-22-22"));
+        singleShardCart.add(single, 2);
+        Assertions.assertThrows(IllegalStateException.class, () -> failingService.tryBuy(singleShardCart));
+        Assertions.assertEquals(5, single.getCount());
+    }
+
+    /**
+     * Тестирование того, что если одна часть не смогла сохранить товары во второй фазе,
+     * покупка отменяется и в частях, где она уже сохранена, а вызывающий получает ошибку части
+     */
+    @Test
+    public void testCommitFailureIsCompensated() throws Exception {
+        // Подготовка
+        AtomicBoolean databaseDown = new AtomicBoolean(true);
+        AtomicInteger healthySaves = new AtomicInteger();
+        InventoryShard healthy = new InventoryShard(new InMemoryProductDao() {
+            @Override
+            public void saveAll(Collection<Product> products) {
+                healthySaves.incrementAndGet();
+                super.saveAll(products);
+            }
+        });
+        InventoryShard failing = new InventoryShard(new InMemoryProductDao() {
+            @Override
+            public void saveAll(Collection<Product> products) {
+                if (databaseDown.get()) {
+                    throw new IllegalStateException("сбой БД");
+                }
+                super.saveAll(products);
+            }
+        });
+        ShardedShoppingService shoppingService = new ShardedShoppingService(List.of(healthy, failing));
+        List<Product> products = fill(shoppingService, 10, 10);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        for (Product product : products) {
+            cart.add(product, 2);
+        }
+        Assertions.assertTrue(products.stream().anyMatch(product -> shoppingService.shardOf(product.getName()) == 0));
+        Assertions.assertTrue(products.stream().anyMatch(product -> shoppingService.shardOf(product.getName()) == 1));
+
+        // Действия
+        IllegalStateException error = Assertions.assertThrows(IllegalStateException.class,
+                () -> shoppingService.tryBuy(cart));
+
+        // Проверки
+        Assertions.assertEquals("сбой БД", error.getMessage());
+        Assertions.assertEquals(2, healthySaves.get());
+        for (Product product : products) {
+            Assertions.assertEquals(10, product.getCount(), product.getName());
+            Assertions.assertEquals(0, product.getReserved(), product.getName());
+        }
+        databaseDown.set(false);
+        Assertions.assertTrue(shoppingService.buy(cart));
+        for (Product product : products) {
+            Assertions.assertEquals(8, product.getCount(), product.getName());
+        }
+    }
+
+    /**
+     * Тестирование того, что каталог частей склада находит товар по номеру в общем словаре частей,
+     * а части с разными словарями не принимаются
+     */
+    @Test
+    public void testCatalogGetByIdUsesShardsDictionary() {
+        // Подготовка
+        ProductDictionary dictionary = new ProductDictionary();
+        ShardedShoppingService shoppingService = new ShardedShoppingService(List.of(
+                new InventoryShard(new InMemoryProductDao(dictionary)),
+                new InventoryShard(new InMemoryProductDao(dictionary))));
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Product product = new Product("Товар " + i, 1, dictionary);
+            shoppingService.shardFor(product.getName()).getProductDao().save(product);
+            products.add(product);
+        }
+
+        // Проверки
+        Assertions.assertSame(dictionary, shoppingService.catalog().getDictionary());
+        for (Product product : products) {
+            Assertions.assertSame(product, shoppingService.catalog().getById(product.getId()));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ShardedShoppingService(List.of(
+                new InventoryShard(new InMemoryProductDao(dictionary)),
+                new InventoryShard(new InMemoryProductDao()))));
+    }
+
+    /**
+     * Разложить товары по частям склада
+     */
+    private static List<Product> fill(ShardedShoppingService shoppingService, int productCount, int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product("Товар " + i, count);
+            shoppingService.shardFor(product.getName()).getProductDao().save(product);
+            products.add(product);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,110 @@
+package shopping;
+
+import customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Покупка корзины из {@code cartSize} товаров через {@link ShoppingServiceImpl#buy(Cart)}
+ * поверх {@link InMemoryProductDao} в одном и в нескольких потоках.
+ * <p>Все потоки покупают одни и те же товары, т.е. многопоточный вариант показывает
+ * стоимость конкуренции за количество товара. Отказ в покупке измеряется на корзине
+ * из одного товара, которого нет в наличии.</p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args=ShoppingServiceBuyBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoppingServiceBuyBenchmark {
+    /**
+     * Запас товара, которого хватает на любую итерацию
+     */
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"1", "10", "40"})
+    private int cartSize;
+
+    private ShoppingServiceImpl shoppingService;
+    private Product[] products;
+    private Cart cart;
+    /**
+     * Корзина с товаром, которого нет в наличии
+     */
+    private Cart rejectedCart;
+
+    @Setup
+    public void setUp() {
+        InMemoryProductDao productDao = new InMemoryProductDao();
+        shoppingService = new ShoppingServiceImpl(productDao);
+        products = new Product[cartSize];
+        cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        for (int i = 0; i < cartSize; i++) {
+            products[i] = new Product("Товар " + i, STOCK);
+            productDao.save(products[i]);
+            cart.add(products[i], 1);
+        }
+        Product soldOut = new Product("Нет в наличии", 2);
+        rejectedCart = shoppingService.getCart(new Customer(2, "22-22-22"));
+        rejectedCart.add(soldOut, 1);
+        soldOut.subtractCount(2);
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        for (Product product : products) {
+            product.addCount(STOCK - product.getCount());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean buy() throws BuyException {
+        return shoppingService.buy(cart);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean buyConcurrent() throws BuyException {
+        return shoppingService.buy(cart);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BuyResult tryBuy() {
+        return shoppingService.tryBuy(cart);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BuyResult tryBuyRejected() {
+        return shoppingService.tryBuy(rejectedCart);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object buyRejected() {
+        try {
+            return shoppingService.buy(rejectedCart);
+        } catch (BuyException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.Product;
+import product.ProductDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Нагрузочное тестирование {@link ShoppingServiceImpl#buy(Cart)} при конкурентных покупках.</p>
+ * Вместо mock объекта используется {@link ProductDao} без взаимодействия с БД,
+ * т.к. Mockito записывает каждый вызов и сам становится точкой синхронизации.
+ */
+public class ShoppingServiceImplConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 20_000;
+
+    private final ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(new ProductDao());
+
+    /**
+     * Тестирование того, что при конкурентной покупке одного товара
+     * он не продаётся больше, чем есть в наличии, и количество не уходит в минус
+     */
+    @Test
+    public void testStockNeverGoesNegative() throws Exception {
+        // Подготовка
+        Product product = new Product("Хлеб", 10_000);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(product, 3);
+
+        // Действия
+        int bought = runConcurrently(cart, product);
+
+        // Проверки
+        Assertions.assertEquals(10_000 / 3, bought);
+        Assertions.assertEquals(10_000 % 3, product.getCount());
+    }
+
+    /**
+     * Тестирование того, что покупка нескольких товаров выполняется целиком или не выполняется вовсе:
+     * при нехватке одного из товаров остальные возвращаются в наличие
+     */
+    @Test
+    public void testMultiProductBuyIsAllOrNothing() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 5_000);
+        Product milk = new Product("Молоко", 2_000);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 2);
+        cart.add(milk, 1);
+
+        // Действия
+        int bought = runConcurrently(cart, bread);
+
+        // Проверки
+        Assertions.assertEquals(2_000, bought);
+        Assertions.assertEquals(0, milk.getCount());
+        Assertions.assertEquals(5_000 - 2 * bought, bread.getCount());
+    }
+
+    /**
+     * Запустить одновременные покупки одной и той же корзины из нескольких потоков
+     * с проверкой, что количество товара ни разу не было отрицательным
+     * @return количество удачных покупок
+     */
+    private int runConcurrently(Cart cart, Product watched) throws Exception {
+        AtomicInteger bought = new AtomicInteger();
+        AtomicInteger negativeSeen = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        try {
+                            if (shoppingService.buy(cart)) {
+                                bought.incrementAndGet();
+                            }
+                        } catch (BuyException e) {
+                            // ожидаемо, когда товар закончился
+                        }
+                        if (watched.getCount() < 0) {
+                            negativeSeen.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(0, negativeSeen.get());
+        return bought.get();
+    }
+}
@@ -0,0 +1,102 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.InMemoryProductDao;
+import product.Product;
+import product.VersionedProductDao;
+
+/**
+ * Тестирование класса {@link ShoppingServiceImpl}
+ */
+public class ShoppingServiceImplTest {
+
+    private final InMemoryProductDao productDao = new InMemoryProductDao();
+    private final ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao);
+
+    /**
+     * Тестирование того, что {@link ShoppingServiceImpl#tryBuy(Cart)} сообщает, какого товара не хватило
+     * и сколько, и ничего не вычитает
+     */
+    @Test
+    public void testTryBuyReportsShortfall() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        Product milk = new Product("Молоко", 10);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 2);
+        cart.add(milk, 4);
+        milk.subtractCount(7);
+
+        // Действия
+        BuyResult result = shoppingService.tryBuy(cart);
+
+        // Проверки
+        Assertions.assertEquals(BuyResult.Status.INSUFFICIENT_STOCK, result.getStatus());
+        Assertions.assertSame(milk, result.getProduct());
+        Assertions.assertEquals(1, result.getShortfall());
+        Assertions.assertEquals(10, bread.getCount());
+        Assertions.assertEquals(3, milk.getCount());
+        Assertions.assertSame(BuyResult.EMPTY_CART,
+                shoppingService.tryBuy(shoppingService.getCart(new Customer(2, "22-22-22"))));
+    }
+
+    /**
+     * Тестирование того, что {@link ShoppingServiceImpl#buy(Cart)} при нехватке товара бросает
+     * исключение без стека вызовов, но с прежним сообщением
+     */
+    @Test
+    public void testBuyThrowsStacklessException() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 6);
+        Assertions.assertTrue(shoppingService.tryBuy(cart).isBought());
+
+        // Действия
+        BuyException exception = Assertions.assertThrows(BuyException.class, () -> shoppingService.buy(cart));
+
+        // Проверки
+        Assertions.assertEquals("В наличии нет необходимого количества товара 'Хлеб'", exception.getMessage());
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        Assertions.assertSame(bread, exception.getProduct());
+        Assertions.assertEquals(2, exception.getShortfall());
+    }
+
+    /**
+     * Тестирование того, что корзина и покупка с товаром из старой версии каталога проверяют
+     * актуальное наличие, а не количество на момент публикации версии
+     */
+    @Test
+    public void testVersionedProductUsesLiveStock() {
+        // Подготовка
+        VersionedProductDao versionedDao = new VersionedProductDao();
+        versionedDao.save(new Product("Хлеб", 10));
+        ShoppingServiceImpl versionedService = new ShoppingServiceImpl(versionedDao, null, null, null,
+                new FlashSale(16));
+        Product bread = versionedService.getProductByName("Хлеб");
+        Cart first = versionedService.getCart(new Customer(1, "11-11-11"));
+        first.add(bread, 6);
+        Assertions.assertTrue(versionedService.tryBuy(first).isBought());
+
+        // Действия
+        Cart second = versionedService.getCart(new Customer(2, "22-22-22"));
+        IllegalArgumentException notEnough = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> second.add(bread, 5));
+        second.add(bread, 3);
+        Cart third = versionedService.getCart(new Customer(3, "33-33-33"));
+        third.add(bread, 3);
+        BuyResult result = versionedService.tryBuy(second);
+        BuyResult shortfall = versionedService.tryBuy(third);
+
+        // Проверки
+        Assertions.assertNotNull(notEnough.getMessage());
+        Assertions.assertTrue(result.isBought());
+        Assertions.assertEquals(10, bread.getCount());
+        Assertions.assertEquals(1, bread.getLiveCount());
+        Assertions.assertEquals(BuyResult.Status.INSUFFICIENT_STOCK, shortfall.getStatus());
+        Assertions.assertEquals(2, shortfall.getShortfall());
+        Assertions.assertEquals(1, versionedService.getProductByName("Хлеб").getCount());
+    }
+}
@@ -0,0 +1,188 @@
+package shopping;
+
+import customer.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import product.InMemoryProductDao;
+import product.Product;
+
+import java.time.Duration;
+
+/**
+ * Тестирование класса {@link StockReservations} и резервирования товаров корзиной
+ */
+public class StockReservationsTest {
+
+    private final InMemoryProductDao productDao = new InMemoryProductDao();
+    private final StockReservations reservations = new StockReservations(Duration.ofMillis(200));
+    private final ShoppingServiceImpl shoppingService =
+            new ShoppingServiceImpl(productDao, null, null, reservations);
+
+    @AfterEach
+    public void tearDown() {
+        reservations.close();
+    }
+
+    /**
+     * Тестирование того, что добавление в корзину откладывает товар: другой покупатель его не получит,
+     * а покупка продаёт отложенный товар без повторного вычитания
+     */
+    @Test
+    public void testReservedStockIsHeldAndSold() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        productDao.save(bread);
+        Cart first = shoppingService.getCart(new Customer(1, "11-11-11"));
+        Cart second = shoppingService.getCart(new Customer(2, "22-22-22"));
+
+        // Действия
+        first.add(bread, 6);
+
+        // Проверки
+        Assertions.assertEquals(4, bread.getCount());
+        Assertions.assertEquals(6, bread.getReserved());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> second.add(bread, 5));
+        Assertions.assertTrue(shoppingService.buy(first));
+        Assertions.assertEquals(4, bread.getCount());
+        Assertions.assertEquals(0, bread.getReserved());
+    }
+
+    /**
+     * Тестирование того, что истёкший резерв возвращается в наличие,
+     * а покупка после этого вычитает товар заново
+     */
+    @Test
+    public void testExpiredReservationIsReleased() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        productDao.save(bread);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 3);
+
+        // Действия
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (bread.getReserved() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // Проверки
+        Assertions.assertEquals(10, bread.getCount());
+        Assertions.assertEquals(1, reservations.getExpiredCount());
+        Assertions.assertTrue(shoppingService.buy(cart));
+        Assertions.assertEquals(7, bread.getCount());
+    }
+
+    /**
+     * Тестирование того, что резерв, продажа которого отменена, возвращается в наличие по новому сроку,
+     * а не по таймеру прежнего срока
+     */
+    @Test
+    public void testUnsoldReservationGetsNewDeadline() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        try (StockReservations slow = new StockReservations(Duration.ofMillis(400))) {
+            StockReservations.Reservation reservation = slow.reserve(bread, 3);
+            long start = System.nanoTime();
+            Assertions.assertTrue(slow.sell(reservation));
+            Thread.sleep(250);
+
+            // Действия
+            Assertions.assertTrue(slow.unsell(reservation));
+            Thread.sleep(Math.max(0, Duration.ofMillis(500).minusNanos(System.nanoTime() - start).toMillis()));
+            boolean activeAfterOldDeadline = reservation.isActive();
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (reservation.isActive() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            // Проверки
+            Assertions.assertTrue(activeAfterOldDeadline);
+            Assertions.assertFalse(reservation.isActive());
+            Assertions.assertEquals(10, bread.getCount());
+            Assertions.assertEquals(1, slow.getExpiredCount());
+        }
+    }
+
+    /**
+     * Тестирование того, что изменение количества и удаление товара из корзины возвращают прежний резерв
+     */
+    @Test
+    public void testEditAndRemoveReleaseReservation() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        productDao.save(bread);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 3);
+
+        // Действия и проверки
+        cart.edit(bread, 5);
+        Assertions.assertEquals(5, bread.getCount());
+        Assertions.assertEquals(5, bread.getReserved());
+        cart.remove(bread);
+        Assertions.assertEquals(10, bread.getCount());
+        Assertions.assertEquals(0, bread.getReserved());
+    }
+
+    /**
+     * Тестирование того, что строка может изменить количество в пределах уже отложенного ею товара,
+     * а при нехватке товара прежний резерв сохраняется
+     */
+    @Test
+    public void testEditReservedLine() {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        productDao.save(bread);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 6);
+
+        // Действия и проверки
+        cart.edit(bread, 5);
+        Assertions.assertEquals(5, bread.getCount());
+        Assertions.assertEquals(5, bread.getReserved());
+        cart.edit(bread, 9);
+        Assertions.assertEquals(1, bread.getCount());
+        Assertions.assertEquals(9, bread.getReserved());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cart.edit(bread, 10));
+        Assertions.assertEquals(9, cart.getProducts().get(bread));
+
+        StockReservations.Reservation reservation = reservations.reserve(new Product("Молоко", 10), 6);
+        Assertions.assertNull(reservations.change(reservation, 11));
+        Assertions.assertTrue(reservation.isActive());
+        Assertions.assertEquals(4, reservation.getProduct().getCount());
+        Assertions.assertEquals(6, reservation.getProduct().getReserved());
+    }
+
+    /**
+     * Тестирование того, что при нехватке товара одной из строк товар, проданный из резерва другой строки,
+     * снова отложен, а не возвращён в наличие
+     */
+    @Test
+    public void testFailedBuyKeepsReservations() throws Exception {
+        // Подготовка
+        Product bread = new Product("Хлеб", 10);
+        Product milk = new Product("Молоко", 10);
+        productDao.save(bread);
+        productDao.save(milk);
+        Cart cart = shoppingService.getCart(new Customer(1, "11-11-11"));
+        cart.add(bread, 3);
+        // строка без резерва, например, из сохранённой корзины
+        cart.restore(milk, 5);
+        milk.subtractCount(8);
+
+        // Действия
+        BuyResult failed = shoppingService.tryBuy(cart);
+
+        // Проверки
+        Assertions.assertEquals(BuyResult.Status.INSUFFICIENT_STOCK, failed.getStatus());
+        Assertions.assertEquals(7, bread.getCount());
+        Assertions.assertEquals(3, bread.getReserved());
+        Assertions.assertEquals(2, milk.getCount());
+
+        milk.addCount(8);
+        Assertions.assertTrue(shoppingService.buy(cart));
+        Assertions.assertEquals(7, bread.getCount());
+        Assertions.assertEquals(0, bread.getReserved());
+        Assertions.assertEquals(5, milk.getCount());
+    }
+}
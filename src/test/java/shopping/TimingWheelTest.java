@@ -0,0 +1,60 @@
+package shopping;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Тестирование класса {@link TimingWheel}
+ */
+public class TimingWheelTest {
+
+    /**
+     * Тестирование того, что таймеры на всех уровнях колеса (в том числе за его пределами)
+     * срабатывают в такт своего срока: не раньше и не позже
+     */
+    @Test
+    public void testTimersFireOnTheirTick() {
+        // Подготовка
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        Random random = new Random(42);
+        int timers = 20_000;
+        long maxTick = 1L << 25;
+        for (int i = 0; i < timers; i++) {
+            long deadline = 1 + (long) (Math.pow(random.nextDouble(), 4) * maxTick);
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Действия и проверки
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1; tick <= maxTick + 1; tick++) {
+            wheel.advance(tick, fired::add);
+            for (Long deadline : fired) {
+                Assertions.assertEquals(tick, deadline);
+            }
+            fired.clear();
+        }
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Тестирование того, что таймер с уже прошедшим сроком срабатывает на ближайшем такте
+     */
+    @Test
+    public void testPastDeadlineFiresOnNextTick() {
+        // Подготовка
+        TimingWheel<String> wheel = new TimingWheel<>(10, 0);
+        wheel.advance(100, item -> Assertions.fail());
+
+        // Действия
+        wheel.schedule("просрочен", 5);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(110, fired::add);
+
+        // Проверки
+        Assertions.assertEquals(List.of("просрочен"), fired);
+    }
+}
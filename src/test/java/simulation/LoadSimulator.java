@@ -0,0 +1,334 @@
+package simulation;
+
+import customer.Customer;
+import customer.CustomerDao;
+import customer.CustomerService;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import product.InMemoryProductDao;
+import product.Product;
+import shopping.BuyResult;
+import shopping.Cart;
+import shopping.ShoppingServiceImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный прогон {@link ShoppingServiceImpl} и {@link CustomerService} поверх DAO в памяти.
+ * <p>{@code threads} покупателей в течение {@code warmup + duration} выполняют случайные операции
+ * в заданных долях: регистрацию, просмотр каталога и покупку корзины. Товары выбираются
+ * по распределению Ципфа, размер корзины - по заданному распределению (см. {@link SimulationConfig}).
+ * Задержки и итоги считаются только за время замера.</p>
+ * После прогона проверяется согласованность склада: ни один товар не продан сверх наличия,
+ * и у каждого товара наличие уменьшилось ровно на количество, проданное успешными покупками.
+ * Результат записывается в JSON ({@code output}) и кратко выводится в консоль.
+ * <p>Запуск: {@code mvn -Psimulation test-compile exec:exec -Dsimulation.args="threads=256 duration=30s"}</p>
+ */
+public final class LoadSimulator {
+    private static final int PAGE_SIZE = 20;
+
+    private final SimulationConfig config;
+    private final InMemoryProductDao productDao = new InMemoryProductDao();
+    private final ShoppingServiceImpl shoppingService = new ShoppingServiceImpl(productDao);
+    private final PhoneCustomerDao customerDao = new PhoneCustomerDao();
+    private final CustomerService customerService;
+    private final Product[] products;
+    /**
+     * Количество каждого товара, проданное успешными покупками, в том числе во время разогрева
+     */
+    private final AtomicLongArray sold;
+    private final ZipfDistribution popularity;
+    private final int[] cartSizes;
+    private final int[] cartSizeWeights;
+    private final SimulationConfig.Operation[] operations;
+    private final int[] operationWeights;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Map<SimulationConfig.Operation, LatencyHistogram> latencies =
+            new EnumMap<>(SimulationConfig.Operation.class);
+    private final Counter bought = metrics.counter("simulation_buy_bought_total");
+    private final Counter insufficientStock = metrics.counter("simulation_buy_insufficient_stock_total");
+    private final Counter cartRejected = metrics.counter("simulation_buy_cart_rejected_total");
+    private final Counter signedUp = metrics.counter("simulation_signup_added_total");
+    private final Counter duplicatePhone = metrics.counter("simulation_signup_duplicate_total");
+    private final Counter errors = metrics.counter("simulation_error_total");
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    LoadSimulator(SimulationConfig config) {
+        this.config = config;
+        this.customerService = new CustomerService(customerDao, null, metrics);
+        this.products = new Product[config.products()];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Product("Товар %06d".formatted(i), config.stock());
+            productDao.save(products[i]);
+        }
+        this.sold = new AtomicLongArray(products.length);
+        this.popularity = new ZipfDistribution(products.length, config.zipf());
+        this.cartSizes = config.cartSizes().keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.cartSizeWeights = cumulative(config.cartSizes().values());
+        this.operations = config.mix().keySet().toArray(new SimulationConfig.Operation[0]);
+        this.operationWeights = cumulative(config.mix().values());
+        for (SimulationConfig.Operation operation : SimulationConfig.Operation.values()) {
+            latencies.put(operation, metrics.histogram("simulation_" + operation.name().toLowerCase() + "_latency_ns"));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        SimulationConfig config = SimulationConfig.parse(args);
+        SimulationReport report = new LoadSimulator(config).run();
+        report.write(config.output());
+        System.out.printf("Операций в секунду: %s, нарушений согласованности: %s, выделено байт на операцию: %s%n",
+                report.get("summary", "throughputOpsPerSecond"),
+                report.get("summary", "consistencyViolations"),
+                report.get("summary", "allocatedBytesPerOp"));
+        for (SimulationConfig.Operation operation : SimulationConfig.Operation.values()) {
+            Map<String, Object> latency = report.section("operations", operation.name().toLowerCase());
+            System.out.printf("%-7s p50 %s мкс, p99 %s мкс, p999 %s мкс%n", operation,
+                    latency.get("p50Micros"), latency.get("p99Micros"), latency.get("p999Micros"));
+        }
+        System.out.println("Результат: " + config.output().toAbsolutePath());
+    }
+
+    /**
+     * Выполнить прогон
+     */
+    SimulationReport run() throws InterruptedException {
+        ThreadFactory threadFactory = config.virtual()
+                ? Thread.ofVirtual().name("shopper-", 0).factory()
+                : Thread.ofPlatform().name("shopper-", 0).daemon().factory();
+        List<Thread> shoppers = new ArrayList<>(config.threads());
+        for (int i = 0; i < config.threads(); i++) {
+            int shopper = i;
+            Thread thread = threadFactory.newThread(() -> shop(shopper));
+            shoppers.add(thread);
+            thread.start();
+        }
+        TimeUnit.NANOSECONDS.sleep(config.warmup().toNanos());
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        measuring = true;
+        TimeUnit.NANOSECONDS.sleep(config.duration().toNanos());
+        measuring = false;
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        stopped = true;
+        for (Thread shopper : shoppers) {
+            shopper.join();
+        }
+        return report(elapsedNanos, allocated);
+    }
+
+    private void shop(int shopper) {
+        SplittableRandom random = new SplittableRandom(config.seed() + shopper);
+        Customer customer = new Customer(shopper, "shopper-" + shopper);
+        while (!stopped) {
+            SimulationConfig.Operation operation = operations[choose(operationWeights, random)];
+            boolean measured = measuring;
+            long start = System.nanoTime();
+            try {
+                switch (operation) {
+                    case SIGNUP -> signUp(random, measured);
+                    case BROWSE -> browse(random);
+                    case BUY -> buy(customer, random, measured);
+                }
+            } catch (Exception e) {
+                if (measured) {
+                    errors.increment();
+                }
+            }
+            if (measured) {
+                latencies.get(operation).recordSince(start);
+            }
+        }
+    }
+
+    private void signUp(SplittableRandom random, boolean measured) throws Exception {
+        String phone = "+7%010d".formatted(random.nextInt(config.phones()));
+        boolean added = customerService.addCustomer(new Customer(0, phone));
+        if (measured) {
+            (added ? signedUp : duplicatePhone).increment();
+        }
+    }
+
+    private void browse(SplittableRandom random) {
+        Product product = shoppingService.getProductByName(products[popularity.sample(random)].getName());
+        shoppingService.getProductsPage(product.getName(), PAGE_SIZE);
+    }
+
+    private void buy(Customer customer, SplittableRandom random, boolean measured) {
+        Cart cart = shoppingService.getCart(customer);
+        int size = cartSizes[choose(cartSizeWeights, random)];
+        int[] chosen = new int[size];
+        int lines = 0;
+        try {
+            for (int attempt = 0; lines < size && attempt < size * 4; attempt++) {
+                int index = popularity.sample(random);
+                if (!contains(chosen, lines, index)) {
+                    cart.add(products[index], 1);
+                    chosen[lines++] = index;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // товар закончился ещё при добавлении в корзину
+            if (measured) {
+                cartRejected.increment();
+            }
+            return;
+        }
+        BuyResult result = shoppingService.tryBuy(cart);
+        if (result.isBought()) {
+            for (int i = 0; i < lines; i++) {
+                sold.incrementAndGet(chosen[i]);
+            }
+        }
+        if (measured) {
+            (result.isBought() ? bought : insufficientStock).increment();
+        }
+    }
+
+    private SimulationReport report(long elapsedNanos, long allocated) {
+        double seconds = elapsedNanos / 1e9;
+        SimulationReport report = new SimulationReport();
+        Map<String, Object> configSection = report.section("config");
+        configSection.put("threads", config.threads());
+        configSection.put("virtual", config.virtual());
+        configSection.put("warmupSeconds", config.warmup().toMillis() / 1e3);
+        configSection.put("durationSeconds", config.duration().toMillis() / 1e3);
+        configSection.put("products", config.products());
+        configSection.put("stock", config.stock());
+        configSection.put("zipf", config.zipf());
+        configSection.put("cartSizes", config.cartSizes().toString());
+        configSection.put("mix", config.mix().toString());
+        configSection.put("phones", config.phones());
+        configSection.put("seed", config.seed());
+        configSection.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        configSection.put("javaVersion", Runtime.version().toString());
+
+        long totalOperations = 0;
+        for (SimulationConfig.Operation operation : SimulationConfig.Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies.get(operation).snapshot();
+            totalOperations += snapshot.count();
+            Map<String, Object> section = report.section("operations", operation.name().toLowerCase());
+            section.put("count", snapshot.count());
+            section.put("throughputOpsPerSecond", snapshot.count() / seconds);
+            section.put("meanMicros", snapshot.meanNanos() / 1e3);
+            section.put("p50Micros", snapshot.quantileNanos(0.5) / 1e3);
+            section.put("p99Micros", snapshot.quantileNanos(0.99) / 1e3);
+            section.put("p999Micros", snapshot.quantileNanos(0.999) / 1e3);
+            section.put("maxMicros", snapshot.maxNanos() / 1e3);
+        }
+
+        Map<String, Object> outcomes = report.section("outcomes");
+        outcomes.put("bought", bought.sum());
+        outcomes.put("insufficientStock", insufficientStock.sum());
+        outcomes.put("cartRejected", cartRejected.sum());
+        outcomes.put("signedUp", signedUp.sum());
+        outcomes.put("duplicatePhone", duplicatePhone.sum());
+        outcomes.put("phoneCheckRaces", customerDao.getRejectedSaves());
+        outcomes.put("errors", errors.sum());
+
+        int oversold = 0;
+        int stockMismatches = 0;
+        for (int i = 0; i < products.length; i++) {
+            int count = products[i].getCount();
+            if (count < 0) {
+                oversold++;
+            }
+            if (config.stock() - count != sold.get(i)) {
+                stockMismatches++;
+            }
+        }
+        Map<String, Object> consistency = report.section("consistency");
+        consistency.put("oversoldProducts", oversold);
+        consistency.put("stockMismatches", stockMismatches);
+
+        Map<String, Object> allocation = report.section("allocation");
+        allocation.put("bytes", allocated);
+        allocation.put("bytesPerSecond", allocated / seconds);
+        allocation.put("bytesPerOp", totalOperations == 0 ? Double.NaN : (double) allocated / totalOperations);
+
+        Map<String, Object> summary = report.section("summary");
+        summary.put("elapsedSeconds", seconds);
+        summary.put("operations", totalOperations);
+        summary.put("throughputOpsPerSecond", totalOperations / seconds);
+        summary.put("consistencyViolations", oversold + stockMismatches);
+        summary.put("allocatedBytesPerOp", allocation.get("bytesPerOp"));
+        return report;
+    }
+
+    /**
+     * Байты, выделенные всеми потоками с запуска JVM; виртуальные потоки учитываются в потоках-носителях
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    private static int[] cumulative(Iterable<Integer> weights) {
+        List<Integer> sums = new ArrayList<>();
+        int sum = 0;
+        for (int weight : weights) {
+            sum += weight;
+            sums.add(sum);
+        }
+        return sums.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Номер варианта с вероятностью, пропорциональной его весу
+     */
+    private static int choose(int[] cumulativeWeights, SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= value) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@link CustomerDao} в памяти с уникальностью номера телефона, как у ограничения в БД
+     */
+    private static final class PhoneCustomerDao extends CustomerDao {
+        private final ConcurrentHashMap<String, Customer> byPhone = new ConcurrentHashMap<>();
+        private final LongAdder rejectedSaves = new LongAdder();
+
+        @Override
+        public boolean save(Customer customer) {
+            if (byPhone.putIfAbsent(customer.getPhone(), customer) != null) {
+                // проверка exists() пропустила номер, который успел сохранить другой поток
+                rejectedSaves.increment();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean exists(String phone) {
+            return byPhone.containsKey(phone);
+        }
+
+        long getRejectedSaves() {
+            return rejectedSaves.sum();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package simulation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Тестирование класса {@link LoadSimulator}
+ */
+public class LoadSimulatorTest {
+
+    @TempDir
+    private Path tempDir;
+
+    /**
+     * Тестирование того, что короткий прогон с маленьким наличием распродаёт популярные товары
+     * без нарушений согласованности склада и записывает результат в JSON
+     */
+    @Test
+    public void testShortRunKeepsStockConsistent() throws Exception {
+        // Подготовка
+        Path output = tempDir.resolve("result.json");
+        SimulationConfig config = SimulationConfig.parse("threads=16", "warmup=100ms", "duration=500ms",
+                "products=200", "stock=50", "zipf=1.2", "mix=signup:10,browse:30,buy:60", "phones=1000",
+                "output=" + output);
+
+        // Действия
+        SimulationReport report = new LoadSimulator(config).run();
+        report.write(config.output());
+
+        // Проверки
+        Assertions.assertEquals(0, report.get("summary", "consistencyViolations"));
+        Assertions.assertTrue((long) report.get("outcomes", "bought") > 0);
+        Assertions.assertTrue((long) report.get("outcomes", "cartRejected") > 0);
+        Assertions.assertEquals(0L, report.get("outcomes", "errors"));
+        String json = Files.readString(output);
+        Assertions.assertTrue(json.contains("\"consistencyViolations\": 0"), json);
+        Assertions.assertTrue(json.contains("\"p999Micros\""), json);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse("thread=1"));
+    }
+}
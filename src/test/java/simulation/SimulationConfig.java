@@ -0,0 +1,145 @@
+package simulation;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона {@link LoadSimulator}.
+ * <p>Задаются аргументами вида {@code ключ=значение}, незаданные берутся по умолчанию:</p>
+ * <ul>
+ *     <li>{@code threads=64} - количество покупателей, работающих одновременно;</li>
+ *     <li>{@code virtual=true} - виртуальные или платформенные потоки;</li>
+ *     <li>{@code duration=10s} - длительность замера, {@code warmup=2s} - разогрев перед ним;</li>
+ *     <li>{@code products=10000}, {@code stock=1000} - размер каталога и начальное наличие каждого товара;</li>
+ *     <li>{@code zipf=1.0} - показатель распределения Ципфа для популярности товаров, 0 - равномерно;</li>
+ *     <li>{@code cartSizes=1:50,2:25,3:15,5:10} - размер корзины: значение:вес через запятую;</li>
+ *     <li>{@code mix=signup:5,browse:70,buy:25} - доли операций;</li>
+ *     <li>{@code phones=1000000} - количество разных номеров телефонов при регистрации;</li>
+ *     <li>{@code seed=42} - начальное значение генераторов случайных чисел;</li>
+ *     <li>{@code output=target/simulation/result.json} - файл с результатом.</li>
+ * </ul>
+ * Прогон с одинаковыми параметрами выбирает одинаковые последовательности операций в каждом потоке;
+ * порядок операций между потоками определяет планировщик.
+ *
+ * @param cartSizes размер корзины -> вес
+ * @param mix       операция -> вес
+ */
+record SimulationConfig(int threads, boolean virtual, Duration warmup, Duration duration,
+                        int products, int stock, double zipf, Map<Integer, Integer> cartSizes,
+                        Map<Operation, Integer> mix, int phones, long seed, Path output) {
+
+    /**
+     * Параметры из аргументов командной строки
+     * @throws IllegalArgumentException - при неизвестном или некорректном параметре
+     */
+    static SimulationConfig parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("threads", "64");
+        values.put("virtual", "true");
+        values.put("warmup", "2s");
+        values.put("duration", "10s");
+        values.put("products", "10000");
+        values.put("stock", "1000");
+        values.put("zipf", "1.0");
+        values.put("cartSizes", "1:50,2:25,3:15,5:10");
+        values.put("mix", "signup:5,browse:70,buy:25");
+        values.put("phones", "1000000");
+        values.put("seed", "42");
+        values.put("output", "target/simulation/result.json");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Неизвестный параметр '%s', допустимы: %s"
+                        .formatted(arg, values.keySet()));
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        Map<Integer, Integer> cartSizes = new LinkedHashMap<>();
+        weights(values.get("cartSizes")).forEach((size, weight) -> cartSizes.put(Integer.parseInt(size), weight));
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        weights(values.get("mix")).forEach((operation, weight) ->
+                mix.put(Operation.valueOf(operation.toUpperCase()), weight));
+        SimulationConfig config = new SimulationConfig(
+                Integer.parseInt(values.get("threads")),
+                Boolean.parseBoolean(values.get("virtual")),
+                duration(values.get("warmup")),
+                duration(values.get("duration")),
+                Integer.parseInt(values.get("products")),
+                Integer.parseInt(values.get("stock")),
+                Double.parseDouble(values.get("zipf")),
+                cartSizes,
+                mix,
+                Integer.parseInt(values.get("phones")),
+                Long.parseLong(values.get("seed")),
+                Path.of(values.get("output")));
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (threads <= 0 || products <= 0 || stock < 0 || phones <= 0 || zipf < 0) {
+            throw new IllegalArgumentException("Количества должны быть положительными, показатель Ципфа - неотрицательным");
+        }
+        if (duration.isNegative() || duration.isZero() || warmup.isNegative()) {
+            throw new IllegalArgumentException("Длительность замера должна быть положительной");
+        }
+        if (cartSizes.keySet().stream().anyMatch(size -> size <= 0 || size > products)) {
+            throw new IllegalArgumentException("Размер корзины должен быть от 1 до количества товаров");
+        }
+    }
+
+    /**
+     * Разобрать {@code значение:вес,значение:вес}
+     */
+    private static Map<String, Integer> weights(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split(":");
+            int weight = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : -1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Ожидается значение:вес, получено '%s'".formatted(pair));
+            }
+            weights.put(parts[0].trim(), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Сумма весов должна быть положительной: '%s'".formatted(value));
+        }
+        return weights;
+    }
+
+    /**
+     * Длительность вида {@code 500ms}, {@code 10s} или {@code 2m}
+     */
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Ожидается длительность вида 500ms, 10s или 2m: '%s'"
+                    .formatted(value));
+        };
+    }
+
+    /**
+     * Операция покупателя
+     */
+    enum Operation {
+        /**
+         * Регистрация: {@link customer.CustomerService#addCustomer(customer.Customer)}
+         */
+        SIGNUP,
+        /**
+         * Просмотр: поиск популярного товара по имени и страница каталога после него
+         */
+        BROWSE,
+        /**
+         * Покупка корзины популярных товаров
+         */
+        BUY
+    }
+}
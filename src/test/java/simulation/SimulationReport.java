@@ -0,0 +1,103 @@
+package simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Результат прогона {@link LoadSimulator}: вложенные разделы значений в порядке добавления,
+ * записывается в JSON, чтобы прогоны можно было сравнивать между собой
+ */
+final class SimulationReport {
+    private final Map<String, Object> root = new LinkedHashMap<>();
+
+    /**
+     * Раздел отчёта, создаётся при первом обращении
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> section(String... path) {
+        Map<String, Object> section = root;
+        for (String name : path) {
+            section = (Map<String, Object>) section.computeIfAbsent(name, key -> new LinkedHashMap<String, Object>());
+        }
+        return section;
+    }
+
+    /**
+     * Значение раздела верхнего уровня
+     */
+    Object get(String section, String key) {
+        return section(section).get(key);
+    }
+
+    void write(Path path) {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(path, toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать результат в " + path, e);
+        }
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder();
+        append(json, root, "");
+        return json.append('\n').toString();
+    }
+
+    private static void append(StringBuilder json, Object value, String indent) {
+        if (value instanceof Map<?, ?> map) {
+            if (map.isEmpty()) {
+                json.append("{}");
+                return;
+            }
+            json.append("{\n");
+            Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<?, ?> entry = entries.next();
+                json.append(indent).append("  ");
+                appendString(json, entry.getKey().toString());
+                json.append(": ");
+                append(json, entry.getValue(), indent + "  ");
+                json.append(entries.hasNext() ? ",\n" : "\n");
+            }
+            json.append(indent).append('}');
+        } else if (value instanceof Double number) {
+            json.append(number.isNaN() || number.isInfinite() ? "null" : String.format(Locale.ROOT, "%.3f", number));
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value == null) {
+            json.append("null");
+        } else {
+            appendString(json, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u%04x".formatted((int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,30 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Распределение Ципфа на {@code 0..n-1}: вероятность номера {@code k} пропорциональна {@code 1 / (k + 1)^s}.
+ * При {@code s = 0} распределение равномерное, чем больше {@code s}, тем сильнее выделяются первые номера.
+ * <p>Накопленные вероятности считаются один раз, выбор номера - двоичный поиск по ним.</p>
+ */
+final class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}